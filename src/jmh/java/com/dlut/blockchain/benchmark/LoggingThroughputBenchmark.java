@@ -0,0 +1,125 @@
+package com.dlut.blockchain.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.dlut.blockchain.logging.RateLimitingTurboFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志开关对请求吞吐的影响：每次"请求"做少量业务计算并输出一条 INFO 日志
+ * 按 logback-spring.xml 的文件输出搭建（异步队列 8192、neverBlock、热点 Logger 限流），32 个线程并发
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingThroughputBenchmark {
+
+    /**
+     * OFF：关闭日志；SYNC：直接写文件；ASYNC：经异步队列写文件；ASYNC_RATE_LIMITED：异步队列加限流（线上配置）
+     */
+    @Param({"OFF", "SYNC", "ASYNC", "ASYNC_RATE_LIMITED"})
+    public String mode;
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private LoggerContext context;
+    private Logger logger;
+    private Path logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("{\"@timestamp\":\"%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX}\",\"log.level\":\"%level\","
+                + "\"process.thread.name\":\"%thread\",\"log.logger\":\"%logger\",\"message\":\"%message\"}%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setName("FILE");
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> appender = file;
+        if (mode.startsWith("ASYNC")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC_FILE");
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(0);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+        if (mode.equals("ASYNC_RATE_LIMITED")) {
+            RateLimitingTurboFilter filter = new RateLimitingTurboFilter();
+            filter.setContext(context);
+            filter.setLoggers("com.dlut.blockchain");
+            filter.setMaxPerSecond(100);
+            filter.setSampleEvery(100);
+            filter.setMaxLevel("WARN");
+            filter.start();
+            context.addTurboFilter(filter);
+        }
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(mode.equals("OFF") ? ch.qos.logback.classic.Level.OFF : ch.qos.logback.classic.Level.INFO);
+        logger = context.getLogger("com.dlut.blockchain.service.PostService");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void request(Blackhole blackhole) {
+        long requestId = requestIds.incrementAndGet();
+        blackhole.consume(work(requestId));
+        logger.info("获取文章详情: id={}, requestId={}", requestId % 1000, requestId);
+    }
+
+    private static long work(long seed) {
+        long hash = seed;
+        for (int i = 0; i < 64; i++) {
+            hash = hash * 31 + i;
+        }
+        return hash;
+    }
+}
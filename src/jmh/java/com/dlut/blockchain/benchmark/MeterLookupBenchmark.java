@@ -0,0 +1,150 @@
+package com.dlut.blockchain.benchmark;
+
+import com.dlut.blockchain.aspect.PerformanceAspect;
+import com.dlut.blockchain.config.TagCardinalityFilter;
+import com.dlut.blockchain.service.PerformanceMonitorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标查找开销：每次调用构造名称和标签并查注册表（改造前）与按方法缓存指标（改造后）对比
+ * 32 个线程并发调用，配合 -prof gc 查看每次调用的分配字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MeterLookupBenchmark {
+
+    private static final long DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private MeterRegistry meterRegistry;
+    private PerformanceMonitorService performanceMonitorService;
+    private SampleService target;
+    private SampleService perCallLookupProxy;
+    private SampleService cachedProxy;
+    private SampleService cachedNoopObservationProxy;
+
+    @Setup
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new TagCardinalityFilter(200));
+        performanceMonitorService = new PerformanceMonitorService(meterRegistry, Duration.ofMinutes(1), 3, 200);
+
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+
+        target = new SampleService();
+        perCallLookupProxy = proxy(new PerCallLookupAspect(meterRegistry));
+        cachedProxy = proxy(new PerformanceAspect(observationRegistry, meterRegistry));
+        // 不注册 Observation 处理器，只测切面自身（方法信息缓存、JFR 事件）的开销
+        cachedNoopObservationProxy = proxy(new PerformanceAspect(ObservationRegistry.NOOP, meterRegistry));
+    }
+
+    private SampleService proxy(Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Benchmark
+    public int serviceDirect() {
+        return target.work(42);
+    }
+
+    @Benchmark
+    public int serviceAspectPerCallLookup() {
+        return perCallLookupProxy.work(42);
+    }
+
+    @Benchmark
+    public int serviceAspectCached() {
+        return cachedProxy.work(42);
+    }
+
+    @Benchmark
+    public int serviceAspectCachedNoopObservation() {
+        return cachedNoopObservationProxy.work(42);
+    }
+
+    @Benchmark
+    public void apiMetricsPerCallRegistration() {
+        Counter.builder("api.request.count")
+                .tag("endpoint", "/api/posts/{id}")
+                .tag("method", "GET")
+                .tag("status", "success")
+                .register(meterRegistry)
+                .increment();
+        Timer.builder("api.request.duration")
+                .tag("endpoint", "/api/posts/{id}")
+                .tag("method", "GET")
+                .tag("status", "success")
+                .register(meterRegistry)
+                .record(DURATION_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public void apiMetricsCached() {
+        performanceMonitorService.recordApiMetrics("/api/posts/{id}", "GET", DURATION_NANOS, true);
+    }
+
+    /**
+     * 被监控的Service
+     */
+    @Service
+    public static class SampleService {
+
+        public int work(int value) {
+            return value * 31 + 7;
+        }
+    }
+
+    /**
+     * 改造前的切面写法：每次调用拼接方法名，按名称和标签从注册表查找计时器
+     */
+    @Aspect
+    public static class PerCallLookupAspect {
+
+        private final MeterRegistry meterRegistry;
+
+        public PerCallLookupAspect(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Around("within(@org.springframework.stereotype.Service *)")
+        public Object monitor(ProceedingJoinPoint joinPoint) throws Throwable {
+            String operation = joinPoint.getTarget().getClass().getSimpleName() + "." + joinPoint.getSignature().getName();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Object result = joinPoint.proceed();
+            sample.stop(meterRegistry.timer("service.execution.time", "method", operation, "status", "success"));
+            return result;
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package com.dlut.blockchain.aspect;
 
-import io.micrometer.core.annotation.Timed;
+import com.dlut.blockchain.jfr.MethodExecutionEvent;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 性能监控切面类
- * 用于监控Controller层方法的执行时间和性能指标
+ * 为Controller、Service、Repository方法创建 Observation：同时生成链路追踪的 span 和
+ * 按方法、异常类型区分的计时器（controller.execution.time 等）
+ * 每个方法的名称、标签和慢调用计数器只在首次调用时构造并缓存
+ * 每次调用的明细不再写日志，而是作为 JFR 事件（{@link MethodExecutionEvent}）按阈值写入持续记录
  * 
  * @author 区块链实验室
  * @version 1.0.0
@@ -23,13 +36,31 @@ import org.springframework.stereotype.Component;
 public class PerformanceAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(PerformanceAspect.class);
+
+    private static final long CONTROLLER_SLOW_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long SERVICE_SLOW_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(500);
     
+    private final ObservationRegistry observationRegistry;
     private final MeterRegistry meterRegistry;
+
+    /**
+     * 按目标类、方法缓存（Spring AOP 每次调用都会创建新的 Signature 对象，不能直接作为键）
+     */
+    private final Map<Class<?>, Map<Method, MethodInfo>> controllerMethods = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Method, MethodInfo>> serviceMethods = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Method, MethodInfo>> repositoryMethods = new ConcurrentHashMap<>();
     
-    public PerformanceAspect(MeterRegistry meterRegistry) {
+    public PerformanceAspect(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
         this.meterRegistry = meterRegistry;
     }
 
+    /**
+     * 一个方法的 Observation 名称、标签和慢调用计数器（仓库方法为 null）
+     */
+    private record MethodInfo(String observationName, String operation, KeyValues keyValues, Counter slow) {
+    }
+
     /**
      * 定义Controller层切点
      * 匹配所有Controller类中的方法
@@ -39,11 +70,19 @@ public class PerformanceAspect {
 
     /**
      * 定义Service层切点
-     * 匹配所有Service类中的方法
+     * 匹配所有Service类中的方法（不包括每个请求、每条SQL都会调用的性能监控服务本身）
      */
-    @Pointcut("within(@org.springframework.stereotype.Service *)")
+    @Pointcut("within(@org.springframework.stereotype.Service *) "
+            + "&& !within(com.dlut.blockchain.service.PerformanceMonitorService)")
     public void serviceMethods() {}
 
+    /**
+     * 定义Repository层切点
+     * 匹配所有Spring Data仓库接口的方法（包括继承的 save、findById 等）
+     */
+    @Pointcut("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public void repositoryMethods() {}
+
     /**
      * 环绕通知 - 监控Controller层方法性能
      * 记录方法执行时间、异常信息等性能指标
@@ -53,42 +92,10 @@ public class PerformanceAspect {
      * @throws Throwable 方法执行异常
      */
     @Around("controllerMethods()")
-    @Timed(value = "controller.execution.time", description = "Controller method execution time")
     public Object monitorControllerExecution(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = joinPoint.getSignature().getName();
-        String operation = className + "." + methodName;
-        
-        Timer.Sample sample = Timer.start(meterRegistry);
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            Object result = joinPoint.proceed();
-            
-            long executionTime = System.currentTimeMillis() - startTime;
-            sample.stop(meterRegistry.timer("controller.execution.time", 
-                "method", operation, "status", "success"));
-            
-            // 记录慢查询（超过1秒）
-            if (executionTime > 1000) {
-                logger.warn("Slow controller method detected: {} took {}ms", operation, executionTime);
-                meterRegistry.counter("controller.slow.request", "method", operation).increment();
-            }
-            
-            logger.debug("Controller method {} executed successfully in {}ms", operation, executionTime);
-            return result;
-            
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            sample.stop(meterRegistry.timer("controller.execution.time", 
-                "method", operation, "status", "error"));
-            
-            logger.error("Controller method {} failed after {}ms with error: {}", 
-                operation, executionTime, e.getMessage(), e);
-            meterRegistry.counter("controller.error.count", "method", operation, "error", e.getClass().getSimpleName()).increment();
-            
-            throw e;
-        }
+        MethodInfo info = methodInfo(controllerMethods, joinPoint, joinPoint.getTarget().getClass(),
+                "controller.execution.time", "controller.slow.request");
+        return observe(joinPoint, info, CONTROLLER_SLOW_THRESHOLD, "controller");
     }
 
     /**
@@ -100,41 +107,92 @@ public class PerformanceAspect {
      * @throws Throwable 方法执行异常
      */
     @Around("serviceMethods()")
-    @Timed(value = "service.execution.time", description = "Service method execution time")
     public Object monitorServiceExecution(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = joinPoint.getSignature().getName();
-        String operation = className + "." + methodName;
-        
-        Timer.Sample sample = Timer.start(meterRegistry);
-        long startTime = System.currentTimeMillis();
+        MethodInfo info = methodInfo(serviceMethods, joinPoint, joinPoint.getTarget().getClass(),
+                "service.execution.time", "service.slow.query");
+        return observe(joinPoint, info, SERVICE_SLOW_THRESHOLD, "service");
+    }
+
+    /**
+     * 环绕通知 - 监控Repository调用
+     * 仓库方法内的 SQL 语句由数据源代理单独生成 span
+     * 
+     * @param joinPoint 连接点
+     * @return 方法执行结果
+     * @throws Throwable 方法执行异常
+     */
+    @Around("repositoryMethods()")
+    public Object monitorRepositoryExecution(ProceedingJoinPoint joinPoint) throws Throwable {
+        // 仓库是 JDK 动态代理，用仓库接口而不是代理类命名
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget());
+        Class<?> repository = interfaces.length > 0 ? interfaces[0] : joinPoint.getTarget().getClass();
+        MethodInfo info = methodInfo(repositoryMethods, joinPoint, repository, "repository.execution.time", null);
+        return observe(joinPoint, info, 0, "repository");
+    }
+
+    /**
+     * 在 Observation 中执行方法，超过阈值时记录慢调用
+     * 仓库方法没有慢调用计数器，慢调用和异常日志由调用它的Service记录
+     */
+    private Object observe(ProceedingJoinPoint joinPoint, MethodInfo info, long slowThreshold,
+                           String layer) throws Throwable {
+        Observation observation = Observation.createNotStarted(info.observationName(), observationRegistry)
+                .contextualName(info.operation())
+                .lowCardinalityKeyValues(info.keyValues())
+                .start();
+        MethodExecutionEvent event = new MethodExecutionEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         
-        try {
+        try (Observation.Scope scope = observation.openScope()) {
             Object result = joinPoint.proceed();
             
-            long executionTime = System.currentTimeMillis() - startTime;
-            sample.stop(meterRegistry.timer("service.execution.time", 
-                "method", operation, "status", "success"));
-            
-            // 记录慢查询（超过500ms）
-            if (executionTime > 500) {
-                logger.warn("Slow service method detected: {} took {}ms", operation, executionTime);
-                meterRegistry.counter("service.slow.query", "method", operation).increment();
+            long executionTime = System.nanoTime() - startTime;
+            if (info.slow() != null && executionTime > slowThreshold) {
+                logger.warn("Slow {} method detected: {} took {}ms", layer, info.operation(),
+                        TimeUnit.NANOSECONDS.toMillis(executionTime));
+                info.slow().increment();
             }
-            
-            logger.debug("Service method {} executed successfully in {}ms", operation, executionTime);
+            event.success = true;
             return result;
             
         } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            sample.stop(meterRegistry.timer("service.execution.time", 
-                "method", operation, "status", "error"));
-            
-            logger.error("Service method {} failed after {}ms with error: {}", 
-                operation, executionTime, e.getMessage(), e);
-            meterRegistry.counter("service.error.count", "method", operation, "error", e.getClass().getSimpleName()).increment();
-            
+            observation.error(e);
+            event.exception = e.getClass().getName();
+            if (info.slow() != null) {
+                logger.error("{} method {} failed after {}ms with error: {}", layer, info.operation(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), e.getMessage(), e);
+            }
             throw e;
+        } finally {
+            observation.stop();
+            event.end();
+            if (event.shouldCommit()) {
+                event.layer = layer;
+                event.operation = info.operation();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 获取方法的 Observation 信息，首次调用时构造
+     */
+    private MethodInfo methodInfo(Map<Class<?>, Map<Method, MethodInfo>> cache, ProceedingJoinPoint joinPoint,
+                                  Class<?> ownerClass, String observationName, String slowName) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Map<Method, MethodInfo> methods = cache.get(ownerClass);
+        if (methods == null) {
+            methods = cache.computeIfAbsent(ownerClass, key -> new ConcurrentHashMap<>());
+        }
+        MethodInfo info = methods.get(method);
+        if (info == null) {
+            info = methods.computeIfAbsent(method, key -> {
+                String operation = ownerClass.getSimpleName() + "." + key.getName();
+                return new MethodInfo(observationName, operation, KeyValues.of("method", operation),
+                        slowName != null ? meterRegistry.counter(slowName, "method", operation) : null);
+            });
         }
+        return info;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.dlut.blockchain.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存计数缓冲区
+ * 高频的 +1 操作先在内存中按ID聚合，由定时任务批量写回数据库，避免热点行锁竞争
+ */
+public class BufferedCounter {
+
+    private final ConcurrentHashMap<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 累加计数
+     */
+    public void add(Long id, long delta) {
+        long pending = delta;
+        while (pending != 0) {
+            AtomicLong counter = counters.computeIfAbsent(id, key -> new AtomicLong());
+            counter.addAndGet(pending);
+            if (counters.get(id) == counter) {
+                return;
+            }
+            // 计数器已被 drain 移除，取回未被 drain 读到的部分重新累加
+            pending = counter.getAndSet(0);
+        }
+    }
+
+    /**
+     * 取出并清空当前累计值
+     * 取出后移除计数器，避免不再活跃的ID一直占用内存；与并发累加的竞争由 add 重试处理
+     */
+    public Map<Long, Long> drain() {
+        Map<Long, Long> snapshot = new HashMap<>();
+        for (Map.Entry<Long, AtomicLong> entry : counters.entrySet()) {
+            // 先移除再清零：移除后的累加由 add 发现并重新放入，不会丢失
+            counters.remove(entry.getKey(), entry.getValue());
+            long value = entry.getValue().getAndSet(0);
+            if (value != 0) {
+                snapshot.put(entry.getKey(), value);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 当前待写回的计数总和
+     */
+    public long pending() {
+        long total = 0;
+        for (AtomicLong counter : counters.values()) {
+            total += counter.get();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,163 @@
+package com.dlut.blockchain.common;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 按文件头（magic bytes）识别内容类型
+ * 只依据文件内容判断，不信任客户端提交的 Content-Type；ZIP、OLE2 等容器格式再结合扩展名区分具体的 Office 类型
+ */
+public final class ContentTypeDetector {
+
+    /**
+     * 识别所需读取的文件头长度
+     */
+    public static final int HEADER_SIZE = 512;
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    private ContentTypeDetector() {
+    }
+
+    /**
+     * 读取文件头并识别内容类型
+     */
+    public static String detect(InputStream in, String fileName) throws IOException {
+        byte[] header = in.readNBytes(HEADER_SIZE);
+        return detect(header, header.length, fileName);
+    }
+
+    /**
+     * 识别内容类型，无法识别时返回 application/octet-stream
+     *
+     * @param header   文件开头的字节
+     * @param length   header 中的有效长度
+     * @param fileName 文件名，用于区分容器格式
+     */
+    public static String detect(byte[] header, int length, String fileName) {
+        String extension = extensionOf(fileName);
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 'R', 'I', 'F', 'F') && matches(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        if (startsWith(header, length, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (startsWith(header, length, 'P', 'K', 0x03, 0x04) || startsWith(header, length, 'P', 'K', 0x05, 0x06)) {
+            return switch (extension) {
+                case "docx" -> "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+                case "xlsx" -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+                case "pptx" -> "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+                default -> "application/zip";
+            };
+        }
+        if (startsWith(header, length, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {
+            return switch (extension) {
+                case "doc" -> "application/msword";
+                case "xls" -> "application/vnd.ms-excel";
+                case "ppt" -> "application/vnd.ms-powerpoint";
+                default -> "application/x-ole-storage";
+            };
+        }
+        if (startsWith(header, length, 'R', 'a', 'r', '!', 0x1A, 0x07)) {
+            return "application/vnd.rar";
+        }
+        if (startsWith(header, length, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)) {
+            return "application/x-7z-compressed";
+        }
+        if (startsWith(header, length, 0x1F, 0x8B)) {
+            return "application/gzip";
+        }
+        if (startsWith(header, length, 0x7F, 'E', 'L', 'F')) {
+            return "application/x-executable";
+        }
+        if (isText(header, length)) {
+            return switch (extension) {
+                case "json" -> "application/json";
+                case "xml" -> "application/xml";
+                case "svg" -> "image/svg+xml";
+                case "csv" -> "text/csv";
+                case "md" -> "text/markdown";
+                case "html", "htm" -> "text/html";
+                default -> "text/plain";
+            };
+        }
+        // 两字节签名容易与文本开头重合，放在文本判断之后
+        if (startsWith(header, length, 'M', 'Z')) {
+            return "application/vnd.microsoft.portable-executable";
+        }
+        if (startsWith(header, length, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return OCTET_STREAM;
+    }
+
+    /**
+     * 按扩展名推断内容类型（没有识别结果的旧文件使用）
+     */
+    public static String fromFileName(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .map(MediaType::toString)
+                .orElse(OCTET_STREAM);
+    }
+
+    /**
+     * 不含 NUL 且是合法 UTF-8 的内容视为文本（文件头可能截断在多字节字符中间，读满时不检查末尾）
+     */
+    private static boolean isText(byte[] header, int length) {
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (header[i] == 0) {
+                return false;
+            }
+        }
+        CoderResult result = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(header, 0, length), CharBuffer.allocate(length), length < HEADER_SIZE);
+        return !result.isError();
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        return matches(header, length, 0, signature);
+    }
+
+    private static boolean matches(byte[] header, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex == -1 ? "" : fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+}
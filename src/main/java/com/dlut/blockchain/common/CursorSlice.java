@@ -0,0 +1,56 @@
+package com.dlut.blockchain.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Window;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 与 Page 不同，不包含精确总数，翻页不需要额外的 COUNT 查询
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSlice<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 当前批次数据
+     */
+    private List<T> content;
+
+    /**
+     * 当前批次数量
+     */
+    private int size;
+
+    /**
+     * 是否还有下一批
+     */
+    private boolean hasNext;
+
+    /**
+     * 下一批的游标，作为 after 参数回传
+     */
+    private String nextCursor;
+
+    /**
+     * 近似总数（仅在请求 withTotal 时返回，来自缓存）
+     */
+    private Long approximateTotal;
+
+    /**
+     * 从 Window 构造游标分页结果
+     */
+    public static <T> CursorSlice<T> of(Window<T> window, Long approximateTotal) {
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? KeysetCursor.encode(window.positionAt(window.size() - 1))
+                : null;
+        return new CursorSlice<>(window.getContent(), window.size(), window.hasNext(), nextCursor, approximateTotal);
+    }
+}
@@ -0,0 +1,51 @@
+package com.dlut.blockchain.common;
+
+import com.dlut.blockchain.config.PaginationProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 流式 JSON 写出工具
+ * 逐条将实体转换为 DTO 写入响应，每批刷新输出并清空持久化上下文，内存占用与总行数无关
+ * 必须在只读事务内调用，保证数据库游标在写出期间保持打开
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonStreamWriter {
+
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final PaginationProperties paginationProperties;
+
+    /**
+     * 以 JSON 数组形式写出实体流
+     *
+     * @return 写出的条数
+     */
+    public <E, D> long writeArray(Stream<E> entities, Function<E, D> converter, OutputStream out) throws IOException {
+        int batchSize = paginationProperties.getStreamBatchSize();
+        long count = 0;
+        try (entities; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Iterator<E> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(converter.apply(iterator.next()));
+                if (++count % batchSize == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,137 @@
+package com.dlut.blockchain.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 键集分页游标工具类
+ * 将 KeysetScrollPosition 编码为不透明的 URL 安全字符串，并在下一次请求时还原
+ */
+public final class KeysetCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final TypeReference<LinkedHashMap<String, String>> KEYS_TYPE = new TypeReference<>() {};
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * 构造键集排序：排序字段 + id 作为唯一性兜底，保证游标位置稳定
+     * 键集条件 (sortBy, id) > (?, ?) 遇到 NULL 时不成立，排序字段必须是非空列
+     *
+     * @throws IllegalArgumentException 排序字段不存在或允许为空
+     */
+    public static Sort sortWithTiebreaker(Class<?> entityType, Sort.Direction direction, String sortBy) {
+        Field field = ReflectionUtils.findField(entityType, sortBy);
+        if (field == null) {
+            throw new IllegalArgumentException("无效的排序字段: " + sortBy);
+        }
+        Column column = field.getAnnotation(Column.class);
+        if (!field.isAnnotationPresent(Id.class) && (column == null || column.nullable())) {
+            throw new IllegalArgumentException("游标分页只支持非空的排序字段: " + sortBy);
+        }
+        if ("id".equals(sortBy)) {
+            return Sort.by(direction, "id");
+        }
+        return Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * 编码游标
+     */
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset) || keyset.isInitial()) {
+            return null;
+        }
+        Map<String, String> keys = new LinkedHashMap<>();
+        keyset.getKeys().forEach((property, value) -> keys.put(property, value == null ? null : value.toString()));
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(keys);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("游标编码失败", e);
+        }
+    }
+
+    /**
+     * 解码游标，空游标表示从第一条开始
+     *
+     * @param cursor     客户端回传的游标
+     * @param entityType 实体类型，用于还原排序字段的值类型
+     * @param sort       本次请求的排序，游标中的字段必须与之一致
+     * @throws IllegalArgumentException 游标格式非法或与排序不匹配
+     */
+    public static ScrollPosition decode(String cursor, Class<?> entityType, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, String> raw;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            raw = MAPPER.readValue(new String(json, StandardCharsets.UTF_8), KEYS_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        List<String> sortProperties = sort.stream().map(Sort.Order::getProperty).toList();
+        if (!new ArrayList<>(raw.keySet()).equals(sortProperties)) {
+            throw new IllegalArgumentException("分页游标与排序条件不匹配");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        raw.forEach((property, value) -> keys.put(property, convert(entityType, property, value)));
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * 按实体字段类型还原游标中的值
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(Class<?> entityType, String property, String value) {
+        Field field = ReflectionUtils.findField(entityType, property);
+        if (field == null) {
+            throw new IllegalArgumentException("无效的分页游标字段: " + property);
+        }
+        if (value == null) {
+            return null;
+        }
+        Class<?> type = field.getType();
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            } else if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            } else if (type == Double.class || type == double.class) {
+                return Double.valueOf(value);
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Boolean.valueOf(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(value);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        throw new IllegalArgumentException("不支持的游标排序字段: " + property);
+    }
+}
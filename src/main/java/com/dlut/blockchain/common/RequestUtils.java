@@ -0,0 +1,21 @@
+package com.dlut.blockchain.common;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 请求信息工具类
+ */
+public final class RequestUtils {
+
+    private RequestUtils() {
+    }
+
+    /**
+     * 获取客户端IP地址
+     * X-Forwarded-For 由 RemoteIpValve（server.forward-headers-strategy=native）处理，
+     * 只有请求来自受信任代理时才会替换 remoteAddr，这里不直接读取客户端可伪造的请求头
+     */
+    public static String getClientIpAddress(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
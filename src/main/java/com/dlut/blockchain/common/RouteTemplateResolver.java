@@ -0,0 +1,72 @@
+package com.dlut.blockchain.common;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 把请求解析为路由模板（如 /api/posts/{id}），用作指标的端点标签
+ * 优先使用 Spring MVC 匹配到的路由模板；调用方直接传入实际路径时，把 ID 类路径段替换为 {id}
+ */
+public final class RouteTemplateResolver {
+
+    /**
+     * 没有匹配到处理器的请求（如 404）统一记在该端点下，实际路径不可控，不作为标签
+     */
+    public static final String UNMATCHED = "UNMATCHED";
+
+    /**
+     * 非标准的 HTTP 方法统一记为该值
+     */
+    public static final String OTHER_METHOD = "OTHER";
+
+    private static final Set<String> HTTP_METHODS =
+            Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE");
+
+    /**
+     * 数字、UUID、十六进制哈希（16位以上）视为 ID
+     */
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9a-fA-F]{16,}");
+
+    private RouteTemplateResolver() {
+    }
+
+    /**
+     * 获取请求匹配到的路由模板，未匹配到处理器时返回 UNMATCHED
+     */
+    public static String resolve(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof String template ? template : UNMATCHED;
+    }
+
+    /**
+     * 获取请求的 HTTP 方法，非标准方法返回 OTHER
+     */
+    public static String method(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HTTP_METHODS.contains(method) ? method : OTHER_METHOD;
+    }
+
+    /**
+     * 规范化端点：去掉查询参数，把 ID 类路径段替换为 {id}；已经是路由模板的端点原样返回
+     */
+    public static String normalize(String endpoint) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            return UNMATCHED;
+        }
+        int queryIndex = endpoint.indexOf('?');
+        String path = queryIndex == -1 ? endpoint : endpoint.substring(0, queryIndex);
+        String[] segments = path.split("/", -1);
+        boolean changed = queryIndex != -1;
+        for (int i = 0; i < segments.length; i++) {
+            if (ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+                changed = true;
+            }
+        }
+        return changed ? String.join("/", segments) : endpoint;
+    }
+}
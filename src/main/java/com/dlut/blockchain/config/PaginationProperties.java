@@ -0,0 +1,62 @@
+package com.dlut.blockchain.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分页限制配置
+ * 所有列表接口统一由服务端限制单次返回条数，避免一次性加载整张表
+ */
+@Getter
+@Component
+public class PaginationProperties {
+
+    /**
+     * 列表接口通过该响应头告知是否还有下一页
+     */
+    public static final String HAS_NEXT_HEADER = "X-Has-Next";
+
+    /**
+     * 分页接口单页最大条数
+     */
+    @Value("${pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    /**
+     * 不分页的列表接口最多返回的条数
+     */
+    @Value("${pagination.max-list-size:200}")
+    private int maxListSize;
+
+    /**
+     * 流式导出每批写出的条数
+     */
+    @Value("${pagination.stream-batch-size:200}")
+    private int streamBatchSize;
+
+    /**
+     * 限制单页条数
+     */
+    public int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    /**
+     * 构造受限的分页请求
+     */
+    public Pageable pageRequest(int page, int size, Sort sort) {
+        return PageRequest.of(Math.max(page, 0), clampPageSize(size), sort);
+    }
+
+    /**
+     * 构造列表接口的分页请求，未指定条数时取 maxListSize 条，且不超过 maxListSize
+     */
+    public Pageable listRequest(int page, Integer size, Sort sort) {
+        int limit = size == null ? maxListSize : Math.max(1, Math.min(size, maxListSize));
+        return PageRequest.of(Math.max(page, 0), limit, sort);
+    }
+}
@@ -1,8 +1,16 @@
 package com.dlut.blockchain.config;
 
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import com.dlut.blockchain.logging.RateLimitingTurboFilter;
 import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.web.exchanges.HttpExchangeRepository;
 import org.springframework.boot.actuate.web.exchanges.InMemoryHttpExchangeRepository;
 import org.springframework.context.annotation.Bean;
@@ -48,13 +56,43 @@ public class PerformanceConfig {
     }
 
     /**
-     * 配置简单的计量注册表
-     * 用于收集和存储性能指标
+     * 限制每个指标每个标签的取值数，超出上限的取值归入 OTHER
      * 
-     * @return SimpleMeterRegistry实例
+     * @param maxTagValues 每个标签的最大取值数
+     * @return MeterFilter实例
      */
     @Bean
-    public SimpleMeterRegistry simpleMeterRegistry() {
-        return new SimpleMeterRegistry();
+    public MeterFilter tagCardinalityFilter(@Value("${performance.metrics.max-tag-values:200}") int maxTagValues) {
+        return new TagCardinalityFilter(maxTagValues);
     }
-}
\ No newline at end of file
+
+    /**
+     * 日志限流和异步队列指标
+     * logging.events.suppressed：被限流丢弃的日志条数；logging.async.queue.remaining：异步队列剩余容量，为 0 时新日志被丢弃
+     * 
+     * @return MeterBinder实例
+     */
+    @Bean
+    public MeterBinder loggingMetrics() {
+        return registry -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+                return;
+            }
+            context.getTurboFilterList().stream()
+                    .filter(RateLimitingTurboFilter.class::isInstance)
+                    .map(RateLimitingTurboFilter.class::cast)
+                    .forEach(filter -> FunctionCounter.builder("logging.events.suppressed", filter,
+                                    RateLimitingTurboFilter::getSuppressed)
+                            .description("Log events dropped by the rate limiting filter")
+                            .register(registry));
+            context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).iteratorForAppenders().forEachRemaining(appender -> {
+                if (appender instanceof AsyncAppender async) {
+                    Gauge.builder("logging.async.queue.remaining", async, AsyncAppender::getRemainingCapacity)
+                            .description("Remaining capacity of the async logging queue")
+                            .tag("appender", async.getName())
+                            .register(registry);
+                }
+            });
+        };
+    }
+}
@@ -1,14 +1,20 @@
 package com.dlut.blockchain.config;
 
+import com.dlut.blockchain.controller.AuthController;
+import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -65,7 +71,8 @@ public class SecurityConfig {
 
     /**
      * 安全配置 - 极简版本
-     * 完全移除了认证机制，允许所有请求访问
+     * 完全移除了认证机制，除管理操作外允许所有请求访问；
+     * JFR 导出（包含进程信息）、存储迁移、垃圾回收、用量校准和任务重试只允许已登录的管理员（Session 登录状态）
      */
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -73,6 +80,16 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authz -> authz
+                        .requestMatchers("/api/performance/jfr/dump").access(adminSession())
+                        // 存储迁移会复制并可删除源存储中的文件
+                        .requestMatchers(HttpMethod.POST, "/api/files/storage/migrations").access(adminSession())
+                        .requestMatchers(HttpMethod.DELETE, "/api/files/storage/migrations").access(adminSession())
+                        // 垃圾回收会删除存储中的文件
+                        .requestMatchers(HttpMethod.POST, "/api/files/storage/gc").access(adminSession())
+                        // 用量校准会全表扫描文件记录
+                        .requestMatchers(HttpMethod.POST, "/api/files/usage/reconcile").access(adminSession())
+                        // 重试会重新执行文件后处理任务
+                        .requestMatchers(HttpMethod.POST, "/api/files/jobs/*/retry").access(adminSession())
                         .anyRequest().permitAll()  // 允许所有请求，无需认证
                 )
                 .headers(headers -> headers.frameOptions(frameOptions -> frameOptions.sameOrigin())); // 更安全地设置frame options
@@ -80,4 +97,15 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * 只允许已登录的管理员（Session 登录状态）访问
+     */
+    private static AuthorizationManager<RequestAuthorizationContext> adminSession() {
+        return (authentication, context) -> {
+            HttpSession session = context.getRequest().getSession(false);
+            return new AuthorizationDecision(session != null
+                    && Boolean.TRUE.equals(session.getAttribute(AuthController.ADMIN_SESSION_KEY)));
+        };
+    }
+
 }
\ No newline at end of file
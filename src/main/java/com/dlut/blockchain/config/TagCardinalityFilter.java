@@ -0,0 +1,74 @@
+package com.dlut.blockchain.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限制每个指标每个标签的取值数
+ * 同名指标的某个标签出现的不同取值超过上限后，新的取值统一改为 OTHER，记入同一条时间序列；
+ * 已出现过的取值不受影响。避免动态标签（路径、表名等）让时间序列和内存无限增长
+ */
+@Slf4j
+public class TagCardinalityFilter implements MeterFilter {
+
+    /**
+     * 超出上限的取值归入的溢出桶
+     */
+    public static final String OVERFLOW = "OTHER";
+
+    private final int maxValues;
+
+    /**
+     * 指标名 -> 标签名 -> 已接受的取值
+     */
+    private final Map<String, Map<String, Set<String>>> accepted = new ConcurrentHashMap<>();
+
+    public TagCardinalityFilter(int maxValues) {
+        this.maxValues = maxValues;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        List<Tag> tags = id.getTags();
+        if (tags.isEmpty()) {
+            return id;
+        }
+        Map<String, Set<String>> tagValues = accepted.computeIfAbsent(id.getName(), key -> new ConcurrentHashMap<>());
+        List<Tag> mapped = null;
+        for (int i = 0; i < tags.size(); i++) {
+            Tag tag = tags.get(i);
+            if (!accept(id.getName(), tagValues, tag)) {
+                if (mapped == null) {
+                    mapped = new ArrayList<>(tags);
+                }
+                mapped.set(i, Tag.of(tag.getKey(), OVERFLOW));
+            }
+        }
+        return mapped == null ? id : id.replaceTags(mapped);
+    }
+
+    private boolean accept(String meterName, Map<String, Set<String>> tagValues, Tag tag) {
+        Set<String> values = tagValues.computeIfAbsent(tag.getKey(), key -> ConcurrentHashMap.newKeySet());
+        if (values.contains(tag.getValue())) {
+            return true;
+        }
+        synchronized (values) {
+            if (values.size() < maxValues) {
+                values.add(tag.getValue());
+                return true;
+            }
+        }
+        if (values.add(OVERFLOW)) {
+            log.warn("指标 {} 的标签 {} 取值数已达上限 {}，新的取值记为 {}", meterName, tag.getKey(), maxValues, OVERFLOW);
+        }
+        return false;
+    }
+}
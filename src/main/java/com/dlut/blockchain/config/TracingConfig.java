@@ -0,0 +1,61 @@
+package com.dlut.blockchain.config;
+
+import com.dlut.blockchain.tracing.InMemorySpanExporter;
+import com.dlut.blockchain.tracing.TailSamplingSpanProcessor;
+import io.lettuce.core.tracing.MicrometerTracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.tracing.ConditionalOnEnabledTracing;
+import org.springframework.boot.actuate.autoconfigure.tracing.SpanProcessors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 链路追踪配置
+ * HTTP 请求、Controller/Service/Repository 方法、JDBC 语句和 Redis 命令都会生成 span，
+ * 通过 W3C traceparent 头传播；链路在本服务结束后按尾部采样决定是否导出
+ */
+@Configuration
+@ConditionalOnEnabledTracing
+public class TracingConfig {
+
+    /**
+     * 在默认的批量导出前加一层尾部采样
+     *
+     * @param otelSpanProcessor Spring Boot 创建的批量导出处理器（导出到 OTLP 及所有 SpanExporter）
+     */
+    @Bean
+    public SpanProcessors spanProcessors(BatchSpanProcessor otelSpanProcessor,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${tracing.tail-sampling.slow-threshold:1s}") Duration slowThreshold,
+                                         @Value("${tracing.tail-sampling.probability:0.01}") double probability,
+                                         @Value("${tracing.tail-sampling.max-traces:10000}") int maxTraces,
+                                         @Value("${tracing.tail-sampling.trace-timeout:1m}") Duration traceTimeout) {
+        return SpanProcessors.of(new TailSamplingSpanProcessor(otelSpanProcessor, slowThreshold, probability,
+                maxTraces, traceTimeout, meterRegistry));
+    }
+
+    /**
+     * 内存导出器，保留最近采样到的 span，可通过 /api/performance/traces 查看
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.in-memory.enabled", havingValue = "true")
+    public InMemorySpanExporter inMemorySpanExporter(@Value("${tracing.in-memory.capacity:5000}") int capacity) {
+        return new InMemorySpanExporter(capacity);
+    }
+
+    /**
+     * Redis 命令的 span
+     */
+    @Bean
+    public ClientResourcesBuilderCustomizer lettuceTracing(ObservationRegistry observationRegistry,
+                                                           @Value("${spring.application.name}") String applicationName) {
+        return builder -> builder.tracing(new MicrometerTracing(observationRegistry, applicationName));
+    }
+}
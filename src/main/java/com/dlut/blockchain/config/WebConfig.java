@@ -1,8 +1,11 @@
 package com.dlut.blockchain.config;
 
+import com.dlut.blockchain.interceptor.ApiMetricsInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -10,10 +13,10 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * Web配置类
  */
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
-    @Value("${file.upload.path:uploads/}")
-    private String uploadPath;
+    private final ApiMetricsInterceptor apiMetricsInterceptor;
 
     @Value("${cors.allowed-origins:http://localhost:3000,http://127.0.0.1:3000}")
     private String allowedOrigins;
@@ -39,20 +42,25 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns(allowedOrigins.split(","))
                 .allowedMethods(allowedMethods.split(","))
                 .allowedHeaders(allowedHeaders.split(","))
+                .exposedHeaders(PaginationProperties.HAS_NEXT_HEADER)
                 .allowCredentials(allowCredentials)
                 .maxAge(maxAge);
     }
 
+    /**
+     * 记录API请求的响应时间
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(apiMetricsInterceptor).addPathPatterns("/api/**");
+    }
+
     /**
      * 配置静态资源映射
+     * 上传目录不直接映射为静态资源，文件只能通过 /api/files/download 下载，由其检查删除和处理状态
      */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 配置文件上传目录的静态资源映射
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadPath)
-                .setCachePeriod(3600); // 缓存1小时
-        
         // 配置Swagger UI静态资源
         registry.addResourceHandler("/swagger-ui/**")
                 .addResourceLocations("classpath:/META-INF/resources/webjars/swagger-ui/")
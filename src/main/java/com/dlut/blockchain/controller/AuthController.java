@@ -24,7 +24,10 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
-    private static final String ADMIN_SESSION_KEY = "admin_logged_in";
+    /**
+     * Session 中标记管理员已登录的属性（SecurityConfig 据此限制管理接口）
+     */
+    public static final String ADMIN_SESSION_KEY = "admin_logged_in";
 
     /**
      * 管理员登录 - 极简版本
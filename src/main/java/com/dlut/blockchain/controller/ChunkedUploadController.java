@@ -0,0 +1,121 @@
+package com.dlut.blockchain.controller;
+
+import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.dto.UploadInitRequest;
+import com.dlut.blockchain.dto.UploadSessionDto;
+import com.dlut.blockchain.exception.QuotaExceededException;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.service.ChunkedUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 分片上传控制器
+ * 流程：初始化会话 → 并行 PUT 分片（请求体为分片原始字节）→ 合并；中断后可查询进度续传
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/files/uploads")
+@RequiredArgsConstructor
+@Tag(name = "分片上传", description = "大文件分片、断点续传上传接口")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    /**
+     * 初始化分片上传
+     */
+    @PostMapping
+    @Operation(summary = "初始化分片上传", description = "创建上传会话，返回上传ID和分片大小")
+    public ResponseEntity<Result<UploadSessionDto>> initUpload(@Valid @RequestBody UploadInitRequest request)
+            throws IOException {
+        log.info("初始化分片上传请求: {}, 大小: {} bytes", request.getFileName(), request.getTotalSize());
+        UploadSessionDto session = chunkedUploadService.initUpload(request, getCurrentUsername());
+        return ResponseEntity.status(HttpStatus.CREATED).body(Result.success(session));
+    }
+
+    /**
+     * 上传分片
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    @Operation(summary = "上传分片", description = "请求体为分片原始字节，可通过 X-Chunk-Sha256 请求头校验分片内容")
+    public ResponseEntity<Result<Map<String, Object>>> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-Sha256", required = false) String chunkSha256,
+            HttpServletRequest request) throws IOException {
+        Map<String, Object> chunk = chunkedUploadService.uploadChunk(uploadId, index, request.getInputStream(), chunkSha256);
+        return ResponseEntity.ok(Result.success(chunk));
+    }
+
+    /**
+     * 查询上传进度
+     */
+    @GetMapping("/{uploadId}")
+    @Operation(summary = "查询上传进度", description = "返回已接收的分片序号，用于断点续传")
+    public ResponseEntity<Result<UploadSessionDto>> getUploadStatus(@PathVariable String uploadId) {
+        return ResponseEntity.ok(Result.success(chunkedUploadService.getUploadStatus(uploadId)));
+    }
+
+    /**
+     * 完成上传
+     */
+    @PostMapping("/{uploadId}/complete")
+    @Operation(summary = "完成分片上传", description = "校验整个文件并生成文件记录，重复调用返回同一结果")
+    public ResponseEntity<Result<UploadSessionDto>> completeUpload(
+            @PathVariable String uploadId,
+            @RequestParam(required = false) String sha256) throws IOException {
+        log.info("完成分片上传请求: {}", uploadId);
+        return ResponseEntity.ok(Result.success(chunkedUploadService.completeUpload(uploadId, sha256)));
+    }
+
+    /**
+     * 取消上传
+     */
+    @DeleteMapping("/{uploadId}")
+    @Operation(summary = "取消分片上传", description = "删除上传会话和已上传的分片")
+    public ResponseEntity<Result<Void>> abortUpload(@PathVariable String uploadId) {
+        chunkedUploadService.abortUpload(uploadId);
+        return ResponseEntity.ok(Result.success(null));
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<Result<Void>> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.notFound(e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Result<Void>> handleBadRequest(IllegalArgumentException e) {
+        log.warn("分片上传参数错误: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(Result.badRequest(e.getMessage()));
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<Result<Void>> handleQuotaExceeded(QuotaExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Result.error(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Result<Void>> handleConflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Result.error(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+
+    /**
+     * 获取当前用户名（需要从SecurityContext获取）
+     */
+    private String getCurrentUsername() {
+        // 暂时返回一个默认值，与普通上传一致
+        return "system";
+    }
+}
@@ -1,26 +1,41 @@
 package com.dlut.blockchain.controller;
 
+import com.dlut.blockchain.common.ContentTypeDetector;
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
 import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.FileUploadDto;
+import com.dlut.blockchain.dto.FileUsageDto;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.exception.QuotaExceededException;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.service.FileDownloadCounter;
+import com.dlut.blockchain.service.FileDownloadService;
+import com.dlut.blockchain.service.FileMetadataCache;
 import com.dlut.blockchain.service.FileStorageService;
+import com.dlut.blockchain.service.FileUsageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 文件上传下载控制器
@@ -32,7 +47,18 @@ import java.util.Map;
 @Tag(name = "文件管理", description = "文件上传下载相关接口")
 public class FileController {
 
+    /**
+     * 去重存储的文件内容按校验和保存，同一文件名的内容永不改变；
+     * 文件可能被移入回收站，只允许浏览器缓存，不允许 CDN 等共享缓存长期保存
+     */
+    private static final CacheControl CONTENT_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
     private final FileStorageService fileStorageService;
+    private final FileDownloadService fileDownloadService;
+    private final FileDownloadCounter fileDownloadCounter;
+    private final FileMetadataCache fileMetadataCache;
+    private final FileUsageService fileUsageService;
+    private final PaginationProperties paginationProperties;
 
     /**
      * 上传文件
@@ -53,33 +79,51 @@ public class FileController {
 
     /**
      * 下载文件
+     * 支持 Range 断点续传和条件请求
      */
     @GetMapping("/download/{fileName:.+}")
-    @Operation(summary = "下载文件", description = "从服务器下载文件")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
+    @Operation(summary = "下载文件", description = "从服务器下载文件，支持 Range 断点续传")
+    public void downloadFile(@PathVariable String fileName, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
         log.info("文件下载请求: {}", fileName);
-        
-        // Load file as Resource
-        Resource resource = fileStorageService.loadFileAsResource(fileName);
-        
-        // Try to determine file's content type
-        String contentType = "application/octet-stream";
+
+        // 文件记录来自本地缓存，命中时下载过程不查询数据库
+        FileMetadataCache.FileMetadata fileInfo = fileMetadataCache.get(fileName).orElse(null);
+        String contentType = fileInfo != null ? fileInfo.contentType() : ContentTypeDetector.fromFileName(fileName);
+        String downloadName = fileInfo != null && fileInfo.originalName() != null ? fileInfo.originalName() : fileName;
+        FileStorageService.DownloadTarget target;
         try {
-            contentType = determineContentType(fileName);
-        } catch (Exception ex) {
-            log.info("无法确定文件类型: {}", fileName);
+            target = fileStorageService.resolveDownload(fileName, fileInfo, downloadName, contentType);
+        } catch (ResourceNotFoundException e) {
+            log.warn(e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        } catch (IllegalStateException e) {
+            // 病毒扫描等后台处理完成前不提供下载
+            log.info(e.getMessage());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
         }
-        
-        // 增加下载次数
-        FileUploadDto fileInfo = fileStorageService.getFileInfoByFileName(fileName);
-        if (fileInfo != null) {
-            fileStorageService.incrementDownloadCount(fileInfo.getId());
+
+        boolean newDownload;
+        if (target.redirect() != null) {
+            // 对象存储中的文件重定向到预签名地址，由存储直接提供下载
+            response.sendRedirect(target.redirect().toString());
+            newDownload = request.getHeader(HttpHeaders.RANGE) == null;
+        } else {
+            if (fileInfo != null && fileInfo.checksum() != null
+                    && fileInfo.processingStatus() == FileUpload.ProcessingStatus.READY) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CONTENT_CACHE.getHeaderValue());
+            }
+            newDownload = fileDownloadService.serve(target.file(), downloadName, contentType,
+                    fileInfo != null ? fileInfo.checksum() : null, request, response);
+        }
+
+        // 增加下载次数（续传和缓存命中不重复计数），在内存中累加后定时写回
+        if (newDownload && fileInfo != null) {
+            fileDownloadCounter.recordDownload(fileInfo.id());
         }
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
     }
 
     /**
@@ -94,11 +138,32 @@ public class FileController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<FileUploadDto> files = fileStorageService.getAllFiles(pageable);
         return ResponseEntity.ok(files);
     }
 
+    /**
+     * 游标分页获取文件（携带 after 参数时生效，after 为空表示第一批）
+     */
+    @GetMapping(params = "after")
+    @Operation(summary = "游标分页获取文件", description = "按上一批返回的 nextCursor 继续获取文件，不执行 COUNT 查询")
+    public ResponseEntity<CursorSlice<FileUploadDto>> scrollFiles(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        try {
+            CursorSlice<FileUploadDto> slice = fileStorageService.scrollFiles(after, size, KeysetCursor.sortWithTiebreaker(FileUpload.class, direction, sortBy), withTotal);
+            return ResponseEntity.ok(slice);
+        } catch (IllegalArgumentException e) {
+            log.warn("游标分页参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 根据分类获取文件
      */
@@ -122,7 +187,7 @@ public class FileController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<FileUploadDto> files = fileStorageService.searchFiles(keyword, pageable);
         return ResponseEntity.ok(files);
     }
@@ -183,6 +248,34 @@ public class FileController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * 获取回收站中的文件
+     */
+    @GetMapping("/trash")
+    // @PreAuthorize("hasRole('ADMIN')") // 移除权限注解
+    @Operation(summary = "获取回收站文件", description = "分页获取已删除、尚未永久删除的文件（隐藏入口访问）")
+    public ResponseEntity<Page<FileUploadDto>> getDeletedFiles(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.unsorted());
+        return ResponseEntity.ok(fileStorageService.getDeletedFiles(pageable));
+    }
+
+    /**
+     * 从回收站恢复文件
+     */
+    @PostMapping("/{id}/restore")
+    // @PreAuthorize("hasRole('ADMIN')") // 移除权限注解
+    @Operation(summary = "恢复文件", description = "恢复回收站中尚未永久删除的文件（隐藏入口访问）")
+    public ResponseEntity<Result<FileUploadDto>> restoreFile(@PathVariable Long id) {
+        log.info("恢复文件请求: {}", id);
+        try {
+            return ResponseEntity.ok(Result.success(fileStorageService.restoreFile(id)));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.notFound(e.getMessage()));
+        }
+    }
+
     /**
      * 获取文件统计信息
      */
@@ -191,23 +284,22 @@ public class FileController {
     @Operation(summary = "获取文件统计", description = "获取文件上传和下载统计信息（隐藏入口访问）")
     public ResponseEntity<Result<Map<String, Object>>> getFileStatistics() {
         Map<String, Object> statistics = new HashMap<>();
+        // 总数、大小和下载次数读取用量汇总行，不做全表聚合
+        FileUsageDto usage = fileUsageService.getTotal();
         
         // 总文件数
-        long totalFiles = fileStorageService.getTotalFileCount();
-        statistics.put("totalFiles", totalFiles);
+        statistics.put("totalFiles", usage.getFileCount());
         
         // 总文件大小
-        long totalSize = fileStorageService.getTotalFileSize();
-        statistics.put("totalSize", totalSize);
-        statistics.put("totalSizeFormatted", formatFileSize(totalSize));
+        statistics.put("totalSize", usage.getTotalSize());
+        statistics.put("totalSizeFormatted", formatFileSize(usage.getTotalSize()));
         
         // 按分类统计
-        Map<String, Long> filesByCategory = fileStorageService.getFileCountByCategory();
+        Map<String, Long> filesByCategory = fileUsageService.getFileCountByCategory();
         statistics.put("filesByCategory", filesByCategory);
         
         // 总下载次数
-        long totalDownloads = fileStorageService.getTotalDownloadCount();
-        statistics.put("totalDownloads", totalDownloads);
+        statistics.put("totalDownloads", usage.getDownloadCount());
         
         // 最近上传的文件数（最近30天）
         long recentUploads = fileStorageService.getRecentUploadCount(30);
@@ -226,53 +318,10 @@ public class FileController {
         return String.format("%.1f %s", size / Math.pow(1024, digitGroups), units[digitGroups]);
     }
 
-    /**
-     * 确定文件内容类型
-     */
-    private String determineContentType(String fileName) {
-        String extension = getFileExtension(fileName);
-        switch (extension.toLowerCase()) {
-            case "jpg":
-            case "jpeg":
-                return "image/jpeg";
-            case "png":
-                return "image/png";
-            case "gif":
-                return "image/gif";
-            case "pdf":
-                return "application/pdf";
-            case "doc":
-                return "application/msword";
-            case "docx":
-                return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-            case "xls":
-                return "application/vnd.ms-excel";
-            case "xlsx":
-                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-            case "ppt":
-                return "application/vnd.ms-powerpoint";
-            case "pptx":
-                return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
-            case "txt":
-                return "text/plain";
-            case "zip":
-                return "application/zip";
-            case "rar":
-                return "application/x-rar-compressed";
-            default:
-                return "application/octet-stream";
-        }
-    }
-
-    /**
-     * 获取文件扩展名
-     */
-    private String getFileExtension(String fileName) {
-        int lastDotIndex = fileName.lastIndexOf('.');
-        if (lastDotIndex == -1) {
-            return "";
-        }
-        return fileName.substring(lastDotIndex + 1);
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<Result<Void>> handleQuotaExceeded(QuotaExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Result.error(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage()));
     }
 
     /**
@@ -0,0 +1,74 @@
+package com.dlut.blockchain.controller;
+
+import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.dto.FileJobDto;
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.service.FileJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 文件后台处理任务控制器
+ * 查看任务状态、死信任务，并手动重新执行
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/files/jobs")
+@RequiredArgsConstructor
+@Tag(name = "文件处理任务", description = "上传后缩略图、预压缩、文本提取、病毒扫描等后台任务接口")
+public class FileJobController {
+
+    private final FileJobService fileJobService;
+
+    /**
+     * 按状态分页查询任务
+     */
+    @GetMapping
+    @Operation(summary = "查询处理任务", description = "按状态分页查询，默认返回死信任务")
+    public ResponseEntity<Result<Page<FileJobDto>>> getJobs(
+            @RequestParam(defaultValue = "DEAD") FileJob.JobStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        PageRequest pageable = PageRequest.of(page, Math.min(size, 100), Sort.by(Sort.Direction.DESC, "updatedAt"));
+        return ResponseEntity.ok(Result.success(fileJobService.getJobs(status, pageable)));
+    }
+
+    /**
+     * 查询文件的处理任务
+     */
+    @GetMapping("/file/{fileId}")
+    @Operation(summary = "查询文件的处理任务", description = "返回文件的所有后台处理任务及其状态")
+    public ResponseEntity<Result<List<FileJobDto>>> getFileJobs(@PathVariable Long fileId) {
+        return ResponseEntity.ok(Result.success(fileJobService.getFileJobs(fileId)));
+    }
+
+    /**
+     * 重新执行死信任务
+     */
+    @PostMapping("/{id}/retry")
+    @Operation(summary = "重新执行任务", description = "把死信任务放回队列，重新计算重试次数")
+    public ResponseEntity<Result<FileJobDto>> retryJob(@PathVariable Long id) {
+        return ResponseEntity.ok(Result.success(fileJobService.retry(id)));
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<Result<Void>> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.notFound(e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Result<Void>> handleConflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Result.error(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.dlut.blockchain.controller;
+
+import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.dto.FileUsageDto;
+import com.dlut.blockchain.entity.FileUsage;
+import com.dlut.blockchain.service.FileUsageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件存储用量控制器
+ * 查看总计、分类和上传者的用量，手动触发校准
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/files/usage")
+@RequiredArgsConstructor
+@Tag(name = "文件存储用量", description = "存储用量、配额和校准接口")
+public class FileUsageController {
+
+    private final FileUsageService fileUsageService;
+
+    /**
+     * 获取用量汇总
+     */
+    @GetMapping
+    @Operation(summary = "获取用量汇总", description = "返回总用量以及按分类、上传者的用量（隐藏入口访问）")
+    public ResponseEntity<Result<Map<String, Object>>> getUsage() {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("total", fileUsageService.getTotal());
+        usage.put("categories", fileUsageService.getUsage(FileUsage.UsageScope.CATEGORY));
+        usage.put("uploaders", fileUsageService.getUsage(FileUsage.UsageScope.UPLOADER));
+        return ResponseEntity.ok(Result.success(usage));
+    }
+
+    /**
+     * 按维度获取用量
+     */
+    @GetMapping("/{scope}")
+    @Operation(summary = "按维度获取用量", description = "按占用空间降序返回某一维度的用量")
+    public ResponseEntity<Result<List<FileUsageDto>>> getUsage(@PathVariable FileUsage.UsageScope scope) {
+        return ResponseEntity.ok(Result.success(fileUsageService.getUsage(scope)));
+    }
+
+    /**
+     * 获取上传者的用量和配额
+     */
+    @GetMapping("/uploaders/{uploadedBy}")
+    @Operation(summary = "获取上传者用量", description = "返回上传者的用量、未完成的分片上传大小和配额")
+    public ResponseEntity<Result<Map<String, Object>>> getUploaderUsage(@PathVariable String uploadedBy) {
+        return ResponseEntity.ok(Result.success(fileUsageService.getUploaderUsage(uploadedBy)));
+    }
+
+    /**
+     * 校准用量
+     */
+    @PostMapping("/reconcile")
+    @Operation(summary = "校准用量", description = "按文件记录重新计算用量汇总并修正偏差（隐藏入口访问）")
+    public ResponseEntity<Result<Map<String, Object>>> reconcile() {
+        log.info("手动校准文件存储用量");
+        return ResponseEntity.ok(Result.success(fileUsageService.reconcile()));
+    }
+}
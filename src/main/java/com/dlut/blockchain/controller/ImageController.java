@@ -0,0 +1,98 @@
+package com.dlut.blockchain.controller;
+
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.service.FileStorageService;
+import com.dlut.blockchain.service.ImageVariantService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片控制器
+ * 按宽度返回缩小后的图片（头像、项目图片、文章封面等），减少页面加载体积
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/images")
+@RequiredArgsConstructor
+@Tag(name = "图片", description = "图片缩略图接口")
+public class ImageController {
+
+    private final FileStorageService fileStorageService;
+    private final ImageVariantService imageVariantService;
+
+    /**
+     * 根据文件ID获取缩略图
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "获取缩略图", description = "按宽度档位返回缩略图，客户端接受 WebP 且服务端支持时返回 WebP")
+    public ResponseEntity<Resource> getImage(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "640") int w,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             WebRequest webRequest) throws IOException {
+        return serve(fileStorageService.getImageVariant(id, w, acceptsWebp(accept)), webRequest);
+    }
+
+    /**
+     * 根据文件名获取缩略图
+     */
+    @GetMapping("/name/{fileName:.+}")
+    @Operation(summary = "根据文件名获取缩略图", description = "与 /api/files/download/{fileName} 使用相同的文件名")
+    public ResponseEntity<Resource> getImageByFileName(@PathVariable String fileName,
+                                                       @RequestParam(defaultValue = "640") int w,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                       WebRequest webRequest) throws IOException {
+        return serve(fileStorageService.getImageVariantByFileName(fileName, w, acceptsWebp(accept)), webRequest);
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<Void> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleBadRequest(IllegalArgumentException e) {
+        log.warn("缩略图请求参数错误: {}", e.getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Void> handleUnavailable(IllegalStateException e) {
+        log.warn("缩略图暂不可用: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+    }
+
+    /**
+     * 缩略图按内容生成，内容不变则结果不变，允许客户端和 CDN 长时间缓存
+     */
+    private ResponseEntity<Resource> serve(Path variant, WebRequest webRequest) {
+        String etag = "\"" + variant.getParent().getFileName() + "-" + variant.getFileName() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(imageVariantService.contentType(variant)))
+                .cacheControl(CacheControl.maxAge(7, TimeUnit.DAYS).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(etag)
+                .body(new FileSystemResource(variant));
+    }
+
+    private boolean acceptsWebp(String accept) {
+        return accept != null && accept.contains("image/webp");
+    }
+}
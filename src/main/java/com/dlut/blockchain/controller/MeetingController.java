@@ -1,6 +1,9 @@
 package com.dlut.blockchain.controller;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
 import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.MeetingDto;
 import com.dlut.blockchain.entity.Meeting;
 import com.dlut.blockchain.service.MeetingService;
@@ -10,11 +13,13 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +36,7 @@ import java.util.Map;
 public class MeetingController {
 
     private final MeetingService meetingService;
+    private final PaginationProperties paginationProperties;
 
     /**
      * 获取所有例会（分页）
@@ -50,7 +56,7 @@ public class MeetingController {
             log.info("获取所有例会请求: page={}, size={}, sortBy={}, sortDirection={}", 
                     page, size, sortBy, sortDirection);
             Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+            Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
             Page<MeetingDto> meetings = meetingService.getAllMeetings(pageable);
             log.info("成功获取 {} 个例会", meetings.getTotalElements());
             return ResponseEntity.ok(meetings);
@@ -60,14 +66,56 @@ public class MeetingController {
         }
     }
 
+    /**
+     * 游标分页获取例会（携带 after 参数时生效，after 为空表示第一批）
+     */
+    @GetMapping(params = "after")
+    @Operation(summary = "游标分页获取例会", description = "按上一批返回的 nextCursor 继续获取例会，不执行 COUNT 查询")
+    public ResponseEntity<CursorSlice<MeetingDto>> scrollMeetings(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "meetingTime") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        // 如果sortBy是meetingTime，需要改为meetingDate
+        if ("meetingTime".equals(sortBy)) {
+            sortBy = "meetingDate";
+        }
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        try {
+            CursorSlice<MeetingDto> slice = meetingService.scrollMeetings(after, size, KeysetCursor.sortWithTiebreaker(Meeting.class, direction, sortBy), withTotal);
+            return ResponseEntity.ok(slice);
+        } catch (IllegalArgumentException e) {
+            log.warn("游标分页参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 获取已完成的例会
      */
     @GetMapping("/completed")
-    @Operation(summary = "获取已完成的例会", description = "获取所有已完成的例会")
-    public ResponseEntity<List<MeetingDto>> getCompletedMeetings() {
-        List<MeetingDto> meetings = meetingService.getCompletedMeetings();
-        return ResponseEntity.ok(meetings);
+    @Operation(summary = "获取已完成的例会", description = "分页获取已完成的例会，响应头 X-Has-Next 表示是否还有下一页")
+    public ResponseEntity<List<MeetingDto>> getCompletedMeetings(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MeetingDto> meetings = meetingService.getCompletedMeetings(page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(meetings.hasNext()))
+                .body(meetings.getContent());
+    }
+
+    /**
+     * 流式导出已完成的例会
+     */
+    @GetMapping("/completed/stream")
+    @Operation(summary = "流式导出已完成的例会", description = "以流式 JSON 数组返回全部已完成的例会")
+    public ResponseEntity<StreamingResponseBody> streamCompletedMeetings() {
+        StreamingResponseBody body = out -> {
+            long count = meetingService.streamCompletedMeetings(out);
+            log.debug("流式导出例会 {} 条", count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
@@ -106,7 +154,7 @@ public class MeetingController {
             sortBy = "meetingDate";
         }
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<MeetingDto> meetings = meetingService.getMeetingsByStatus(status, pageable);
         return ResponseEntity.ok(meetings);
     }
@@ -116,9 +164,14 @@ public class MeetingController {
      */
     @GetMapping("/type/{type}")
     @Operation(summary = "根据类型获取例会", description = "根据例会类型获取例会")
-    public ResponseEntity<List<MeetingDto>> getMeetingsByType(@PathVariable Meeting.MeetingType type) {
-        List<MeetingDto> meetings = meetingService.getMeetingsByType(type);
-        return ResponseEntity.ok(meetings);
+    public ResponseEntity<List<MeetingDto>> getMeetingsByType(
+            @PathVariable Meeting.MeetingType type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MeetingDto> meetings = meetingService.getMeetingsByType(type, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(meetings.hasNext()))
+                .body(meetings.getContent());
     }
 
     /**
@@ -136,7 +189,7 @@ public class MeetingController {
             sortBy = "meetingDate";
         }
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<MeetingDto> meetings = meetingService.searchMeetings(keyword, pageable);
         return ResponseEntity.ok(meetings);
     }
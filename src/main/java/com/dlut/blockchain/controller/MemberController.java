@@ -1,5 +1,6 @@
 package com.dlut.blockchain.controller;
 
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.MemberDto;
 import com.dlut.blockchain.entity.Member;
 import com.dlut.blockchain.service.MemberService;
@@ -9,11 +10,13 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -28,6 +31,7 @@ import java.util.List;
 public class MemberController {
 
     private final MemberService memberService;
+    private final PaginationProperties paginationProperties;
 
     /**
      * 获取所有成员（分页）
@@ -41,7 +45,7 @@ public class MemberController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<MemberDto> members = memberService.getAllMembers(pageable);
         return ResponseEntity.ok(members);
     }
@@ -56,14 +60,32 @@ public class MemberController {
         return ResponseEntity.ok(members);
     }
 
+    /**
+     * 流式导出成员
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "流式导出成员", description = "以流式 JSON 数组返回指定状态的全部成员")
+    public ResponseEntity<StreamingResponseBody> streamMembers(
+            @RequestParam(defaultValue = "ACTIVE") Member.MemberStatus status) {
+        StreamingResponseBody body = out -> {
+            long count = memberService.streamMembers(status, out);
+            log.debug("流式导出成员 {} 条", count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * 获取特色成员
      */
     @GetMapping("/featured")
     @Operation(summary = "获取特色成员", description = "获取特色实验室成员")
-    public ResponseEntity<List<MemberDto>> getFeaturedMembers() {
-        List<MemberDto> members = memberService.getFeaturedMembers();
-        return ResponseEntity.ok(members);
+    public ResponseEntity<List<MemberDto>> getFeaturedMembers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MemberDto> members = memberService.getFeaturedMembers(page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(members.hasNext()))
+                .body(members.getContent());
     }
 
     /**
@@ -91,9 +113,14 @@ public class MemberController {
      */
     @GetMapping("/role/{role}")
     @Operation(summary = "根据角色获取成员", description = "根据角色获取实验室成员")
-    public ResponseEntity<List<MemberDto>> getMembersByRole(@PathVariable Member.MemberRole role) {
-        List<MemberDto> members = memberService.getMembersByRole(role);
-        return ResponseEntity.ok(members);
+    public ResponseEntity<List<MemberDto>> getMembersByRole(
+            @PathVariable Member.MemberRole role,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MemberDto> members = memberService.getMembersByRole(role, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(members.hasNext()))
+                .body(members.getContent());
     }
 
     /**
@@ -101,9 +128,14 @@ public class MemberController {
      */
     @GetMapping("/grade/{grade}")
     @Operation(summary = "根据年级获取成员", description = "根据年级获取实验室成员")
-    public ResponseEntity<List<MemberDto>> getMembersByGrade(@PathVariable String grade) {
-        List<MemberDto> members = memberService.getMembersByGrade(grade);
-        return ResponseEntity.ok(members);
+    public ResponseEntity<List<MemberDto>> getMembersByGrade(
+            @PathVariable String grade,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MemberDto> members = memberService.getMembersByGrade(grade, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(members.hasNext()))
+                .body(members.getContent());
     }
 
     /**
@@ -111,9 +143,14 @@ public class MemberController {
      */
     @GetMapping("/search")
     @Operation(summary = "搜索成员", description = "根据关键词搜索实验室成员")
-    public ResponseEntity<List<MemberDto>> searchMembers(@RequestParam String keyword) {
-        List<MemberDto> members = memberService.searchMembers(keyword);
-        return ResponseEntity.ok(members);
+    public ResponseEntity<List<MemberDto>> searchMembers(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<MemberDto> members = memberService.searchMembers(keyword, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(members.hasNext()))
+                .body(members.getContent());
     }
 
     /**
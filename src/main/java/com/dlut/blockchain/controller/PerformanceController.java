@@ -1,17 +1,34 @@
 package com.dlut.blockchain.controller;
 
 import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.jdbc.SqlStatementStats;
+import com.dlut.blockchain.service.ConnectionPoolService;
+import com.dlut.blockchain.service.JfrRecordingService;
+import com.dlut.blockchain.service.JvmMetricsService;
 import com.dlut.blockchain.service.PerformanceMonitorService;
+import com.dlut.blockchain.tracing.InMemorySpanExporter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -33,6 +50,21 @@ public class PerformanceController {
     @Autowired
     private MeterRegistry meterRegistry;
 
+    @Autowired
+    private SqlStatementStats sqlStatementStats;
+
+    @Autowired
+    private ConnectionPoolService connectionPoolService;
+
+    @Autowired
+    private JvmMetricsService jvmMetricsService;
+
+    @Autowired
+    private JfrRecordingService jfrRecordingService;
+
+    @Autowired(required = false)
+    private InMemorySpanExporter inMemorySpanExporter;
+
     /**
      * 获取系统性能统计信息
      * 
@@ -51,33 +83,41 @@ public class PerformanceController {
 
     /**
      * 获取API性能指标
+     * 汇总所有端点的请求数和响应时间分布（毫秒），分位数和最大值为最近一个滑动窗口内的值
      * 
      * @return API性能指标数据
      */
     @GetMapping("/metrics/api")
-    @Operation(summary = "获取API指标", description = "获取API接口的性能指标，包括请求数、响应时间等")
+    @Operation(summary = "获取API指标", description = "获取API接口的性能指标，包括请求数、响应时间分位数等")
     public ResponseEntity<Result> getApiMetrics() {
         try {
-            Map<String, Object> apiMetrics = new HashMap<>();
-            
-            // 获取API请求计数
-            apiMetrics.put("apiRequestCount", 
-                meterRegistry.counter("api.request.count").count());
-                
-            // 获取API响应时间
-            apiMetrics.put("apiRequestDuration", 
-                meterRegistry.timer("api.request.duration").mean(TimeUnit.MILLISECONDS));
-                
-            // 获取慢查询计数
-            apiMetrics.put("slowApiRequests", 
-                meterRegistry.counter("api.request.slow").count());
-            
+            Map<String, Object> apiMetrics = performanceMonitorService.getApiMetrics();
             return ResponseEntity.ok(Result.success(apiMetrics));
         } catch (Exception e) {
             return ResponseEntity.ok(Result.error("获取API指标失败: " + e.getMessage()));
         }
     }
 
+    /**
+     * 获取最慢的API端点
+     * 
+     * @param top 返回的端点数
+     * @param sortBy 排序依据：p50、p90、p99、p999、max、mean、count
+     * @return 按路由模板统计的端点响应时间
+     */
+    @GetMapping("/metrics/api/slowest")
+    @Operation(summary = "获取最慢的API", description = "按响应时间分位数排序返回最慢的API端点")
+    public ResponseEntity<Result> getSlowestEndpoints(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "p99") String sortBy) {
+        try {
+            List<Map<String, Object>> endpoints = performanceMonitorService.getSlowestEndpoints(top, sortBy);
+            return ResponseEntity.ok(Result.success(endpoints));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.badRequest(e.getMessage()));
+        }
+    }
+
     /**
      * 获取数据库性能指标
      * 
@@ -87,30 +127,59 @@ public class PerformanceController {
     @Operation(summary = "获取数据库指标", description = "获取数据库操作的性能指标，包括查询数、执行时间等")
     public ResponseEntity<Result> getDatabaseMetrics() {
         try {
-            Map<String, Object> dbMetrics = new HashMap<>();
-            
-            // 获取数据库查询计数
-            dbMetrics.put("databaseQueryCount", 
-                meterRegistry.counter("database.query.count").count());
-                
-            // 获取数据库查询时间
-            dbMetrics.put("databaseQueryDuration", 
-                meterRegistry.timer("database.query.duration").mean(TimeUnit.MILLISECONDS));
-                
-            // 获取慢查询计数
-            dbMetrics.put("slowDatabaseQueries", 
-                meterRegistry.counter("database.query.slow").count());
-                
-            // 获取影响行数
-            dbMetrics.put("databaseRowsAffected", 
-                meterRegistry.counter("database.query.rows").count());
-            
+            Map<String, Object> dbMetrics = performanceMonitorService.getDatabaseMetrics();
             return ResponseEntity.ok(Result.success(dbMetrics));
         } catch (Exception e) {
             return ResponseEntity.ok(Result.error("获取数据库指标失败: " + e.getMessage()));
         }
     }
 
+    /**
+     * 获取最慢的SQL语句
+     * 语句按指纹（去掉字面量后的SQL）汇总，样本参数只保留类型和长度
+     * 
+     * @param top 返回的语句数
+     * @param sortBy 排序依据：total（总耗时）、max、mean、count
+     * @return 按指纹汇总的语句耗时（毫秒）
+     */
+    @GetMapping("/metrics/database/slow-queries")
+    @Operation(summary = "获取最慢的SQL", description = "按SQL指纹汇总语句耗时，返回最慢的语句")
+    public ResponseEntity<Result> getSlowQueries(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "total") String sortBy) {
+        try {
+            return ResponseEntity.ok(Result.success(sqlStatementStats.getSlowestStatements(top, sortBy)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.badRequest(e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取疑似N+1查询
+     * 
+     * @return 同一请求中执行次数超过阈值的语句及所在端点
+     */
+    @GetMapping("/metrics/database/n-plus-one")
+    @Operation(summary = "获取疑似N+1查询", description = "获取同一请求中重复执行次数超过阈值的SQL语句")
+    public ResponseEntity<Result> getNPlusOneQueries() {
+        return ResponseEntity.ok(Result.success(sqlStatementStats.getNPlusOneQueries()));
+    }
+
+    /**
+     * 获取数据库连接池指标
+     * 
+     * @return 活跃、空闲、等待连接数，获取连接耗时（毫秒），超时次数和自适应调整状态
+     */
+    @GetMapping("/metrics/pool")
+    @Operation(summary = "获取连接池指标", description = "获取数据库连接池的使用情况、获取连接耗时和自适应调整状态")
+    public ResponseEntity<Result> getPoolMetrics() {
+        try {
+            return ResponseEntity.ok(Result.success(connectionPoolService.getPoolMetrics()));
+        } catch (Exception e) {
+            return ResponseEntity.ok(Result.error("获取连接池指标失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取系统资源使用指标
      * 
@@ -122,21 +191,21 @@ public class PerformanceController {
         try {
             Map<String, Object> systemMetrics = new HashMap<>();
             
-            // 获取内存使用率
-            systemMetrics.put("memoryUsage", 
-                meterRegistry.gauge("system.memory.usage", 0));
+            // 获取堆和非堆内存使用量
+            systemMetrics.put("heapMemoryUsed", gaugeValue("system.memory.heap.used"));
+            systemMetrics.put("nonHeapMemoryUsed", gaugeValue("system.memory.nonheap.used"));
                 
             // 获取堆内存使用率
-            systemMetrics.put("heapUsagePercentage", 
-                meterRegistry.gauge("system.memory.heap.usage", 0));
+            systemMetrics.put("heapUsagePercentage", gaugeValue("system.memory.heap.usage"));
                 
             // 获取线程数
-            systemMetrics.put("threadCount", 
-                meterRegistry.gauge("system.thread.count", 0));
+            systemMetrics.put("threadCount", gaugeValue("system.thread.count"));
                 
             // 获取活跃线程数
-            systemMetrics.put("activeThreadCount", 
-                meterRegistry.gauge("system.thread.active.count", 0));
+            systemMetrics.put("activeThreadCount", gaugeValue("system.thread.active.count"));
+
+            // 获取守护线程数
+            systemMetrics.put("daemonThreadCount", gaugeValue("system.thread.daemon.count"));
             
             return ResponseEntity.ok(Result.success(systemMetrics));
         } catch (Exception e) {
@@ -144,6 +213,27 @@ public class PerformanceController {
         }
     }
 
+    /**
+     * 获取JVM运行时指标
+     * 
+     * @param window 时间窗口（如 1m、5m），为空时返回所有配置的窗口
+     * @param top 每个窗口返回分配最多的线程数
+     * @return 内存、线程状态、CPU、GC暂停分布以及各窗口内的CPU使用率、GC、分配速率和安全点增量
+     */
+    @GetMapping("/metrics/jvm")
+    @Operation(summary = "获取JVM指标", description = "获取JVM运行时指标及指定时间窗口内的增量（GC、分配速率、CPU、安全点）")
+    public ResponseEntity<Result> getJvmMetrics(@RequestParam(required = false) Duration window,
+                                                @RequestParam(defaultValue = "10") int top) {
+        if (window != null && (window.isNegative() || window.isZero())) {
+            return ResponseEntity.badRequest().body(Result.badRequest("window 必须大于0"));
+        }
+        try {
+            return ResponseEntity.ok(Result.success(jvmMetricsService.getJvmMetrics(window, top)));
+        } catch (Exception e) {
+            return ResponseEntity.ok(Result.error("获取JVM指标失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取所有性能指标
      * 
@@ -164,12 +254,115 @@ public class PerformanceController {
             // 数据库指标
             allMetrics.put("databaseMetrics", getDatabaseMetrics().getBody().getData());
             
+            // 连接池指标
+            allMetrics.put("poolMetrics", connectionPoolService.getPoolMetrics());
+            
             // 系统指标
             allMetrics.put("systemMetrics", getSystemMetrics().getBody().getData());
+
+            // JVM指标
+            allMetrics.put("jvmMetrics", jvmMetricsService.getJvmMetrics(null, 10));
             
             return ResponseEntity.ok(Result.success(allMetrics));
         } catch (Exception e) {
             return ResponseEntity.ok(Result.error("获取所有指标失败: " + e.getMessage()));
         }
     }
+
+    /**
+     * 获取最近采样到的链路
+     * 需要开启 tracing.in-memory.enabled；每条链路列出各个 span（HTTP、方法、JDBC、Redis）的耗时
+     * 
+     * @param limit 返回的链路数
+     * @return 最近的链路，最近的在前
+     */
+    @GetMapping("/traces")
+    @Operation(summary = "获取最近的链路", description = "获取尾部采样保留的最近链路及其各个span的耗时")
+    public ResponseEntity<Result> getRecentTraces(@RequestParam(defaultValue = "20") int limit) {
+        if (inMemorySpanExporter == null) {
+            return ResponseEntity.badRequest().body(Result.badRequest("未开启内存链路导出（tracing.in-memory.enabled）"));
+        }
+        List<Map<String, Object>> traces = new ArrayList<>();
+        for (Map.Entry<String, List<SpanData>> entry : inMemorySpanExporter.getTraces().entrySet()) {
+            if (traces.size() >= limit) {
+                break;
+            }
+            List<Map<String, Object>> spans = new ArrayList<>();
+            for (SpanData span : entry.getValue()) {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("name", span.getName());
+                summary.put("spanId", span.getSpanId());
+                summary.put("parentSpanId", span.getParentSpanId());
+                summary.put("kind", span.getKind());
+                summary.put("durationMs", TimeUnit.NANOSECONDS.toMillis(span.getEndEpochNanos() - span.getStartEpochNanos()));
+                summary.put("status", span.getStatus().getStatusCode());
+                spans.add(summary);
+            }
+            Map<String, Object> trace = new LinkedHashMap<>();
+            trace.put("traceId", entry.getKey());
+            trace.put("spans", spans);
+            traces.add(trace);
+        }
+        return ResponseEntity.ok(Result.success(traces));
+    }
+
+    /**
+     * 获取 JFR 持续记录状态
+     * 
+     * @return 记录状态和磁盘上滚动保留的记录文件
+     */
+    @GetMapping("/jfr")
+    @Operation(summary = "获取JFR记录状态", description = "获取持续JFR记录的状态和已导出的记录文件")
+    public ResponseEntity<Result> getJfrStatus() {
+        try {
+            return ResponseEntity.ok(Result.success(jfrRecordingService.getStatus()));
+        } catch (Exception e) {
+            return ResponseEntity.ok(Result.error("获取JFR记录状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 导出最近N分钟的 JFR 记录
+     * 
+     * @param minutes 导出的分钟数
+     * @return .jfr 文件，可用 JDK Mission Control 或 jfr 命令打开
+     */
+    @GetMapping("/jfr/dump")
+    @Operation(summary = "导出JFR记录", description = "导出持续记录中最近N分钟的数据为.jfr文件")
+    public ResponseEntity<?> dumpJfr(@RequestParam(defaultValue = "5") int minutes) {
+        if (minutes <= 0) {
+            return ResponseEntity.badRequest().body(Result.badRequest("minutes 必须大于0"));
+        }
+        try {
+            Path file = jfrRecordingService.dump(Duration.ofMinutes(minutes));
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(new FileSystemResource(file));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Result.badRequest(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.ok(Result.error("导出JFR记录失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取 JFR 事件流的实时指标
+     * 
+     * @return 分配字节数、GC暂停、锁竞争和Socket读取耗时（毫秒）
+     */
+    @GetMapping("/jfr/live")
+    @Operation(summary = "获取JFR实时指标", description = "获取由JFR事件流实时统计的分配、GC暂停、锁竞争和Socket读取耗时")
+    public ResponseEntity<Result> getJfrLiveMetrics() {
+        return ResponseEntity.ok(Result.success(jfrRecordingService.getLiveMetrics()));
+    }
+
+    /**
+     * 读取已注册的仪表值（meterRegistry.gauge(name, 0) 会注册一个新的常量仪表，不能用于读取）
+     */
+    private Double gaugeValue(String name) {
+        Gauge gauge = meterRegistry.find(name).gauge();
+        return gauge != null ? gauge.value() : null;
+    }
 }
\ No newline at end of file
@@ -1,22 +1,33 @@
 package com.dlut.blockchain.controller;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
 import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.PostDto;
 import com.dlut.blockchain.entity.Post;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
 import com.dlut.blockchain.service.PostService;
+import com.dlut.blockchain.service.TrendingPostService;
+import com.dlut.blockchain.service.VisitorIdService;
 import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +44,8 @@ import java.util.Map;
 public class PostController {
 
     private final PostService postService;
+    private final PaginationProperties paginationProperties;
+    private final VisitorIdService visitorIdService;
 
     /**
      * 获取所有已发布的文章（分页）
@@ -47,19 +60,45 @@ public class PostController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<PostDto> posts = postService.getAllPublishedPosts(pageable);
         return ResponseEntity.ok(posts);
     }
 
+    /**
+     * 游标分页获取文章（携带 after 参数时生效，after 为空表示第一批）
+     */
+    @Timed(value = "controller.posts.scroll", description = "Time taken to scroll published posts")
+    @GetMapping(params = "after")
+    @Operation(summary = "游标分页获取文章", description = "按上一批返回的 nextCursor 继续获取文章，不执行 COUNT 查询")
+    public ResponseEntity<CursorSlice<PostDto>> scrollPublishedPosts(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        try {
+            CursorSlice<PostDto> slice = postService.scrollPublishedPosts(after, size, KeysetCursor.sortWithTiebreaker(Post.class, direction, sortBy), withTotal);
+            return ResponseEntity.ok(slice);
+        } catch (IllegalArgumentException e) {
+            log.warn("游标分页参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 获取特色文章
      */
     @GetMapping("/featured")
     @Operation(summary = "获取特色文章", description = "获取特色博客文章")
-    public ResponseEntity<List<PostDto>> getFeaturedPosts() {
-        List<PostDto> posts = postService.getFeaturedPosts();
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<List<PostDto>> getFeaturedPosts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<PostDto> posts = postService.getFeaturedPosts(page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(posts.hasNext()))
+                .body(posts.getContent());
     }
 
     /**
@@ -73,6 +112,25 @@ public class PostController {
         return ResponseEntity.ok(posts);
     }
 
+    /**
+     * 获取热门文章
+     */
+    @Timed(value = "controller.posts.trending", description = "Time taken to get trending posts")
+    @GetMapping("/trending")
+    @Operation(summary = "获取热门文章", description = "按时间衰减后的热度获取热门文章，window 可选 24h 或 7d")
+    public ResponseEntity<List<PostDto>> getTrendingPosts(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        TrendingPostService.TrendingWindow trendingWindow;
+        try {
+            trendingWindow = TrendingPostService.TrendingWindow.fromCode(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<PostDto> posts = postService.getTrendingPosts(trendingWindow, limit);
+        return ResponseEntity.ok(posts);
+    }
+
     /**
      * 根据ID获取文章
      */
@@ -98,7 +156,7 @@ public class PostController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<PostDto> posts = postService.getPostsByStatus(status, pageable);
         return ResponseEntity.ok(posts);
     }
@@ -117,7 +175,7 @@ public class PostController {
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, size, Sort.by(direction, sortBy));
         Page<PostDto> posts = postService.searchPosts(keyword, pageable);
         return ResponseEntity.ok(posts);
     }
@@ -127,9 +185,27 @@ public class PostController {
      */
     @GetMapping("/tag/{tag}")
     @Operation(summary = "根据标签获取文章", description = "根据标签获取博客文章")
-    public ResponseEntity<List<PostDto>> getPostsByTag(@PathVariable String tag) {
-        List<PostDto> posts = postService.getPostsByTag(tag);
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<List<PostDto>> getPostsByTag(
+            @PathVariable String tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<PostDto> posts = postService.getPostsByTag(tag, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(posts.hasNext()))
+                .body(posts.getContent());
+    }
+
+    /**
+     * 流式导出已发布的文章
+     */
+    @GetMapping("/stream")
+    @Operation(summary = "流式导出文章", description = "以流式 JSON 数组返回全部已发布文章，可按标签过滤")
+    public ResponseEntity<StreamingResponseBody> streamPublishedPosts(@RequestParam(required = false) String tag) {
+        StreamingResponseBody body = out -> {
+            long count = postService.streamPublishedPosts(tag, out);
+            log.debug("流式导出文章 {} 条", count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
@@ -186,15 +262,29 @@ public class PostController {
         return ResponseEntity.ok(updatedPost);
     }
 
+    /**
+     * 记录文章浏览
+     */
+    @PostMapping("/{id}/view")
+    @Operation(summary = "记录文章浏览", description = "记录一次文章浏览，同一访客在去重窗口内重复浏览只计一次")
+    public ResponseEntity<Map<String, Object>> recordView(@PathVariable Long id, HttpServletRequest request,
+                                                          HttpServletResponse response) {
+        boolean counted = postService.recordView(id, visitorIdService.resolve(request, response));
+        Map<String, Object> result = new HashMap<>();
+        result.put("counted", counted);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 点赞文章
      */
     @PostMapping("/{id}/like")
-    @Operation(summary = "点赞文章", description = "点赞博客文章")
-    public ResponseEntity<Void> likePost(@PathVariable Long id) {
+    @Operation(summary = "点赞文章", description = "点赞博客文章，同一访客重复点赞只计一次")
+    public ResponseEntity<Map<String, Object>> likePost(@PathVariable Long id, HttpServletRequest request,
+                                                        HttpServletResponse response) {
         log.info("文章点赞请求: {}", id);
-        postService.likePost(id);
-        return ResponseEntity.ok().build();
+        Map<String, Object> result = postService.likePost(id, visitorIdService.resolve(request, response));
+        return ResponseEntity.ok(result);
     }
 
     /**
@@ -202,10 +292,22 @@ public class PostController {
      */
     @DeleteMapping("/{id}/like")
     @Operation(summary = "取消点赞文章", description = "取消点赞博客文章")
-    public ResponseEntity<Void> unlikePost(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> unlikePost(@PathVariable Long id, HttpServletRequest request,
+                                                          HttpServletResponse response) {
         log.info("文章取消点赞请求: {}", id);
-        postService.unlikePost(id);
-        return ResponseEntity.ok().build();
+        Map<String, Object> result = postService.unlikePost(id, visitorIdService.resolve(request, response));
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 批量查询点赞状态
+     */
+    @GetMapping("/liked")
+    @Operation(summary = "批量查询点赞状态", description = "查询当前访客对一组文章的点赞状态")
+    public ResponseEntity<Map<Long, Boolean>> getLikedStatus(@RequestParam List<Long> ids, HttpServletRequest request,
+                                                             HttpServletResponse response) {
+        Map<Long, Boolean> status = postService.getLikedStatus(ids, visitorIdService.resolve(request, response));
+        return ResponseEntity.ok(status);
     }
 
     /**
@@ -256,4 +358,9 @@ public class PostController {
         Result<Map<String, Object>> result = Result.success(statistics);
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<Result<Void>> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.notFound(e.getMessage()));
+    }
+}
@@ -1,5 +1,8 @@
 package com.dlut.blockchain.controller;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.ProjectDto;
 import com.dlut.blockchain.entity.Project;
 import com.dlut.blockchain.entity.Project.ProjectStatus;
@@ -10,8 +13,8 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -31,6 +34,7 @@ import java.util.List;
 public class ProjectController {
 
     private final ProjectService projectService;
+    private final PaginationProperties paginationProperties;
 
     /**
      * 获取所有项目（分页）
@@ -59,7 +63,7 @@ public class ProjectController {
         }
         
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, pageSizeToUse, Sort.by(direction, actualSortBy));
+        Pageable pageable = paginationProperties.pageRequest(page, pageSizeToUse, Sort.by(direction, actualSortBy));
         
         // 处理前端传来的status参数，将其转换为枚举类型
         ProjectStatus projectStatus = null;
@@ -77,6 +81,41 @@ public class ProjectController {
         return ResponseEntity.ok(projects);
     }
     
+    /**
+     * 游标分页获取项目（携带 after 参数时生效，after 为空表示第一批）
+     */
+    @GetMapping(params = "after")
+    @Operation(summary = "游标分页获取项目", description = "按上一批返回的 nextCursor 继续获取项目，不执行 COUNT 查询")
+    public ResponseEntity<CursorSlice<ProjectDto>> scrollProjects(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "updatedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String category) {
+        // 与分页接口保持一致的排序字段映射
+        if ("updateTime".equals(sortBy)) {
+            sortBy = "updatedAt";
+        } else if ("createTime".equals(sortBy)) {
+            sortBy = "createdAt";
+        }
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        ProjectStatus projectStatus = status != null && !status.isEmpty() ? convertStringToProjectStatus(status) : null;
+        Project.ProjectCategory projectCategory = category != null && !category.isEmpty()
+                ? convertStringToProjectCategory(category) : null;
+        try {
+            CursorSlice<ProjectDto> slice = projectService.scrollProjects(after, size,
+                    KeysetCursor.sortWithTiebreaker(Project.class, direction, sortBy), withTotal,
+                    keyword, projectStatus, projectCategory);
+            return ResponseEntity.ok(slice);
+        } catch (IllegalArgumentException e) {
+            log.warn("游标分页参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 将字符串转换为ProjectCategory枚举
      * @param categoryString 分类字符串
@@ -217,9 +256,14 @@ public class ProjectController {
      */
     @GetMapping("/search")
     @Operation(summary = "搜索项目", description = "根据关键词搜索项目")
-    public ResponseEntity<List<ProjectDto>> searchProjects(@RequestParam String keyword) {
-        List<ProjectDto> projects = projectService.searchProjects(keyword);
-        return ResponseEntity.ok(projects);
+    public ResponseEntity<List<ProjectDto>> searchProjects(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Slice<ProjectDto> projects = projectService.searchProjects(keyword, page, size);
+        return ResponseEntity.ok()
+                .header(PaginationProperties.HAS_NEXT_HEADER, String.valueOf(projects.hasNext()))
+                .body(projects.getContent());
     }
 
     /**
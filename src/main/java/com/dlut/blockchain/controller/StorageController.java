@@ -0,0 +1,122 @@
+package com.dlut.blockchain.controller;
+
+import com.dlut.blockchain.common.Result;
+import com.dlut.blockchain.dto.DirectUploadRequest;
+import com.dlut.blockchain.dto.FileUploadDto;
+import com.dlut.blockchain.exception.QuotaExceededException;
+import com.dlut.blockchain.service.BlobMigrationService;
+import com.dlut.blockchain.service.FileGarbageCollector;
+import com.dlut.blockchain.service.FileStorageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 存储后端控制器
+ * 对象存储直传（预签名地址）、存储后端迁移和垃圾回收
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/files/storage")
+@RequiredArgsConstructor
+@Tag(name = "存储管理", description = "对象存储直传、存储后端迁移和垃圾回收接口")
+public class StorageController {
+
+    private final FileStorageService fileStorageService;
+    private final BlobMigrationService blobMigrationService;
+    private final FileGarbageCollector fileGarbageCollector;
+
+    /**
+     * 获取直传地址
+     */
+    @PostMapping("/direct-uploads")
+    @Operation(summary = "获取直传地址", description = "返回预签名上传地址，内容已存在时返回 exists=true 无需上传")
+    public ResponseEntity<Result<Map<String, Object>>> presignDirectUpload(@Valid @RequestBody DirectUploadRequest request) {
+        return ResponseEntity.ok(Result.success(fileStorageService.presignDirectUpload(request, "system")));
+    }
+
+    /**
+     * 完成直传
+     */
+    @PostMapping("/direct-uploads/complete")
+    @Operation(summary = "完成直传", description = "确认内容已上传到对象存储并登记文件记录")
+    public ResponseEntity<Result<FileUploadDto>> completeDirectUpload(@Valid @RequestBody DirectUploadRequest request) {
+        log.info("完成直传请求: {}, 大小: {} bytes", request.getFileName(), request.getTotalSize());
+        return ResponseEntity.ok(Result.success(fileStorageService.completeDirectUpload(request, "system")));
+    }
+
+    /**
+     * 启动存储迁移
+     */
+    @PostMapping("/migrations")
+    @Operation(summary = "启动存储迁移", description = "后台把文件内容从源后端迁移到目标后端（隐藏入口访问）")
+    public ResponseEntity<Result<Map<String, Object>>> startMigration(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "4") int parallelism,
+            @RequestParam(defaultValue = "false") boolean deleteSource) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Result.success(blobMigrationService.start(from, to, parallelism, deleteSource)));
+    }
+
+    /**
+     * 查询迁移进度
+     */
+    @GetMapping("/migrations")
+    @Operation(summary = "查询迁移进度", description = "返回当前或最近一次迁移任务的进度")
+    public ResponseEntity<Result<Map<String, Object>>> getMigrationStatus() {
+        return ResponseEntity.ok(Result.success(blobMigrationService.getStatus()));
+    }
+
+    /**
+     * 取消迁移
+     */
+    @DeleteMapping("/migrations")
+    @Operation(summary = "取消存储迁移", description = "停止当前迁移任务，已迁移的内容保持在目标后端")
+    public ResponseEntity<Result<Map<String, Object>>> cancelMigration() {
+        return ResponseEntity.ok(Result.success(blobMigrationService.cancel()));
+    }
+
+    /**
+     * 执行垃圾回收
+     */
+    @PostMapping("/gc")
+    @Operation(summary = "执行垃圾回收", description = "永久删除回收站中过期的文件，回收上传目录中没有记录的文件（隐藏入口访问）")
+    public ResponseEntity<Result<Map<String, Object>>> collectGarbage() {
+        log.info("手动执行文件垃圾回收");
+        return ResponseEntity.ok(Result.success(fileGarbageCollector.collect()));
+    }
+
+    /**
+     * 查询最近一次垃圾回收结果
+     */
+    @GetMapping("/gc")
+    @Operation(summary = "查询垃圾回收结果", description = "返回最近一次垃圾回收的报告")
+    public ResponseEntity<Result<Map<String, Object>>> getGarbageCollectionReport() {
+        return ResponseEntity.ok(Result.success(fileGarbageCollector.getLastReport()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Result<Void>> handleBadRequest(IllegalArgumentException e) {
+        log.warn("存储请求参数错误: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(Result.badRequest(e.getMessage()));
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<Result<Void>> handleQuotaExceeded(QuotaExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Result.error(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Result<Void>> handleConflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Result.error(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+}
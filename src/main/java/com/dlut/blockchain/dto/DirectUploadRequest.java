@@ -0,0 +1,33 @@
+package com.dlut.blockchain.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 直传请求DTO
+ */
+@Data
+public class DirectUploadRequest {
+    
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名不能超过255个字符")
+    private String fileName;
+    
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long totalSize;
+    
+    @NotBlank(message = "文件校验和不能为空")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "文件校验和必须是 SHA-256 十六进制字符串")
+    private String sha256;
+    
+    private String fileType;
+    
+    private String category;
+    
+    private String description;
+}
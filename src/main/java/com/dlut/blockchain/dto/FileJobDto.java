@@ -0,0 +1,37 @@
+package com.dlut.blockchain.dto;
+
+import com.dlut.blockchain.entity.FileJob;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件后台处理任务DTO
+ */
+@Data
+public class FileJobDto {
+    
+    private Long id;
+    
+    private Long fileId;
+    
+    private FileJob.JobType jobType;
+    
+    private FileJob.JobStatus status;
+    
+    private Integer attempts;
+    
+    private Integer maxAttempts;
+    
+    /**
+     * 下次执行时间
+     */
+    private LocalDateTime runAt;
+    
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+    
+    private LocalDateTime updatedAt;
+}
@@ -1,5 +1,6 @@
 package com.dlut.blockchain.dto;
 
+import com.dlut.blockchain.entity.FileUpload;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
@@ -26,6 +27,8 @@ public class FileUploadDto {
     
     private Long fileSize;
     
+    private String checksum;
+    
     @NotBlank(message = "文件原始名称不能为空")
     @Size(max = 255, message = "文件原始名称不能超过255个字符")
     private String originalName;
@@ -41,4 +44,21 @@ public class FileUploadDto {
     private String downloadUrl;
     
     private Integer downloadCount;
+    
+    /**
+     * 后台处理状态，上传接口返回时通常为 PENDING
+     */
+    private FileUpload.ProcessingStatus processingStatus;
+    
+    /**
+     * 按文件头识别出的内容类型
+     */
+    private String detectedType;
+    
+    private FileUpload.FileStatus status;
+    
+    /**
+     * 放入回收站的时间，超过保留期后永久删除
+     */
+    private LocalDateTime deletedAt;
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.dlut.blockchain.dto;
+
+import com.dlut.blockchain.entity.FileUsage;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件存储用量DTO
+ */
+@Data
+public class FileUsageDto {
+    
+    private FileUsage.UsageScope scope;
+    
+    /**
+     * 分类名或上传者，总计为空字符串
+     */
+    private String key;
+    
+    private Long fileCount;
+    
+    private Long totalSize;
+    
+    private Long downloadCount;
+    
+    private LocalDateTime updatedAt;
+}
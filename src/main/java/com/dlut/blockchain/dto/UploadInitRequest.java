@@ -0,0 +1,33 @@
+package com.dlut.blockchain.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 分片上传初始化请求DTO
+ */
+@Data
+public class UploadInitRequest {
+    
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名不能超过255个字符")
+    private String fileName;
+    
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long totalSize;
+    
+    private String fileType;
+    
+    private String category;
+    
+    private String description;
+    
+    /**
+     * 期望的分片大小（字节），为空时使用服务端默认值
+     */
+    private Integer chunkSize;
+}
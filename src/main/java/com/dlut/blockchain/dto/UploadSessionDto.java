@@ -0,0 +1,40 @@
+package com.dlut.blockchain.dto;
+
+import com.dlut.blockchain.entity.UploadSession;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分片上传会话DTO
+ */
+@Data
+public class UploadSessionDto {
+    
+    private String uploadId;
+    
+    private String originalName;
+    
+    private Long totalSize;
+    
+    private Integer chunkSize;
+    
+    private Integer totalChunks;
+    
+    /**
+     * 已接收的分片序号
+     */
+    private List<Integer> receivedChunks;
+    
+    private UploadSession.UploadStatus status;
+    
+    private LocalDateTime expiresAt;
+    
+    private Long fileId;
+    
+    /**
+     * 合并完成后生成的文件信息（仅合并接口返回）
+     */
+    private FileUploadDto file;
+}
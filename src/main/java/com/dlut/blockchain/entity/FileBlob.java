@@ -0,0 +1,70 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件内容实体类
+ * 以 SHA-256 为内容地址，相同内容的多次上传共享同一份磁盘文件，通过引用计数管理生命周期
+ */
+@Data
+@Entity
+@Table(name = "file_blobs")
+@EqualsAndHashCode(callSuper = true)
+public class FileBlob extends BaseEntity {
+
+    /**
+     * 内容 SHA-256（十六进制）
+     */
+    @Column(name = "sha256", nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    /**
+     * 内容地址，即存储后端中的 key，如 ab/cd/abcd....pdf
+     */
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    /**
+     * 内容所在的存储后端（local、s3）
+     */
+    @Column(name = "storage_backend", nullable = false, length = 20)
+    private String storageBackend = "local";
+
+    /**
+     * 文件大小（字节）
+     */
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    /**
+     * 引用该内容的上传记录数
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    /**
+     * 内容状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private BlobStatus status = BlobStatus.ACTIVE;
+
+    /**
+     * 最近一次完整性校验时间
+     */
+    @Column(name = "verified_at")
+    private LocalDateTime verifiedAt;
+
+    /**
+     * 内容状态枚举
+     */
+    public enum BlobStatus {
+        ACTIVE,     // 正常
+        CORRUPTED,  // 校验和不一致
+        MISSING     // 存储中的内容丢失
+    }
+}
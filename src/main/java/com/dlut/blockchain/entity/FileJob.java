@@ -0,0 +1,91 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件后台处理任务实体类
+ * 上传事务内写入，由任务轮询线程以 FOR UPDATE SKIP LOCKED 领取，多实例部署时同一任务只会被一个实例执行
+ */
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "file_jobs",
+    uniqueConstraints = @UniqueConstraint(name = "uk_file_jobs_file_type", columnNames = {"file_id", "job_type"}),
+    indexes = @Index(name = "idx_file_jobs_status_run_at", columnList = "status, run_at"))
+public class FileJob extends BaseEntity {
+
+    /**
+     * 文件记录ID
+     */
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    /**
+     * 任务类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false, length = 20)
+    private JobType jobType;
+
+    /**
+     * 任务状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private JobStatus status = JobStatus.PENDING;
+
+    /**
+     * 已执行次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * 最多执行次数，用完后进入死信状态
+     */
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts;
+
+    /**
+     * 最早执行时间，失败重试时按指数退避顺延
+     */
+    @Column(name = "run_at", nullable = false)
+    private LocalDateTime runAt;
+
+    /**
+     * 领取时间，超过锁定超时仍未完成的任务会被重新放回队列
+     */
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    /**
+     * 最近一次失败原因
+     */
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    /**
+     * 任务类型枚举
+     */
+    public enum JobType {
+        MIME_SNIFF,     // 按文件头识别真实类型
+        THUMBNAIL,      // 生成缩略图
+        PRECOMPRESS,    // 生成预压缩文件
+        TEXT_EXTRACT,   // 提取文本用于搜索
+        VIRUS_SCAN      // 病毒扫描
+    }
+
+    /**
+     * 任务状态枚举
+     */
+    public enum JobStatus {
+        PENDING,    // 等待执行
+        RUNNING,    // 执行中
+        DONE,       // 已完成
+        DEAD        // 重试次数用完
+    }
+}
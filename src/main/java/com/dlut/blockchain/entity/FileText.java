@@ -0,0 +1,28 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 文件文本内容实体类
+ * 后台任务从文本类文件中提取的内容，用于文件搜索；单独建表，查询文件列表时不会加载
+ */
+@Data
+@Entity
+@Table(name = "file_texts")
+@EqualsAndHashCode(callSuper = true)
+public class FileText extends BaseEntity {
+
+    /**
+     * 文件记录ID
+     */
+    @Column(name = "file_id", nullable = false, unique = true)
+    private Long fileId;
+
+    /**
+     * 提取的文本（截断到配置的最大长度）
+     */
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String content;
+}
@@ -3,15 +3,19 @@ package com.dlut.blockchain.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 
 /**
  * 文件上传实体类
+ * 删除的文件先标记为 DELETED 放入回收站，超过保留期后由垃圾回收任务清除；
+ * 实体查询自动排除回收站中的文件，回收站相关操作使用原生 SQL
  */
 @Data
 @Entity
 @Table(name = "file_uploads")
+@SQLRestriction("status <> 'DELETED'")
 @EqualsAndHashCode(callSuper = true)
 public class FileUpload extends BaseEntity {
 
@@ -33,6 +37,12 @@ public class FileUpload extends BaseEntity {
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    /**
+     * 内容校验和（SHA-256），为空表示去重存储之前上传的文件
+     */
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
     /**
      * 文件类型
      */
@@ -66,7 +76,7 @@ public class FileUpload extends BaseEntity {
     /**
      * 上传时间
      */
-    @Column(name = "uploaded_at")
+    @Column(name = "uploaded_at", nullable = false)
     private LocalDateTime uploadedAt;
 
     /**
@@ -88,6 +98,25 @@ public class FileUpload extends BaseEntity {
     @Column(name = "status", columnDefinition = "varchar(20) default 'ACTIVE'")
     private FileStatus status = FileStatus.ACTIVE;
 
+    /**
+     * 放入回收站的时间
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    /**
+     * 后台处理状态（缩略图、预压缩、文本提取、病毒扫描等）
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_status", length = 20)
+    private ProcessingStatus processingStatus = ProcessingStatus.READY;
+
+    /**
+     * 按文件头识别出的内容类型，识别完成前为空
+     */
+    @Column(name = "detected_type", length = 100)
+    private String detectedType;
+
     /**
      * 文件状态枚举
      */
@@ -96,6 +125,17 @@ public class FileUpload extends BaseEntity {
         DELETED     // 已删除
     }
 
+    /**
+     * 后台处理状态枚举
+     */
+    public enum ProcessingStatus {
+        PENDING,    // 等待病毒扫描
+        PROCESSING, // 处理中
+        READY,      // 处理完成
+        FAILED,     // 部分任务重试次数用完
+        INFECTED    // 病毒扫描未通过，禁止下载
+    }
+
     @PrePersist
     protected void onCreate() {
         if (uploadedAt == null) {
@@ -107,6 +147,9 @@ public class FileUpload extends BaseEntity {
         if (downloadCount == null) {
             downloadCount = 0;
         }
+        if (processingStatus == null) {
+            processingStatus = ProcessingStatus.READY;
+        }
     }
 
     @PreUpdate
@@ -0,0 +1,57 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 文件存储用量汇总实体类
+ * 上传、删除时在同一事务中增量更新，统计接口和配额检查直接读取汇总行，不再对 file_uploads 做全表聚合
+ */
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "file_usage",
+    uniqueConstraints = @UniqueConstraint(name = "uk_file_usage_scope_key", columnNames = {"scope", "scope_key"}))
+public class FileUsage extends BaseEntity {
+
+    /**
+     * 汇总维度
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 20)
+    private UsageScope scope;
+
+    /**
+     * 维度取值：分类名或上传者，总计行为空字符串（分类、上传者为空的文件也记在空字符串下）
+     */
+    @Column(name = "scope_key", nullable = false)
+    private String scopeKey;
+
+    /**
+     * 文件数
+     */
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount = 0L;
+
+    /**
+     * 文件总大小（字节）
+     */
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize = 0L;
+
+    /**
+     * 总下载次数
+     */
+    @Column(name = "download_count", nullable = false)
+    private Long downloadCount = 0L;
+
+    /**
+     * 汇总维度枚举
+     */
+    public enum UsageScope {
+        TOTAL,      // 总计
+        CATEGORY,   // 按分类
+        UPLOADER    // 按上传者
+    }
+}
@@ -0,0 +1,30 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 文章点赞记录实体类
+ * 每个访客对同一篇文章最多一条记录，点赞/取消点赞天然幂等
+ */
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "post_likes",
+    uniqueConstraints = @UniqueConstraint(name = "uk_post_likes_post_visitor", columnNames = {"post_id", "visitor_id"}),
+    indexes = @Index(name = "idx_post_likes_visitor_post", columnList = "visitor_id, post_id"))
+public class PostLike extends BaseEntity {
+
+    /**
+     * 文章ID
+     */
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    /**
+     * 访客标识（服务端签发的 Cookie 标识或管理员用户名，见 VisitorIdService）
+     */
+    @Column(name = "visitor_id", nullable = false, length = 100)
+    private String visitorId;
+}
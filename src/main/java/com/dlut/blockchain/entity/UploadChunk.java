@@ -0,0 +1,40 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 已接收分片实体类
+ */
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "upload_chunks",
+    uniqueConstraints = @UniqueConstraint(name = "uk_upload_chunks_session_index", columnNames = {"session_id", "chunk_index"}))
+public class UploadChunk extends BaseEntity {
+
+    /**
+     * 上传会话ID
+     */
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    /**
+     * 分片序号（从 0 开始）
+     */
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    /**
+     * 分片大小（字节）
+     */
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    /**
+     * 分片 SHA-256（十六进制）
+     */
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+}
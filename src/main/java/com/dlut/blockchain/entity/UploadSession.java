@@ -0,0 +1,113 @@
+package com.dlut.blockchain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传会话实体类
+ * 会话和已接收分片持久化在数据库中，暂存文件保存在磁盘上，服务重启后可继续上传
+ */
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "upload_sessions",
+    indexes = @Index(name = "idx_upload_sessions_expires_at", columnList = "expires_at"))
+public class UploadSession extends BaseEntity {
+
+    /**
+     * 对外暴露的上传ID
+     */
+    @Column(name = "upload_id", nullable = false, unique = true, length = 36)
+    private String uploadId;
+
+    /**
+     * 原始文件名
+     */
+    @Column(name = "original_name", nullable = false)
+    private String originalName;
+
+    /**
+     * 文件类型
+     */
+    @Column(name = "file_type")
+    private String fileType;
+
+    /**
+     * 文件分类
+     */
+    @Column(name = "category")
+    private String category;
+
+    /**
+     * 文件描述
+     */
+    @Column(name = "description")
+    private String description;
+
+    /**
+     * 上传者
+     */
+    @Column(name = "uploaded_by")
+    private String uploadedBy;
+
+    /**
+     * 文件总大小（字节）
+     */
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    /**
+     * 分片大小（字节），最后一个分片可以更小
+     */
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    /**
+     * 分片总数
+     */
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks;
+
+    /**
+     * 暂存文件路径
+     */
+    @Column(name = "staging_path", nullable = false, length = 500)
+    private String stagingPath;
+
+    /**
+     * 会话状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private UploadStatus status = UploadStatus.UPLOADING;
+
+    /**
+     * 过期时间，每接收一个分片顺延
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * 合并完成后生成的文件记录ID
+     */
+    @Column(name = "file_id")
+    private Long fileId;
+
+    /**
+     * 正在写入的分片数，大于 0 时不能开始合并
+     */
+    @Column(name = "active_writes", nullable = false)
+    private Integer activeWrites = 0;
+
+    /**
+     * 会话状态枚举
+     */
+    public enum UploadStatus {
+        UPLOADING,  // 上传中
+        COMPLETING, // 合并中
+        COMPLETED   // 已完成
+    }
+}
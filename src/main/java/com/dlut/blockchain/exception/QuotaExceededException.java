@@ -0,0 +1,10 @@
+package com.dlut.blockchain.exception;
+
+/**
+ * 存储配额不足
+ */
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,54 @@
+package com.dlut.blockchain.interceptor;
+
+import com.dlut.blockchain.common.RouteTemplateResolver;
+import com.dlut.blockchain.jdbc.StatementMetricsListener;
+import com.dlut.blockchain.service.PerformanceMonitorService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * API请求指标拦截器
+ * 记录每个请求的响应时间，端点使用路由模板（如 /api/posts/{id}）而不是实际路径，避免每个ID产生一组新的指标；
+ * 同时统计请求线程上执行的 SQL，检测 N+1 查询
+ */
+@Component
+@RequiredArgsConstructor
+public class ApiMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ApiMetricsInterceptor.class.getName() + ".start";
+
+    private final PerformanceMonitorService performanceMonitorService;
+    private final StatementMetricsListener statementMetricsListener;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求完成后会再次分发，以第一次进入的时间为准
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            statementMetricsListener.beginRequest();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // 异步处理的后续 SQL 在其他线程上执行，只统计请求线程上已执行的部分
+        statementMetricsListener.endRequest(RouteTemplateResolver.resolve(request));
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        String endpoint = RouteTemplateResolver.resolve(request);
+        boolean success = ex == null && response.getStatus() < 500;
+        performanceMonitorService.recordApiMetrics(endpoint, RouteTemplateResolver.method(request), duration, success);
+        statementMetricsListener.endRequest(endpoint);
+    }
+}
@@ -0,0 +1,45 @@
+package com.dlut.blockchain.jdbc;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 指纹：去掉字面量、合并 IN 列表和空白后的语句，同一类查询不论参数都得到相同的指纹
+ *
+ * @param fingerprint 规范化后的 SQL
+ * @param type        语句类型：select、insert、update、delete、other
+ * @param table       语句操作的第一张表，无法识别时为 unknown
+ */
+public record SqlFingerprint(String fingerprint, String type, String table) {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    /**
+     * 数字字面量（不匹配 u1_0 这类别名中的数字）
+     */
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TABLE = Pattern.compile("(?i)\\b(?:from|into|update|join)\\s+\"?([a-z_][\\w.]*)");
+
+    public static SqlFingerprint of(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("in (?)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+
+        Matcher table = TABLE.matcher(normalized);
+        return new SqlFingerprint(normalized, typeOf(normalized),
+                table.find() ? table.group(1).toLowerCase(Locale.ROOT) : "unknown");
+    }
+
+    private static String typeOf(String sql) {
+        int end = sql.indexOf(' ');
+        String keyword = (end == -1 ? sql : sql.substring(0, end)).toLowerCase(Locale.ROOT);
+        return switch (keyword) {
+            case "select", "with" -> "select";
+            case "insert", "update", "delete" -> keyword;
+            default -> "other";
+        };
+    }
+}
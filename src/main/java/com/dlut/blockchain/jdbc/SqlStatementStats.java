@@ -0,0 +1,161 @@
+package com.dlut.blockchain.jdbc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按 SQL 指纹汇总的语句统计和疑似 N+1 查询记录
+ * 指纹数量有上限，超过后新出现的语句只计入指标，不再单独统计
+ */
+@Component
+public class SqlStatementStats {
+
+    private static final List<String> SORT_FIELDS = List.of("total", "max", "mean", "count");
+
+    private final int maxFingerprints;
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Map<String, NPlusOneStats> nPlusOne = new ConcurrentHashMap<>();
+
+    public SqlStatementStats(@Value("${performance.jdbc.max-fingerprints:500}") int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * 一类语句的统计；样本参数来自最慢的一次执行
+     */
+    private static final class StatementStats {
+        final SqlFingerprint fingerprint;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        volatile List<String> sampleParameters = List.of();
+
+        StatementStats(SqlFingerprint fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * 一个端点上的一类疑似 N+1 查询
+     */
+    private static final class NPlusOneStats {
+        final String endpoint;
+        final SqlFingerprint fingerprint;
+        final LongAdder occurrences = new LongAdder();
+        final AtomicLong maxExecutions = new AtomicLong();
+        volatile LocalDateTime lastSeen;
+
+        NPlusOneStats(String endpoint, SqlFingerprint fingerprint) {
+            this.endpoint = endpoint;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * 记录一次语句执行
+     *
+     * @param sampleParameters 脱敏后的参数，只在刷新最大耗时时读取
+     */
+    public void record(SqlFingerprint fingerprint, long durationNanos, Supplier<List<String>> sampleParameters) {
+        StatementStats stats = statements.get(fingerprint.fingerprint());
+        if (stats == null) {
+            if (statements.size() >= maxFingerprints) {
+                return;
+            }
+            stats = statements.computeIfAbsent(fingerprint.fingerprint(), key -> new StatementStats(fingerprint));
+        }
+        stats.count.increment();
+        stats.totalNanos.add(durationNanos);
+        long max = stats.maxNanos.get();
+        while (durationNanos > max) {
+            if (stats.maxNanos.compareAndSet(max, durationNanos)) {
+                stats.sampleParameters = sampleParameters.get();
+                break;
+            }
+            max = stats.maxNanos.get();
+        }
+    }
+
+    /**
+     * 记录一次疑似 N+1：同一请求中同一指纹的语句执行次数超过阈值
+     */
+    public void recordNPlusOne(String endpoint, SqlFingerprint fingerprint, int executions) {
+        String key = endpoint + " " + fingerprint.fingerprint();
+        NPlusOneStats stats = nPlusOne.get(key);
+        if (stats == null) {
+            if (nPlusOne.size() >= maxFingerprints) {
+                return;
+            }
+            stats = nPlusOne.computeIfAbsent(key, k -> new NPlusOneStats(endpoint, fingerprint));
+        }
+        stats.occurrences.increment();
+        stats.maxExecutions.accumulateAndGet(executions, Math::max);
+        stats.lastSeen = LocalDateTime.now();
+    }
+
+    /**
+     * 最慢的语句
+     *
+     * @param top    返回的条数
+     * @param sortBy 排序依据：total（总耗时）、max、mean、count
+     */
+    public List<Map<String, Object>> getSlowestStatements(int top, String sortBy) {
+        if (!SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (StatementStats stats : statements.values()) {
+            long count = stats.count.sum();
+            double total = toMillis(stats.totalNanos.sum());
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("fingerprint", stats.fingerprint.fingerprint());
+            summary.put("type", stats.fingerprint.type());
+            summary.put("table", stats.fingerprint.table());
+            summary.put("count", count);
+            summary.put("total", total);
+            summary.put("mean", count > 0 ? total / count : 0);
+            summary.put("max", toMillis(stats.maxNanos.get()));
+            summary.put("sampleParameters", stats.sampleParameters);
+            result.add(summary);
+        }
+        result.sort(Comparator.comparingDouble((Map<String, Object> summary) ->
+                ((Number) summary.get(sortBy)).doubleValue()).reversed());
+        return result.subList(0, Math.min(Math.max(top, 0), result.size()));
+    }
+
+    /**
+     * 疑似 N+1 查询，按出现次数排序
+     */
+    public List<Map<String, Object>> getNPlusOneQueries() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (NPlusOneStats stats : nPlusOne.values()) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("endpoint", stats.endpoint);
+            summary.put("fingerprint", stats.fingerprint.fingerprint());
+            summary.put("table", stats.fingerprint.table());
+            summary.put("occurrences", stats.occurrences.sum());
+            summary.put("maxExecutionsPerRequest", stats.maxExecutions.get());
+            summary.put("lastSeen", stats.lastSeen);
+            result.add(summary);
+        }
+        result.sort(Comparator.comparingLong((Map<String, Object> summary) ->
+                (Long) summary.get("occurrences")).reversed());
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
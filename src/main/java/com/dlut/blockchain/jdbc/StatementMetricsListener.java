@@ -0,0 +1,167 @@
+package com.dlut.blockchain.jdbc;
+
+import com.dlut.blockchain.service.PerformanceMonitorService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC 语句监听器（由数据源代理在每条语句执行前后调用）
+ * 记录每条语句的耗时和影响行数，按 SQL 指纹汇总；在 HTTP 请求内统计同一指纹的执行次数，超过阈值时视为疑似 N+1 查询
+ */
+@Slf4j
+@Component
+public class StatementMetricsListener implements QueryExecutionListener {
+
+    private static final String START_NANOS = StatementMetricsListener.class.getName() + ".start";
+
+    private final PerformanceMonitorService performanceMonitorService;
+    private final SqlStatementStats sqlStatementStats;
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    /**
+     * SQL -> 指纹，Hibernate 生成的语句文本固定，解析结果可以复用
+     */
+    private final Cache<String, SqlFingerprint> fingerprints = Caffeine.newBuilder()
+            .maximumSize(2000)
+            .build();
+
+    /**
+     * 当前请求中每个指纹的执行次数，请求之外为 null
+     */
+    private final ThreadLocal<Map<SqlFingerprint, int[]>> requestExecutions = new ThreadLocal<>();
+
+    /**
+     * 数据源代理在创建 DataSource 时就需要监听器，依赖的服务延迟解析，避免提前初始化指标相关的 Bean
+     */
+    public StatementMetricsListener(@Lazy PerformanceMonitorService performanceMonitorService,
+                                    SqlStatementStats sqlStatementStats,
+                                    @Lazy MeterRegistry meterRegistry,
+                                    @Value("${performance.jdbc.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.performanceMonitorService = performanceMonitorService;
+        this.sqlStatementStats = sqlStatementStats;
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+        if (start == null || queryInfoList.isEmpty()) {
+            return;
+        }
+        // Statement 批量执行多条不同的语句时耗时平均分给每条语句
+        long durationNanos = (System.nanoTime() - start) / queryInfoList.size();
+        long[] rowsAffected = rowsAffected(execInfo.getResult(), queryInfoList.size());
+        Map<SqlFingerprint, int[]> executions = requestExecutions.get();
+
+        for (int i = 0; i < queryInfoList.size(); i++) {
+            QueryInfo queryInfo = queryInfoList.get(i);
+            SqlFingerprint fingerprint = fingerprints.get(queryInfo.getQuery(), SqlFingerprint::of);
+            performanceMonitorService.recordDatabaseMetrics(fingerprint.type(), fingerprint.table(),
+                    durationNanos, rowsAffected[i]);
+            sqlStatementStats.record(fingerprint, durationNanos, () -> redactedParameters(queryInfo));
+            if (executions != null) {
+                executions.computeIfAbsent(fingerprint, key -> new int[1])[0]++;
+            }
+        }
+    }
+
+    /**
+     * 开始统计当前线程上的请求
+     */
+    public void beginRequest() {
+        requestExecutions.set(new HashMap<>());
+    }
+
+    /**
+     * 结束请求统计，报告执行次数超过阈值的指纹
+     *
+     * @param endpoint 请求的路由模板
+     */
+    public void endRequest(String endpoint) {
+        Map<SqlFingerprint, int[]> executions = requestExecutions.get();
+        if (executions == null) {
+            return;
+        }
+        requestExecutions.remove();
+        executions.forEach((fingerprint, count) -> {
+            if (count[0] > nPlusOneThreshold) {
+                log.warn("Possible N+1 query on {}: executed {} times: {}", endpoint, count[0],
+                        fingerprint.fingerprint());
+                meterRegistry.counter("database.query.n_plus_one",
+                        "endpoint", endpoint, "table", fingerprint.table()).increment();
+                sqlStatementStats.recordNPlusOne(endpoint, fingerprint, count[0]);
+            }
+        });
+    }
+
+    /**
+     * 每条语句影响的行数：更新语句返回行数；批量执行返回每组参数（PreparedStatement）或每条语句（Statement）的行数，
+     * 前者合计到唯一的语句上；查询返回结果集，计为 0
+     */
+    private static long[] rowsAffected(Object result, int queries) {
+        long[] rows = new long[queries];
+        if (result instanceof Number count) {
+            rows[0] = Math.max(count.longValue(), 0);
+        } else if (result instanceof int[] batch) {
+            for (int i = 0; i < batch.length; i++) {
+                rows[queries == batch.length ? i : 0] += Math.max(batch[i], 0);
+            }
+        } else if (result instanceof long[] batch) {
+            for (int i = 0; i < batch.length; i++) {
+                rows[queries == batch.length ? i : 0] += Math.max(batch[i], 0);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 脱敏的参数：只保留类型和长度，不记录参数值
+     */
+    private static List<String> redactedParameters(QueryInfo queryInfo) {
+        if (queryInfo.getParametersList().isEmpty()) {
+            return List.of();
+        }
+        List<String> parameters = new ArrayList<>();
+        for (ParameterSetOperation operation : queryInfo.getParametersList().get(0)) {
+            Object[] args = operation.getArgs();
+            Object value = ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2
+                    ? null : args[1];
+            parameters.add(args[0] + "=" + redact(value));
+        }
+        return parameters;
+    }
+
+    private static String redact(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        if (value instanceof byte[] bytes) {
+            return "byte[" + bytes.length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+}
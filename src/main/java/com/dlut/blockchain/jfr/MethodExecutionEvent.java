@@ -0,0 +1,34 @@
+package com.dlut.blockchain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Controller、Service、Repository 方法执行的 JFR 事件
+ * 只有超过阈值（jfr.method-threshold）的调用才会写入记录，未开启记录时 begin/commit 几乎没有开销
+ */
+@Name(MethodExecutionEvent.NAME)
+@Label("Method Execution")
+@Description("Controller, service or repository method execution")
+@Category({"Blockchain Backend", "Method"})
+@StackTrace(false)
+public class MethodExecutionEvent extends Event {
+
+    public static final String NAME = "com.dlut.blockchain.MethodExecution";
+
+    @Label("Layer")
+    public String layer;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Exception")
+    public String exception;
+}
@@ -0,0 +1,27 @@
+package com.dlut.blockchain.job;
+
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+
+/**
+ * 文件后台处理任务
+ * 每种任务类型对应一个实现，上传时为 supports 返回 true 的类型各写入一条任务；
+ * handle 可能因失败重试或锁定超时被重复调用，实现需要保证幂等
+ */
+public interface FileJobHandler {
+
+    /**
+     * 处理的任务类型
+     */
+    FileJob.JobType type();
+
+    /**
+     * 文件是否需要此任务
+     */
+    boolean supports(FileUpload fileUpload);
+
+    /**
+     * 执行任务，抛出异常表示失败，按退避策略重试
+     */
+    void handle(FileUpload fileUpload) throws Exception;
+}
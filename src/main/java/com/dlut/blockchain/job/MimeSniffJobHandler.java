@@ -0,0 +1,56 @@
+package com.dlut.blockchain.job;
+
+import com.dlut.blockchain.common.ContentTypeDetector;
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.service.FileBlobService;
+import com.dlut.blockchain.service.FileMetadataCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按文件头识别真实内容类型
+ * 经应用服务器上传的文件在上传时已识别，这里只处理直传到对象存储的文件
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MimeSniffJobHandler implements FileJobHandler {
+
+    private final FileBlobService fileBlobService;
+    private final FileUploadRepository fileUploadRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileMetadataCache fileMetadataCache;
+
+    @Override
+    public FileJob.JobType type() {
+        return FileJob.JobType.MIME_SNIFF;
+    }
+
+    @Override
+    public boolean supports(FileUpload fileUpload) {
+        return fileUpload.getDetectedType() == null;
+    }
+
+    @Override
+    public void handle(FileUpload fileUpload) throws IOException {
+        String detectedType;
+        try (InputStream in = fileBlobService.open(fileUpload)) {
+            detectedType = ContentTypeDetector.detect(in, fileUpload.getFileName());
+        }
+        if (fileUpload.getFileType() != null && !fileUpload.getFileType().equalsIgnoreCase(detectedType)) {
+            log.debug("文件实际类型与上传时声明的不一致: id={}, 声明: {}, 实际: {}",
+                    fileUpload.getId(), fileUpload.getFileType(), detectedType);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            fileUploadRepository.updateDetectedType(fileUpload.getId(), detectedType);
+            fileMetadataCache.invalidate(fileUpload.getFileName());
+        });
+    }
+}
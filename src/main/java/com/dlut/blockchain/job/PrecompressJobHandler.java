@@ -0,0 +1,34 @@
+package com.dlut.blockchain.job;
+
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.service.PrecompressionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 生成 .gz 预压缩文件
+ */
+@Component
+@RequiredArgsConstructor
+public class PrecompressJobHandler implements FileJobHandler {
+
+    private final PrecompressionService precompressionService;
+
+    @Override
+    public FileJob.JobType type() {
+        return FileJob.JobType.PRECOMPRESS;
+    }
+
+    @Override
+    public boolean supports(FileUpload fileUpload) {
+        return precompressionService.supports(fileUpload);
+    }
+
+    @Override
+    public void handle(FileUpload fileUpload) throws IOException {
+        precompressionService.precompress(fileUpload);
+    }
+}
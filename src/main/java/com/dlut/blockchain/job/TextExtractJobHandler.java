@@ -0,0 +1,84 @@
+package com.dlut.blockchain.job;
+
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileTextRepository;
+import com.dlut.blockchain.service.FileBlobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 提取文本类文件的内容用于搜索
+ * 只处理纯文本格式，PDF、Office 等二进制格式需要额外的解析库，暂不提取
+ */
+@Slf4j
+@Component
+public class TextExtractJobHandler implements FileJobHandler {
+
+    private final FileBlobService fileBlobService;
+    private final FileTextRepository fileTextRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> extensions;
+
+    /**
+     * 最多保存的字符数
+     */
+    @Value("${file.jobs.text-extract.max-length:65536}")
+    private int maxLength;
+
+    public TextExtractJobHandler(FileBlobService fileBlobService,
+                                 FileTextRepository fileTextRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${file.jobs.text-extract.extensions:txt,md,csv,json,xml}") String[] extensions) {
+        this.fileBlobService = fileBlobService;
+        this.fileTextRepository = fileTextRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.extensions = Arrays.stream(extensions)
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public FileJob.JobType type() {
+        return FileJob.JobType.TEXT_EXTRACT;
+    }
+
+    @Override
+    public boolean supports(FileUpload fileUpload) {
+        String fileName = fileUpload.getFileName();
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex != -1 && extensions.contains(fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void handle(FileUpload fileUpload) throws IOException {
+        char[] buffer = new char[maxLength];
+        int length = 0;
+        try (InputStream in = fileBlobService.open(fileUpload);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()
+                     .onMalformedInput(CodingErrorAction.REPLACE)
+                     .onUnmappableCharacter(CodingErrorAction.REPLACE))) {
+            int read;
+            while (length < maxLength && (read = reader.read(buffer, length, maxLength - length)) != -1) {
+                length += read;
+            }
+        }
+        // PostgreSQL 的 TEXT 不能包含 NUL 字符
+        String content = new String(buffer, 0, length).replace('\u0000', ' ');
+        transactionTemplate.executeWithoutResult(status -> fileTextRepository.upsert(fileUpload.getId(), content));
+        log.debug("提取文件文本: id={}, {} 个字符", fileUpload.getId(), content.length());
+    }
+}
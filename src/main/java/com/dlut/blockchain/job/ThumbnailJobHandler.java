@@ -0,0 +1,34 @@
+package com.dlut.blockchain.job;
+
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.service.ImageVariantService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 预生成图片缩略图
+ */
+@Component
+@RequiredArgsConstructor
+public class ThumbnailJobHandler implements FileJobHandler {
+
+    private final ImageVariantService imageVariantService;
+
+    @Override
+    public FileJob.JobType type() {
+        return FileJob.JobType.THUMBNAIL;
+    }
+
+    @Override
+    public boolean supports(FileUpload fileUpload) {
+        return imageVariantService.isSupported(fileUpload.getFileName());
+    }
+
+    @Override
+    public void handle(FileUpload fileUpload) throws IOException {
+        imageVariantService.generateAll(fileUpload);
+    }
+}
@@ -0,0 +1,111 @@
+package com.dlut.blockchain.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 热点日志限流过滤器（在 logback-spring.xml 中配置）
+ * 对指定前缀的 Logger，每个 Logger 每秒最多输出 maxPerSecond 条不高于 maxLevel 的日志，
+ * 超出部分每 sampleEvery 条保留一条（0 表示全部丢弃）；ERROR 日志不限流
+ */
+public class RateLimitingTurboFilter extends TurboFilter {
+
+    private final List<String> loggers = new ArrayList<>();
+    private int maxPerSecond = 100;
+    private int sampleEvery = 100;
+    private Level maxLevel = Level.WARN;
+
+    /**
+     * 每个 Logger 当前秒的计数
+     */
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * 当前时间（毫秒），测试中替换为可控的时钟
+     */
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * 固定一秒的计数窗口
+     */
+    private static final class Window {
+        final AtomicLong second = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format 为 null 时是 isDebugEnabled() 之类的级别检查，由真正输出时再决定
+        if (format == null || level == null || level.isGreaterOrEqual(Level.ERROR) || level.toInt() > maxLevel.toInt()
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel()) || !isLimited(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        long second = clock.getAsLong() / 1000;
+        long current = window.second.get();
+        if (current != second && window.second.compareAndSet(current, second)) {
+            window.count.set(0);
+        }
+        long count = window.count.incrementAndGet();
+        if (count <= maxPerSecond || (sampleEvery > 0 && (count - maxPerSecond) % sampleEvery == 0)) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.increment();
+        return FilterReply.DENY;
+    }
+
+    private boolean isLimited(String name) {
+        for (String prefix : loggers) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 被限流丢弃的日志条数
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * 限流的 Logger 前缀，逗号分隔
+     */
+    public void setLoggers(String loggers) {
+        for (String prefix : loggers.split(",")) {
+            if (!prefix.isBlank()) {
+                this.loggers.add(prefix.trim());
+            }
+        }
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.WARN);
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+}
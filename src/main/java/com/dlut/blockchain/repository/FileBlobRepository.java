@@ -0,0 +1,109 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.FileBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件内容数据访问层
+ */
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, Long> {
+
+    /**
+     * 根据内容哈希查找
+     */
+    Optional<FileBlob> findBySha256(String sha256);
+
+    /**
+     * 新增内容或增加引用计数（行锁保持到事务结束，与清理任务互斥）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_blobs (created_at, updated_at, version, sha256, storage_path, storage_backend, file_size, ref_count, status) " +
+                   "VALUES (now(), now(), 0, :sha256, :storagePath, :storageBackend, :fileSize, 1, 'ACTIVE') " +
+                   "ON CONFLICT (sha256) DO UPDATE SET ref_count = file_blobs.ref_count + 1, updated_at = now()",
+           nativeQuery = true)
+    int upsertReference(@Param("sha256") String sha256,
+                        @Param("storagePath") String storagePath,
+                        @Param("storageBackend") String storageBackend,
+                        @Param("fileSize") long fileSize);
+
+    /**
+     * 减少引用计数
+     */
+    @Modifying
+    @Query(value = "UPDATE file_blobs SET ref_count = ref_count - 1, updated_at = now() " +
+                   "WHERE sha256 = :sha256 AND ref_count > 0", nativeQuery = true)
+    int decrementReference(@Param("sha256") String sha256);
+
+    /**
+     * 标记内容恢复正常（重新上传了正确的内容）
+     */
+    @Modifying
+    @Query(value = "UPDATE file_blobs SET status = 'ACTIVE', verified_at = now() WHERE sha256 = :sha256", nativeQuery = true)
+    int markActive(@Param("sha256") String sha256);
+
+    /**
+     * 更新完整性校验结果
+     */
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.status = :status, b.verifiedAt = :verifiedAt WHERE b.id = :id")
+    int updateVerification(@Param("id") Long id,
+                           @Param("status") FileBlob.BlobStatus status,
+                           @Param("verifiedAt") LocalDateTime verifiedAt);
+
+    /**
+     * 查找无引用且超过保留期的内容并加锁，正在被上传引用的行会被跳过
+     */
+    @Query(value = "SELECT * FROM file_blobs WHERE ref_count = 0 AND updated_at < :before " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FileBlob> lockUnreferenced(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 迁移完成后切换存储后端，内容已被删除或已迁移时不更新
+     */
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.storageBackend = :to WHERE b.id = :id AND b.storageBackend = :from")
+    int updateBackend(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
+
+    /**
+     * 按ID顺序分批查找指定后端中的内容（迁移用）
+     */
+    List<FileBlob> findByStorageBackendAndIdGreaterThanOrderByIdAsc(String storageBackend, Long id, Pageable pageable);
+
+    /**
+     * 查找需要校验完整性的内容
+     */
+    @Query("SELECT b FROM FileBlob b WHERE b.status = 'ACTIVE' AND b.refCount > 0 " +
+           "AND (b.verifiedAt IS NULL OR b.verifiedAt < :before) ORDER BY b.id")
+    List<FileBlob> findVerificationCandidates(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * 在给定内容哈希中查找已登记的哈希
+     */
+    @Query("SELECT b.sha256 FROM FileBlob b WHERE b.sha256 IN :sha256s")
+    List<String> findExistingSha256(@Param("sha256s") Collection<String> sha256s);
+
+    /**
+     * 登记磁盘上没有记录的内容（引用计数为 0），由无引用内容清理任务在保留期后删除；
+     * 同时有上传引用该内容时以上传为准
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_blobs (created_at, updated_at, version, sha256, storage_path, storage_backend, file_size, ref_count, status) " +
+                   "VALUES (now(), now(), 0, :sha256, :storagePath, :storageBackend, :fileSize, 0, 'ACTIVE') " +
+                   "ON CONFLICT (sha256) DO NOTHING",
+           nativeQuery = true)
+    int registerOrphan(@Param("sha256") String sha256,
+                       @Param("storagePath") String storagePath,
+                       @Param("storageBackend") String storageBackend,
+                       @Param("fileSize") long fileSize);
+}
\ No newline at end of file
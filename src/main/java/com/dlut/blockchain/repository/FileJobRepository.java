@@ -0,0 +1,108 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.FileJob;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文件后台处理任务数据访问层
+ */
+@Repository
+public interface FileJobRepository extends JpaRepository<FileJob, Long> {
+
+    /**
+     * 锁定到期的待执行任务，已被其他实例锁定的行会被跳过
+     */
+    @Query(value = "SELECT * FROM file_jobs WHERE status = 'PENDING' AND run_at <= :now " +
+                   "ORDER BY run_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FileJob> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 标记任务完成
+     */
+    @Modifying
+    @Query("UPDATE FileJob j SET j.status = :done, j.lockedAt = NULL, j.lastError = NULL, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING'")
+    int markDone(@Param("id") Long id, @Param("done") FileJob.JobStatus done, @Param("now") LocalDateTime now);
+
+    /**
+     * 执行失败，放回队列等待重试或进入死信状态
+     */
+    @Modifying
+    @Query("UPDATE FileJob j SET j.status = :status, j.runAt = :runAt, j.lockedAt = NULL, j.lastError = :error, " +
+           "j.updatedAt = :now WHERE j.id = :id AND j.status = 'RUNNING'")
+    int markFailed(@Param("id") Long id, @Param("status") FileJob.JobStatus status,
+                   @Param("runAt") LocalDateTime runAt, @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * 续期本实例正在执行的任务，执行时间超过锁定超时的任务不会被其他实例重复领取
+     */
+    @Modifying
+    @Query("UPDATE FileJob j SET j.lockedAt = :now WHERE j.id IN :ids AND j.status = 'RUNNING'")
+    int renewLocks(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 查找锁定超时的任务
+     */
+    @Query("SELECT j FROM FileJob j WHERE j.status = 'RUNNING' AND j.lockedAt < :before")
+    List<FileJob> findStale(@Param("before") LocalDateTime before);
+
+    /**
+     * 把锁定超时的任务（如执行中服务重启）放回队列，执行次数已用完的任务不放回
+     */
+    @Modifying
+    @Query("UPDATE FileJob j SET j.status = :pending, j.lockedAt = NULL " +
+           "WHERE j.status = 'RUNNING' AND j.lockedAt < :before AND j.attempts < j.maxAttempts")
+    int releaseStale(@Param("pending") FileJob.JobStatus pending, @Param("before") LocalDateTime before);
+
+    /**
+     * 重新执行死信任务
+     */
+    @Modifying
+    @Query("UPDATE FileJob j SET j.status = :pending, j.attempts = 0, j.runAt = :now, j.lastError = NULL " +
+           "WHERE j.id = :id AND j.status = 'DEAD'")
+    int requeueDead(@Param("id") Long id, @Param("pending") FileJob.JobStatus pending, @Param("now") LocalDateTime now);
+
+    /**
+     * 删除已完成超过保留期的任务
+     */
+    @Modifying
+    @Query("DELETE FROM FileJob j WHERE j.status = 'DONE' AND j.updatedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 删除文件的所有任务
+     */
+    @Modifying
+    @Query("DELETE FROM FileJob j WHERE j.fileId = :fileId")
+    int deleteByFileId(@Param("fileId") Long fileId);
+
+    /**
+     * 统计文件指定状态的任务数
+     */
+    long countByFileIdAndStatusIn(Long fileId, Collection<FileJob.JobStatus> statuses);
+
+    /**
+     * 文件是否有指定类型的未完成任务
+     */
+    boolean existsByFileIdAndJobTypeAndStatusNot(Long fileId, FileJob.JobType jobType, FileJob.JobStatus status);
+
+    /**
+     * 查找文件的所有任务
+     */
+    List<FileJob> findByFileIdOrderByIdAsc(Long fileId);
+
+    /**
+     * 按状态分页查找任务
+     */
+    Page<FileJob> findByStatus(FileJob.JobStatus status, Pageable pageable);
+}
@@ -0,0 +1,32 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.FileText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 文件文本内容数据访问层
+ */
+@Repository
+public interface FileTextRepository extends JpaRepository<FileText, Long> {
+
+    /**
+     * 写入或覆盖文件的文本内容（任务重试时重复写入）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_texts (created_at, updated_at, version, file_id, content) " +
+                   "VALUES (now(), now(), 0, :fileId, :content) " +
+                   "ON CONFLICT (file_id) DO UPDATE SET content = EXCLUDED.content, updated_at = now()",
+           nativeQuery = true)
+    int upsert(@Param("fileId") Long fileId, @Param("content") String content);
+
+    /**
+     * 删除文件的文本内容
+     */
+    @Modifying
+    @Query("DELETE FROM FileText t WHERE t.fileId = :fileId")
+    int deleteByFileId(@Param("fileId") Long fileId);
+}
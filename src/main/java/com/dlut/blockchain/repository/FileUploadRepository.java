@@ -1,8 +1,12 @@
 package com.dlut.blockchain.repository;
 
 import com.dlut.blockchain.entity.FileUpload;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,6 +14,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +40,14 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
     Page<FileUpload> findByOriginalNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
             String originalName, String description, Pageable pageable);
 
+    /**
+     * 根据文件名、描述或提取的文本内容模糊搜索
+     */
+    @Query("SELECT f FROM FileUpload f WHERE LOWER(f.originalName) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "OR LOWER(f.description) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "OR f.id IN (SELECT t.fileId FROM FileText t WHERE LOWER(t.content) LIKE LOWER(CONCAT('%', :keyword, '%')))")
+    Page<FileUpload> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
+
     /**
      * 根据上传者查找文件
      */
@@ -57,6 +70,13 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
     @Query("UPDATE FileUpload f SET f.downloadCount = f.downloadCount + 1 WHERE f.id = :id")
     void incrementDownloadCount(@Param("id") Long id);
 
+    /**
+     * 批量增加下载次数（由下载计数缓冲区定时写回）
+     */
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.downloadCount = f.downloadCount + :delta WHERE f.id = :id")
+    int incrementDownloadCountBy(@Param("id") Long id, @Param("delta") int delta);
+
     /**
      * 查找下载次数最多的文件
      */
@@ -71,31 +91,115 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
             @Param("endDate") LocalDateTime endDate);
 
     /**
-     * 统计总文件大小
+     * 统计指定日期之后的上传数量
      */
-    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileUpload f")
-    long sumFileSize();
+    @Query("SELECT COUNT(f) FROM FileUpload f WHERE f.uploadedAt > :since")
+    long countByUploadedAtAfter(@Param("since") LocalDateTime since);
 
     /**
-     * 按分类统计文件数量
+     * 统计指定时间范围内的上传数量
      */
-    @Query("SELECT f.category, COUNT(f) FROM FileUpload f WHERE f.category IS NOT NULL GROUP BY f.category")
-    List<Object[]> countByCategory();
+    long countByUploadedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
 
     /**
-     * 统计总下载次数
+     * 键集分页查找文件
      */
-    @Query("SELECT COALESCE(SUM(f.downloadCount), 0) FROM FileUpload f")
-    long sumDownloadCount();
+    Window<FileUpload> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 
     /**
-     * 统计指定日期之后的上传数量
+     * 按ID顺序分批查找去重存储之前上传的文件（迁移用）
      */
-    @Query("SELECT COUNT(f) FROM FileUpload f WHERE f.uploadedAt > :since")
-    long countByUploadedAtAfter(@Param("since") LocalDateTime since);
+    List<FileUpload> findByChecksumIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 
     /**
-     * 统计指定时间范围内的上传数量
+     * 更新引用同一内容的文件记录的存储位置
      */
-    long countByUploadedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.filePath = :filePath WHERE f.checksum = :checksum")
+    int updateFilePathByChecksum(@Param("checksum") String checksum, @Param("filePath") String filePath);
+
+    /**
+     * 登记旧文件的内容校验和与存储位置
+     */
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.checksum = :checksum, f.filePath = :filePath WHERE f.id = :id AND f.checksum IS NULL")
+    int adoptContent(@Param("id") Long id, @Param("checksum") String checksum, @Param("filePath") String filePath);
+
+    /**
+     * 更新后台处理状态，病毒扫描未通过的文件保持隔离状态
+     */
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.processingStatus = :status WHERE f.id = :id " +
+           "AND (f.processingStatus IS NULL OR f.processingStatus <> 'INFECTED')")
+    int updateProcessingStatus(@Param("id") Long id, @Param("status") FileUpload.ProcessingStatus status);
+
+    /**
+     * 记录按文件头识别出的内容类型
+     */
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.detectedType = :detectedType WHERE f.id = :id")
+    int updateDetectedType(@Param("id") Long id, @Param("detectedType") String detectedType);
+
+    /**
+     * 按分类聚合文件数、大小和下载次数（用量校准用）
+     */
+    @Query(value = "SELECT COALESCE(category, ''), COUNT(*), COALESCE(SUM(file_size), 0), COALESCE(SUM(download_count), 0) " +
+                   "FROM file_uploads WHERE status <> 'DELETED' GROUP BY COALESCE(category, '')", nativeQuery = true)
+    List<Object[]> aggregateUsageByCategory();
+
+    /**
+     * 按上传者聚合文件数、大小和下载次数（用量校准用）
+     */
+    @Query(value = "SELECT COALESCE(uploaded_by, ''), COUNT(*), COALESCE(SUM(file_size), 0), COALESCE(SUM(download_count), 0) " +
+                   "FROM file_uploads WHERE status <> 'DELETED' GROUP BY COALESCE(uploaded_by, '')", nativeQuery = true)
+    List<Object[]> aggregateUsageByUploader();
+
+    /**
+     * 在给定文件名中查找有记录的文件名（含回收站中的文件）
+     */
+    @Query(value = "SELECT file_name FROM file_uploads WHERE file_name IN (:fileNames)", nativeQuery = true)
+    List<String> findExistingFileNames(@Param("fileNames") Collection<String> fileNames);
+
+    /**
+     * 分页查找回收站中的文件
+     */
+    @Query(value = "SELECT * FROM file_uploads WHERE status = 'DELETED' ORDER BY deleted_at DESC, id DESC",
+           countQuery = "SELECT COUNT(*) FROM file_uploads WHERE status = 'DELETED'",
+           nativeQuery = true)
+    Page<FileUpload> findDeleted(Pageable pageable);
+
+    /**
+     * 根据ID查找回收站中的文件
+     */
+    @Query(value = "SELECT * FROM file_uploads WHERE id = :id AND status = 'DELETED'", nativeQuery = true)
+    Optional<FileUpload> findDeletedById(@Param("id") Long id);
+
+    /**
+     * 文件名是否属于回收站中的文件
+     */
+    @Query(value = "SELECT COUNT(*) > 0 FROM file_uploads WHERE file_name = :fileName AND status = 'DELETED'",
+           nativeQuery = true)
+    boolean existsDeletedByFileName(@Param("fileName") String fileName);
+
+    /**
+     * 从回收站恢复文件
+     */
+    @Modifying
+    @Query(value = "UPDATE file_uploads SET status = 'ACTIVE', deleted_at = NULL, updated_at = now() " +
+                   "WHERE id = :id AND status = 'DELETED'", nativeQuery = true)
+    int restore(@Param("id") Long id);
+
+    /**
+     * 锁定超过保留期的回收站文件，正在恢复的行会被跳过
+     */
+    @Query(value = "SELECT * FROM file_uploads WHERE status = 'DELETED' AND deleted_at < :before " +
+                   "ORDER BY deleted_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FileUpload> lockExpiredDeleted(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 永久删除回收站中的文件记录
+     */
+    @Modifying
+    @Query(value = "DELETE FROM file_uploads WHERE id = :id AND status = 'DELETED'", nativeQuery = true)
+    int purgeDeleted(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.FileUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件存储用量汇总数据访问层
+ */
+@Repository
+public interface FileUsageRepository extends JpaRepository<FileUsage, Long> {
+
+    /**
+     * 根据维度和取值查找
+     */
+    Optional<FileUsage> findByScopeAndScopeKey(FileUsage.UsageScope scope, String scopeKey);
+
+    /**
+     * 查找某一维度的所有汇总行
+     */
+    List<FileUsage> findByScopeOrderByTotalSizeDesc(FileUsage.UsageScope scope);
+
+    /**
+     * 是否已有指定维度的汇总行
+     */
+    boolean existsByScope(FileUsage.UsageScope scope);
+
+    /**
+     * 累加用量，汇总行不存在时创建
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_usage (created_at, updated_at, version, scope, scope_key, file_count, total_size, download_count) " +
+                   "VALUES (now(), now(), 0, :scope, :scopeKey, :files, :bytes, :downloads) " +
+                   "ON CONFLICT (scope, scope_key) DO UPDATE SET " +
+                   "file_count = file_usage.file_count + EXCLUDED.file_count, " +
+                   "total_size = file_usage.total_size + EXCLUDED.total_size, " +
+                   "download_count = file_usage.download_count + EXCLUDED.download_count, " +
+                   "updated_at = now()",
+           nativeQuery = true)
+    int addUsage(@Param("scope") String scope, @Param("scopeKey") String scopeKey,
+                 @Param("files") long files, @Param("bytes") long bytes, @Param("downloads") long downloads);
+
+    /**
+     * 覆盖用量（校准用），汇总行不存在时创建
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_usage (created_at, updated_at, version, scope, scope_key, file_count, total_size, download_count) " +
+                   "VALUES (now(), now(), 0, :scope, :scopeKey, :files, :bytes, :downloads) " +
+                   "ON CONFLICT (scope, scope_key) DO UPDATE SET " +
+                   "file_count = EXCLUDED.file_count, total_size = EXCLUDED.total_size, " +
+                   "download_count = EXCLUDED.download_count, updated_at = now()",
+           nativeQuery = true)
+    int setUsage(@Param("scope") String scope, @Param("scopeKey") String scopeKey,
+                 @Param("files") long files, @Param("bytes") long bytes, @Param("downloads") long downloads);
+
+    /**
+     * 把一个文件新增的下载次数累加到总计、所属分类和上传者的汇总行（回收站中的文件不计入）
+     */
+    @Modifying
+    @Query(value = "UPDATE file_usage u SET download_count = u.download_count + :delta, updated_at = now() " +
+                   "FROM file_uploads f WHERE f.id = :fileId AND f.status <> 'DELETED' AND (" +
+                   "(u.scope = 'TOTAL' AND u.scope_key = '') OR " +
+                   "(u.scope = 'CATEGORY' AND u.scope_key = COALESCE(f.category, '')) OR " +
+                   "(u.scope = 'UPLOADER' AND u.scope_key = COALESCE(f.uploaded_by, '')))",
+           nativeQuery = true)
+    int addDownloads(@Param("fileId") Long fileId, @Param("delta") long delta);
+
+    /**
+     * 校准期间锁定汇总表：等待进行中的上传、删除事务提交，并阻止新的增量更新，保证聚合结果与汇总行一致
+     * 只阻塞写入，统计查询不受影响
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE file_usage IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForReconcile();
+
+    /**
+     * 删除已清零的汇总行
+     */
+    @Modifying
+    @Query("DELETE FROM FileUsage u WHERE u.scope <> 'TOTAL' AND u.fileCount = 0 AND u.totalSize = 0")
+    int deleteEmpty();
+}
@@ -1,16 +1,25 @@
 package com.dlut.blockchain.repository;
 
 import com.dlut.blockchain.entity.Meeting;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 例会数据访问层
@@ -26,7 +35,7 @@ public interface MeetingRepository extends JpaRepository<Meeting, Long> {
     /**
      * 根据类型查找会议
      */
-    Page<Meeting> findByType(Meeting.MeetingType type, Pageable pageable);
+    Slice<Meeting> findByType(Meeting.MeetingType type, Pageable pageable);
 
     /**
      * 根据会议日期范围查找会议
@@ -81,8 +90,8 @@ public interface MeetingRepository extends JpaRepository<Meeting, Long> {
     /**
      * 查找已完成的会议
      */
-    @Query("SELECT m FROM Meeting m WHERE m.status = 'COMPLETED' ORDER BY m.meetingDate DESC")
-    Page<Meeting> findCompletedMeetings(Pageable pageable);
+    @Query("SELECT m FROM Meeting m WHERE m.status = 'COMPLETED' ORDER BY m.meetingDate DESC, m.id DESC")
+    Slice<Meeting> findCompletedMeetings(Pageable pageable);
 
     /**
      * 查找进行中的会议
@@ -118,5 +127,15 @@ public interface MeetingRepository extends JpaRepository<Meeting, Long> {
      */
     long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
 
+    /**
+     * 键集分页查找会议
+     */
+    Window<Meeting> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 
-}
\ No newline at end of file
+    /**
+     * 流式读取已完成的会议（需在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT m FROM Meeting m WHERE m.status = 'COMPLETED' ORDER BY m.meetingDate DESC, m.id DESC")
+    Stream<Meeting> streamCompletedMeetings();
+}
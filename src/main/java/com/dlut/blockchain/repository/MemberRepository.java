@@ -1,16 +1,21 @@
 package com.dlut.blockchain.repository;
 
 import com.dlut.blockchain.entity.Member;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 实验室成员数据访问层
@@ -36,7 +41,7 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     /**
      * 根据角色查找成员
      */
-    Page<Member> findByRole(Member.MemberRole role, Pageable pageable);
+    Slice<Member> findByRole(Member.MemberRole role, Pageable pageable);
 
     /**
      * 根据性别查找成员
@@ -51,12 +56,12 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     /**
      * 根据年级查找成员
      */
-    Page<Member> findByGrade(String grade, Pageable pageable);
+    Slice<Member> findByGrade(String grade, Pageable pageable);
 
     /**
      * 查找特色成员
      */
-    Page<Member> findByFeaturedTrue(Pageable pageable);
+    Slice<Member> findByFeaturedTrue(Pageable pageable);
 
     /**
      * 模糊查询成员
@@ -66,7 +71,7 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
            "m.studentId LIKE %:keyword% OR " +
            "m.major LIKE %:keyword% OR " +
            "m.researchDirection LIKE %:keyword%")
-    Page<Member> searchMembers(@Param("keyword") String keyword, Pageable pageable);
+    Slice<Member> searchMembers(@Param("keyword") String keyword, Pageable pageable);
 
     /**
      * 查找在指定日期之后加入的成员
@@ -99,4 +104,11 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
      * 统计指定时间范围内创建的成员数
      */
     long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+
+    /**
+     * 流式读取指定状态的成员（需在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT m FROM Member m WHERE m.status = :status ORDER BY m.displayOrder ASC, m.id ASC")
+    Stream<Member> streamByStatus(@Param("status") Member.MemberStatus status);
+}
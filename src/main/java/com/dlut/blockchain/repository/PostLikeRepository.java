@@ -0,0 +1,51 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.PostLike;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文章点赞记录数据访问层
+ */
+@Repository
+public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
+
+    /**
+     * 插入点赞记录，已存在时不做任何操作
+     *
+     * @return 实际插入的行数（0 表示已点赞过）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO post_likes (created_at, updated_at, version, post_id, visitor_id) " +
+                   "VALUES (now(), now(), 0, :postId, :visitorId) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIgnore(@Param("postId") Long postId, @Param("visitorId") String visitorId);
+
+    /**
+     * 删除点赞记录
+     *
+     * @return 实际删除的行数（0 表示未点赞过）
+     */
+    @Modifying
+    @Query("DELETE FROM PostLike l WHERE l.postId = :postId AND l.visitorId = :visitorId")
+    int deleteByPostIdAndVisitorId(@Param("postId") Long postId, @Param("visitorId") String visitorId);
+
+    /**
+     * 批量查询访客在给定文章中已点赞的文章ID
+     */
+    @Query("SELECT l.postId FROM PostLike l WHERE l.visitorId = :visitorId AND l.postId IN :postIds")
+    List<Long> findLikedPostIds(@Param("visitorId") String visitorId, @Param("postIds") Collection<Long> postIds);
+
+    /**
+     * 删除文章的全部点赞记录
+     */
+    @Modifying
+    @Query("DELETE FROM PostLike l WHERE l.postId = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+}
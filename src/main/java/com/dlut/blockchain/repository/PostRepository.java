@@ -1,16 +1,25 @@
 package com.dlut.blockchain.repository;
 
 import com.dlut.blockchain.entity.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 博客文章数据访问层
@@ -46,7 +55,7 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      * 查找特色文章 - 优化查询
      */
     @Query("SELECT p FROM Post p WHERE p.featured = true AND p.status = 'PUBLISHED' AND p.isPublic = true")
-    Page<Post> findByFeaturedTrue(Pageable pageable);
+    Slice<Post> findByFeaturedTrue(Pageable pageable);
 
     /**
      * 统计特色文章总数
@@ -87,11 +96,11 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     long countSearchResults(@Param("keyword") String keyword);
 
     /**
-     * 增加浏览量
+     * 批量增加浏览量（由浏览计数缓冲区定时写回）
      */
     @Modifying
-    @Query("UPDATE Post p SET p.viewCount = p.viewCount + 1 WHERE p.id = :postId")
-    void incrementViewCount(@Param("postId") Long postId);
+    @Query("UPDATE Post p SET p.viewCount = p.viewCount + :delta WHERE p.id = :postId")
+    int incrementViewCountBy(@Param("postId") Long postId, @Param("delta") int delta);
 
     /**
      * 增加点赞数
@@ -107,6 +116,21 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("UPDATE Post p SET p.likeCount = p.likeCount - 1 WHERE p.id = :postId AND p.likeCount > 0")
     void decrementLikeCount(@Param("postId") Long postId);
 
+    /**
+     * 按点赞记录校准点赞数，返回被修正的文章数
+     */
+    @Modifying
+    @Query(value = "UPDATE posts p SET like_count = c.cnt FROM (" +
+                   "SELECT p2.id, COUNT(l.id) AS cnt FROM posts p2 LEFT JOIN post_likes l ON l.post_id = p2.id GROUP BY p2.id" +
+                   ") c WHERE c.id = p.id AND p.like_count IS DISTINCT FROM c.cnt", nativeQuery = true)
+    int reconcileLikeCounts();
+
+    /**
+     * 查询点赞数
+     */
+    @Query("SELECT p.likeCount FROM Post p WHERE p.id = :postId")
+    Integer findLikeCountById(@Param("postId") Long postId);
+
     /**
      * 更新评论数
      */
@@ -196,4 +220,29 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      */
     @Query("SELECT p.categoryId, COUNT(p) FROM Post p WHERE p.categoryId IS NOT NULL GROUP BY p.categoryId")
     List<Object[]> countByCategory();
-}
\ No newline at end of file
+
+    /**
+     * 键集分页查找公开文章，按排序字段定位，不做 OFFSET 扫描和 COUNT 查询
+     */
+    Window<Post> findByStatusAndIsPublicTrue(Post.PostStatus status, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * 根据标签查找公开文章
+     */
+    @Query("SELECT p FROM Post p WHERE p.tags LIKE %:tag% AND p.status = 'PUBLISHED' AND p.isPublic = true")
+    Slice<Post> findPublishedByTag(@Param("tag") String tag, Pageable pageable);
+
+    /**
+     * 流式读取所有公开文章（需在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT p FROM Post p WHERE p.status = 'PUBLISHED' AND p.isPublic = true ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<Post> streamPublicPosts();
+
+    /**
+     * 流式读取指定标签的公开文章（需在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT p FROM Post p WHERE p.tags LIKE %:tag% AND p.status = 'PUBLISHED' AND p.isPublic = true ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<Post> streamPublishedByTag(@Param("tag") String tag);
+}
@@ -1,8 +1,13 @@
 package com.dlut.blockchain.repository;
 
 import com.dlut.blockchain.entity.Project;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -81,7 +86,7 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
            "p.techStack LIKE %:keyword% OR " +
            "p.leaderName LIKE %:keyword%) AND " +
            "p.isPublic = true")
-    Page<Project> searchProjects(@Param("keyword") String keyword, Pageable pageable);
+    Slice<Project> searchProjects(@Param("keyword") String keyword, Pageable pageable);
 
     /**
      * 统计搜索结果总数 - 用于高效分页
@@ -166,4 +171,38 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
      * 根据项目名称和状态联合查询
      */
     Page<Project> findByNameContainingIgnoreCaseAndStatus(@Param("keyword") String keyword, @Param("status") Project.ProjectStatus status, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * 键集分页查找项目
+     */
+    Window<Project> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * 键集分页：按项目名称模糊查询（与分页接口的筛选条件一致）
+     */
+    Window<Project> findByNameContainingIgnoreCase(String keyword, ScrollPosition position, Sort sort, Limit limit);
+
+    long countByNameContainingIgnoreCase(String keyword);
+
+    /**
+     * 键集分页：按项目名称和状态联合查询
+     */
+    Window<Project> findByNameContainingIgnoreCaseAndStatus(String keyword, Project.ProjectStatus status,
+                                                            ScrollPosition position, Sort sort, Limit limit);
+
+    long countByNameContainingIgnoreCaseAndStatus(String keyword, Project.ProjectStatus status);
+
+    /**
+     * 键集分页：按状态查找公开项目
+     */
+    Window<Project> findByStatusAndIsPublicTrue(Project.ProjectStatus status, ScrollPosition position, Sort sort, Limit limit);
+
+    long countByStatusAndIsPublicTrue(Project.ProjectStatus status);
+
+    /**
+     * 键集分页：按分类查找公开项目
+     */
+    Window<Project> findByCategoryAndIsPublicTrue(Project.ProjectCategory category, ScrollPosition position, Sort sort, Limit limit);
+
+    long countByCategoryAndIsPublicTrue(Project.ProjectCategory category);
+}
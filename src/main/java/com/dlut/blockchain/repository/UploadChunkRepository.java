@@ -0,0 +1,54 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 已接收分片数据访问层
+ */
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    /**
+     * 记录已接收的分片，重复上传同一分片时覆盖原记录
+     */
+    @Modifying
+    @Query(value = "INSERT INTO upload_chunks (created_at, updated_at, version, session_id, chunk_index, chunk_size, sha256) " +
+                   "VALUES (now(), now(), 0, :sessionId, :chunkIndex, :chunkSize, :sha256) " +
+                   "ON CONFLICT (session_id, chunk_index) DO UPDATE " +
+                   "SET chunk_size = EXCLUDED.chunk_size, sha256 = EXCLUDED.sha256, updated_at = now()",
+           nativeQuery = true)
+    int upsert(@Param("sessionId") Long sessionId, @Param("chunkIndex") int chunkIndex,
+               @Param("chunkSize") long chunkSize, @Param("sha256") String sha256);
+
+    /**
+     * 已接收的分片序号
+     */
+    @Query("SELECT c.chunkIndex FROM UploadChunk c WHERE c.sessionId = :sessionId ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("sessionId") Long sessionId);
+
+    /**
+     * 已接收的分片数
+     */
+    long countBySessionId(Long sessionId);
+
+    /**
+     * 删除单个分片记录（分片写入失败时调用）
+     */
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.sessionId = :sessionId AND c.chunkIndex = :chunkIndex")
+    int deleteChunk(@Param("sessionId") Long sessionId, @Param("chunkIndex") int chunkIndex);
+
+    /**
+     * 删除会话的全部分片记录
+     */
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+}
@@ -0,0 +1,96 @@
+package com.dlut.blockchain.repository;
+
+import com.dlut.blockchain.entity.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 分片上传会话数据访问层
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+
+    /**
+     * 根据上传ID查找
+     */
+    Optional<UploadSession> findByUploadId(String uploadId);
+
+    /**
+     * 顺延过期时间
+     * 并行上传的分片会同时更新同一会话，使用批量更新避免乐观锁冲突
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.expiresAt = :expiresAt WHERE s.id = :id")
+    int extendExpiry(@Param("id") Long id, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 开始写入分片，只有上传中的会话能成功
+     * 与 beginComplete 在同一行上互斥：合并开始后不再接受分片，有分片在写入时不能开始合并
+     *
+     * @return 1 表示可以写入
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.activeWrites = s.activeWrites + 1, s.updatedAt = :now, s.expiresAt = :expiresAt " +
+           "WHERE s.id = :id AND s.status = 'UPLOADING'")
+    int beginChunkWrite(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 分片写入结束
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.activeWrites = s.activeWrites - 1 WHERE s.id = :id AND s.activeWrites > 0")
+    int endChunkWrite(@Param("id") Long id);
+
+    /**
+     * 进入合并状态，同一会话只有一个请求能成功，且必须没有正在写入的分片
+     * 长时间停留在合并状态或写入状态（如服务重启时请求中断）的会话允许重新合并
+     *
+     * @return 1 表示成功进入合并状态
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = :completing, s.activeWrites = 0, s.updatedAt = :now WHERE s.id = :id " +
+           "AND ((s.status = 'UPLOADING' AND (s.activeWrites = 0 OR s.updatedAt < :staleBefore)) " +
+           "OR (s.status = 'COMPLETING' AND s.updatedAt < :staleBefore))")
+    int beginComplete(@Param("id") Long id, @Param("completing") UploadSession.UploadStatus completing,
+                      @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * 合并失败后恢复为上传中
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = :uploading WHERE s.id = :id AND s.status = 'COMPLETING'")
+    int resetUploading(@Param("id") Long id, @Param("uploading") UploadSession.UploadStatus uploading);
+
+    /**
+     * 标记合并完成
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = :completed, s.fileId = :fileId, s.expiresAt = :expiresAt WHERE s.id = :id")
+    int markCompleted(@Param("id") Long id, @Param("completed") UploadSession.UploadStatus completed,
+                      @Param("fileId") Long fileId, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 查找已过期的会话
+     */
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime time, Pageable pageable);
+
+    /**
+     * 上传者未完成的分片上传会话总大小（配额检查时计入）
+     */
+    @Query("SELECT COALESCE(SUM(s.totalSize), 0) FROM UploadSession s WHERE s.uploadedBy = :uploadedBy AND s.status <> 'COMPLETED'")
+    long sumPendingSizeByUploadedBy(@Param("uploadedBy") String uploadedBy);
+
+    /**
+     * 所有未完成的分片上传会话总大小
+     */
+    @Query("SELECT COALESCE(SUM(s.totalSize), 0) FROM UploadSession s WHERE s.status <> 'COMPLETED'")
+    long sumPendingSize();
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.dlut.blockchain.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 近似总数服务
+ * 游标分页不做 COUNT 查询；客户端需要总数时返回在有效期内缓存的计数结果
+ */
+@Slf4j
+@Service
+public class ApproximateCountService {
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    @Value("${pagination.approximate-count-ttl:5m}")
+    private Duration ttl;
+
+    /**
+     * 获取近似总数，缓存过期后才重新执行计数查询
+     *
+     * @param key     计数键，如 posts:published
+     * @param counter 实际的计数查询
+     */
+    public long count(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.value();
+        }
+        // 并发过期时同一个键只计数一次
+        return counts.compute(key, (k, current) -> {
+            if (current != null && current.expiresAt() > now) {
+                return current;
+            }
+            long value = counter.getAsLong();
+            log.debug("刷新近似总数: {} = {}", k, value);
+            return new CachedCount(value, now + ttl.toMillis());
+        }).value();
+    }
+
+    /**
+     * 使指定前缀的计数失效（数据发生增删时调用）
+     */
+    public void evict(String keyPrefix) {
+        counts.keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+
+    private record CachedCount(long value, long expiresAt) {
+    }
+}
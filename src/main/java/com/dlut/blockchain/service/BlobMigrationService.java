@@ -0,0 +1,304 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.FileBlob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileBlobRepository;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.storage.BlobStore;
+import com.dlut.blockchain.storage.BlobStoreRegistry;
+import com.dlut.blockchain.storage.LocalBlobStore;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储后端迁移服务
+ * 在后台把文件内容从一个存储后端并行复制到另一个，校验大小后切换 file_blobs.storage_backend，
+ * 同时把去重存储之前上传、只保存在本地磁盘的旧文件登记为内容地址存储
+ * 同一时间只允许一个迁移任务运行
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlobMigrationService {
+
+    private final FileBlobRepository fileBlobRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final FileBlobService fileBlobService;
+    private final FileMetadataCache fileMetadataCache;
+    private final BlobStoreRegistry blobStoreRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.storage.migration.batch-size:100}")
+    private int batchSize;
+
+    @Value("${file.storage.migration.max-parallelism:16}")
+    private int maxParallelism;
+
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "blob-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Progress current;
+
+    /**
+     * 迁移进度
+     */
+    private static final class Progress {
+        final String from;
+        final String to;
+        final int parallelism;
+        final boolean deleteSource;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong adopted = new AtomicLong();
+        final AtomicLong migrated = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile LocalDateTime finishedAt;
+        volatile boolean cancelled;
+        volatile String error;
+
+        Progress(String from, String to, int parallelism, boolean deleteSource) {
+            this.from = from;
+            this.to = to;
+            this.parallelism = parallelism;
+            this.deleteSource = deleteSource;
+        }
+
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+    }
+
+    /**
+     * 启动迁移任务
+     *
+     * @param deleteSource 迁移成功后是否删除源后端中的内容
+     */
+    public synchronized Map<String, Object> start(String from, String to, int parallelism, boolean deleteSource) {
+        if (!blobStoreRegistry.names().contains(from) || !blobStoreRegistry.names().contains(to)) {
+            throw new IllegalArgumentException("未配置的存储后端，可用后端: " + blobStoreRegistry.names());
+        }
+        if (from.equals(to)) {
+            throw new IllegalArgumentException("源后端和目标后端不能相同");
+        }
+        if (current != null && current.isRunning()) {
+            throw new IllegalStateException("已有迁移任务正在运行");
+        }
+        Progress progress = new Progress(from, to, Math.max(1, Math.min(parallelism, maxParallelism)), deleteSource);
+        current = progress;
+        launcher.submit(() -> run(progress));
+        log.info("启动存储迁移: {} -> {}, 并行度: {}", from, to, progress.parallelism);
+        return getStatus();
+    }
+
+    /**
+     * 取消当前迁移任务（正在复制的内容会完成）
+     */
+    public Map<String, Object> cancel() {
+        Progress progress = current;
+        if (progress != null) {
+            progress.cancelled = true;
+        }
+        return getStatus();
+    }
+
+    /**
+     * 当前或最近一次迁移任务的进度
+     */
+    public Map<String, Object> getStatus() {
+        Progress progress = current;
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (progress == null) {
+            status.put("running", false);
+            return status;
+        }
+        status.put("running", progress.isRunning());
+        status.put("from", progress.from);
+        status.put("to", progress.to);
+        status.put("parallelism", progress.parallelism);
+        status.put("deleteSource", progress.deleteSource);
+        status.put("adopted", progress.adopted.get());
+        status.put("migrated", progress.migrated.get());
+        status.put("failed", progress.failed.get());
+        status.put("cancelled", progress.cancelled);
+        status.put("startedAt", progress.startedAt);
+        status.put("finishedAt", progress.finishedAt);
+        status.put("error", progress.error);
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        launcher.shutdownNow();
+    }
+
+    private void run(Progress progress) {
+        ExecutorService workers = Executors.newFixedThreadPool(progress.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "blob-migration-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (LocalBlobStore.NAME.equals(progress.from)) {
+                adoptLegacyFiles(progress, workers);
+            }
+            migrateBlobs(progress, workers);
+        } catch (Exception e) {
+            progress.error = e.getMessage();
+            log.error("存储迁移失败", e);
+        } finally {
+            workers.shutdownNow();
+            progress.finishedAt = LocalDateTime.now();
+            log.info("存储迁移结束: {} -> {}, 登记旧文件: {}, 迁移: {}, 失败: {}", progress.from, progress.to,
+                    progress.adopted.get(), progress.migrated.get(), progress.failed.get());
+        }
+    }
+
+    /**
+     * 按ID顺序分批迁移源后端中的内容，每批内并行复制
+     */
+    private void migrateBlobs(Progress progress, ExecutorService workers) throws InterruptedException {
+        BlobStore source = blobStoreRegistry.get(progress.from);
+        BlobStore target = blobStoreRegistry.get(progress.to);
+        long lastId = 0;
+        while (!progress.cancelled) {
+            List<FileBlob> batch = fileBlobRepository.findByStorageBackendAndIdGreaterThanOrderByIdAsc(
+                    progress.from, lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+            for (FileBlob blob : batch) {
+                tasks.add(() -> {
+                    migrateBlob(blob, source, target, progress);
+                    return null;
+                });
+            }
+            workers.invokeAll(tasks);
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    private void migrateBlob(FileBlob blob, BlobStore source, BlobStore target, Progress progress) {
+        String key = blob.getStoragePath();
+        try {
+            if (target.size(key) != blob.getFileSize()) {
+                try (InputStream in = source.open(key)) {
+                    target.put(key, in, blob.getFileSize());
+                }
+                if (target.size(key) != blob.getFileSize()) {
+                    throw new IOException("目标后端内容大小不一致");
+                }
+            }
+            String location = target.location(key);
+            Integer updated = transactionTemplate.execute(status -> {
+                int count = fileBlobRepository.updateBackend(blob.getId(), progress.from, progress.to);
+                if (count > 0) {
+                    fileUploadRepository.updateFilePathByChecksum(blob.getSha256(), location);
+                    fileMetadataCache.invalidateLocation(blob.getSha256());
+                }
+                return count;
+            });
+            if (updated != null && updated > 0) {
+                progress.migrated.incrementAndGet();
+                if (progress.deleteSource) {
+                    source.delete(key);
+                }
+            }
+        } catch (Exception e) {
+            progress.failed.incrementAndGet();
+            log.warn("迁移文件内容失败: sha256={}, {}", blob.getSha256(), e.getMessage());
+        }
+    }
+
+    /**
+     * 把只保存在本地磁盘的旧文件登记为内容地址存储（写入当前启用的后端）
+     */
+    private void adoptLegacyFiles(Progress progress, ExecutorService workers) throws InterruptedException {
+        long lastId = 0;
+        while (!progress.cancelled) {
+            List<FileUpload> batch = fileUploadRepository.findByChecksumIsNullAndIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+            for (FileUpload fileUpload : batch) {
+                tasks.add(() -> {
+                    adoptLegacyFile(fileUpload, progress);
+                    return null;
+                });
+            }
+            workers.invokeAll(tasks);
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    private void adoptLegacyFile(FileUpload fileUpload, Progress progress) {
+        Path legacyFile = Paths.get(fileUpload.getFilePath());
+        if (!Files.isRegularFile(legacyFile)) {
+            progress.failed.incrementAndGet();
+            log.warn("旧文件不存在，跳过: id={}, path={}", fileUpload.getId(), legacyFile);
+            return;
+        }
+        FileBlobService.StagedFile staged = null;
+        try {
+            try (InputStream in = Files.newInputStream(legacyFile)) {
+                staged = fileBlobService.stage(in);
+            }
+            FileBlobService.StagedFile content = staged;
+            String extension = extensionOf(fileUpload.getFileName());
+            Boolean adopted = transactionTemplate.execute(status -> {
+                try {
+                    String location = fileBlobService.store(content, extension);
+                    if (fileUploadRepository.adoptContent(fileUpload.getId(), content.sha256(), location) == 0) {
+                        // 记录已被删除或已登记，回滚引用计数
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    fileMetadataCache.invalidate(fileUpload.getFileName());
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (Boolean.TRUE.equals(adopted)) {
+                Files.deleteIfExists(legacyFile);
+                progress.adopted.incrementAndGet();
+            }
+        } catch (Exception e) {
+            progress.failed.incrementAndGet();
+            log.warn("登记旧文件失败: id={}, {}", fileUpload.getId(), e.getMessage());
+        } finally {
+            fileBlobService.discard(staged);
+        }
+    }
+
+    private String extensionOf(String fileName) {
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex == -1 ? "" : fileName.substring(lastDotIndex + 1).toLowerCase();
+    }
+}
@@ -0,0 +1,399 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.dto.FileUploadDto;
+import com.dlut.blockchain.dto.UploadInitRequest;
+import com.dlut.blockchain.dto.UploadSessionDto;
+import com.dlut.blockchain.entity.UploadSession;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.repository.UploadChunkRepository;
+import com.dlut.blockchain.repository.UploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 分片上传服务
+ * 初始化会话后，客户端可并行上传分片，每个分片直接按偏移写入预分配的暂存文件（FileChannel 定位写入，不经过堆内存缓冲），
+ * 全部分片到齐后校验整个文件的 SHA-256，并交给 FileBlobService 做内容去重存储
+ * 会话状态持久化在数据库中，服务重启后可以查询已接收分片并续传，过期会话由定时任务清理
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final FileStorageService fileStorageService;
+    private final FileUsageService fileUsageService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.staging-dir:uploads-staging}")
+    private String stagingDir;
+
+    @Value("${file.chunked.max-file-size:5GB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.chunked.default-chunk-size:8MB}")
+    private DataSize defaultChunkSize;
+
+    @Value("${file.chunked.min-chunk-size:1MB}")
+    private DataSize minChunkSize;
+
+    @Value("${file.chunked.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${file.chunked.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Value("${file.chunked.complete-timeout:1h}")
+    private Duration completeTimeout;
+
+    /**
+     * 初始化上传会话，预分配暂存文件
+     */
+    public UploadSessionDto initUpload(UploadInitRequest request, String uploadedBy) throws IOException {
+        String originalName = StringUtils.cleanPath(request.getFileName());
+        try {
+            fileStorageService.validateFileName(originalName);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        if (request.getTotalSize() > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("文件大小超过限制: " + maxFileSize.toMegabytes() + "MB");
+        }
+        // 配额在初始化时检查，已创建的会话计入已用空间，避免并发初始化多个会话绕过配额
+        fileUsageService.checkQuota(uploadedBy, request.getTotalSize());
+
+        int chunkSize = resolveChunkSize(request.getChunkSize());
+        long totalChunks = (request.getTotalSize() + chunkSize - 1) / chunkSize;
+        String uploadId = UUID.randomUUID().toString();
+
+        Path directory = Paths.get(stagingDir, "chunked");
+        Files.createDirectories(directory);
+        Path stagingFile = directory.resolve(uploadId + ".part");
+        // 预分配（稀疏文件），各分片按偏移写入互不影响
+        try (RandomAccessFile file = new RandomAccessFile(stagingFile.toFile(), "rw")) {
+            file.setLength(request.getTotalSize());
+        }
+
+        UploadSession session = new UploadSession();
+        session.setUploadId(uploadId);
+        session.setOriginalName(originalName);
+        session.setFileType(request.getFileType());
+        session.setCategory(request.getCategory());
+        session.setDescription(request.getDescription());
+        session.setUploadedBy(uploadedBy);
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setTotalChunks(Math.toIntExact(totalChunks));
+        session.setStagingPath(stagingFile.toString());
+        session.setStatus(UploadSession.UploadStatus.UPLOADING);
+        session.setExpiresAt(LocalDateTime.now().plus(sessionTtl));
+        try {
+            session = uploadSessionRepository.save(session);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(stagingFile);
+            throw e;
+        }
+
+        log.info("初始化分片上传: uploadId={}, 文件: {}, 大小: {} bytes, 分片数: {}",
+                uploadId, originalName, request.getTotalSize(), totalChunks);
+        return convertToDto(session, List.of());
+    }
+
+    /**
+     * 接收一个分片
+     * 写入前在会话行上登记（beginChunkWrite），合并开始后的分片会被拒绝，合并也会等待已开始的分片写完
+     *
+     * @param body           分片内容（请求体）
+     * @param expectedSha256 客户端计算的分片 SHA-256，为空时不校验
+     */
+    public Map<String, Object> uploadChunk(String uploadId, int index, InputStream body, String expectedSha256)
+            throws IOException {
+        UploadSession session = getActiveSession(uploadId);
+        if (index < 0 || index >= session.getTotalChunks()) {
+            throw new IllegalArgumentException("分片序号超出范围: " + index);
+        }
+        long offset = (long) index * session.getChunkSize();
+        long expectedLength = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+
+        LocalDateTime now = LocalDateTime.now();
+        Integer started = transactionTemplate.execute(status ->
+                uploadSessionRepository.beginChunkWrite(session.getId(), now, now.plus(sessionTtl)));
+        if (started == null || started == 0) {
+            throw new IllegalStateException("上传会话不接受分片: " + uploadId);
+        }
+        try {
+            return writeChunk(session, index, offset, expectedLength, body, expectedSha256);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> uploadSessionRepository.endChunkWrite(session.getId()));
+        }
+    }
+
+    private Map<String, Object> writeChunk(UploadSession session, int index, long offset, long expectedLength,
+                                           InputStream body, String expectedSha256) throws IOException {
+        MessageDigest digest = newDigest();
+        long written = 0;
+        boolean overflow;
+        try (FileChannel channel = FileChannel.open(Paths.get(session.getStagingPath()), StandardOpenOption.WRITE);
+             ReadableByteChannel source = Channels.newChannel(new DigestInputStream(body, digest))) {
+            while (written < expectedLength) {
+                long transferred = channel.transferFrom(source, offset + written, expectedLength - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            overflow = written == expectedLength && body.read() != -1;
+        } catch (IOException e) {
+            discardChunk(session, index);
+            throw e;
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (written != expectedLength || overflow) {
+            discardChunk(session, index);
+            throw new IllegalArgumentException("分片大小不正确: 期望 " + expectedLength + " 字节");
+        }
+        if (StringUtils.hasText(expectedSha256) && !expectedSha256.trim().equalsIgnoreCase(sha256)) {
+            discardChunk(session, index);
+            throw new IllegalArgumentException("分片校验失败: " + index);
+        }
+
+        long chunkLength = written;
+        transactionTemplate.executeWithoutResult(status -> {
+            uploadChunkRepository.upsert(session.getId(), index, chunkLength, sha256);
+            uploadSessionRepository.extendExpiry(session.getId(), LocalDateTime.now().plus(sessionTtl));
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("size", chunkLength);
+        result.put("sha256", sha256);
+        return result;
+    }
+
+    /**
+     * 查询上传进度（用于续传）
+     */
+    public UploadSessionDto getUploadStatus(String uploadId) {
+        UploadSession session = findSession(uploadId);
+        return convertToDto(session, uploadChunkRepository.findChunkIndexes(session.getId()));
+    }
+
+    /**
+     * 合并完成上传
+     * 整个文件的哈希计算在事务外进行，通过会话状态保证同一会话只合并一次
+     *
+     * @param expectedSha256 客户端计算的整个文件 SHA-256，为空时不校验
+     */
+    public UploadSessionDto completeUpload(String uploadId, String expectedSha256) throws IOException {
+        UploadSession session = findSession(uploadId);
+        if (session.getStatus() == UploadSession.UploadStatus.COMPLETED) {
+            return convertToDto(session, List.of());
+        }
+        checkNotExpired(session);
+        long received = uploadChunkRepository.countBySessionId(session.getId());
+        if (received < session.getTotalChunks()) {
+            throw new IllegalStateException("分片未上传完整: " + received + "/" + session.getTotalChunks());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> uploadSessionRepository.beginComplete(
+                session.getId(), UploadSession.UploadStatus.COMPLETING, now, now.minus(completeTimeout)));
+        if (claimed == null || claimed == 0) {
+            throw new IllegalStateException("上传正在合并中或仍有分片在写入: " + uploadId);
+        }
+
+        Path stagingFile = Paths.get(session.getStagingPath());
+        boolean completed = false;
+        try {
+            String sha256 = hash(stagingFile);
+            if (StringUtils.hasText(expectedSha256) && !expectedSha256.trim().equalsIgnoreCase(sha256)) {
+                throw new IllegalArgumentException("文件校验失败，请重新上传");
+            }
+
+            FileBlobService.StagedFile staged = new FileBlobService.StagedFile(stagingFile, sha256, session.getTotalSize());
+            FileUploadDto file = transactionTemplate.execute(status -> {
+                try {
+                    FileUploadDto saved = fileStorageService.registerStagedFile(staged, session.getOriginalName(),
+                            session.getFileType(), session.getCategory(), session.getDescription(), session.getUploadedBy());
+                    // 完成后的会话保留到过期，便于客户端重试合并请求时返回同一结果
+                    uploadSessionRepository.markCompleted(session.getId(), UploadSession.UploadStatus.COMPLETED,
+                            saved.getId(), LocalDateTime.now().plus(sessionTtl));
+                    uploadChunkRepository.deleteBySessionId(session.getId());
+                    return saved;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            log.info("分片上传完成: uploadId={}, 文件ID: {}", uploadId, file.getId());
+            UploadSessionDto dto = convertToDto(session, List.of());
+            dto.setStatus(UploadSession.UploadStatus.COMPLETED);
+            dto.setFileId(file.getId());
+            dto.setFile(file);
+            completed = true;
+            return dto;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!completed) {
+                // 合并失败，恢复为上传中以便客户端重传后再次合并
+                transactionTemplate.executeWithoutResult(status ->
+                        uploadSessionRepository.resetUploading(session.getId(), UploadSession.UploadStatus.UPLOADING));
+            }
+        }
+    }
+
+    /**
+     * 取消上传，删除暂存文件和会话
+     */
+    public void abortUpload(String uploadId) {
+        UploadSession session = findSession(uploadId);
+        if (session.getStatus() == UploadSession.UploadStatus.COMPLETING) {
+            throw new IllegalStateException("上传正在合并中: " + uploadId);
+        }
+        removeSession(session);
+        log.info("取消分片上传: uploadId={}", uploadId);
+    }
+
+    /**
+     * 定时清理过期会话及其暂存文件
+     * 按批处理直到没有过期会话；某一批全部清理失败时停止，留到下个周期重试
+     */
+    @Scheduled(fixedDelayString = "${file.chunked.cleanup-interval:1h}", initialDelayString = "${file.chunked.cleanup-interval:1h}")
+    public void cleanupExpiredSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        int removed = 0;
+        while (true) {
+            List<UploadSession> expired = uploadSessionRepository.findByExpiresAtBefore(now, PageRequest.of(0, CLEANUP_BATCH_SIZE));
+            int batchRemoved = 0;
+            for (UploadSession session : expired) {
+                try {
+                    removeSession(session);
+                    batchRemoved++;
+                } catch (Exception e) {
+                    log.warn("清理上传会话失败: uploadId={}, {}", session.getUploadId(), e.getMessage());
+                }
+            }
+            removed += batchRemoved;
+            if (expired.size() < CLEANUP_BATCH_SIZE || batchRemoved == 0) {
+                break;
+            }
+        }
+        if (removed > 0) {
+            log.info("清理过期上传会话: {} 个", removed);
+        }
+    }
+
+    private void removeSession(UploadSession session) {
+        try {
+            Files.deleteIfExists(Paths.get(session.getStagingPath()));
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败: {}", session.getStagingPath(), e);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            uploadChunkRepository.deleteBySessionId(session.getId());
+            uploadSessionRepository.deleteById(session.getId());
+        });
+    }
+
+    /**
+     * 分片写入失败时删除分片记录，使其重新显示为未上传
+     */
+    private void discardChunk(UploadSession session, int index) {
+        transactionTemplate.executeWithoutResult(status -> uploadChunkRepository.deleteChunk(session.getId(), index));
+    }
+
+    private UploadSession findSession(String uploadId) {
+        return uploadSessionRepository.findByUploadId(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("上传会话不存在: " + uploadId));
+    }
+
+    private UploadSession getActiveSession(String uploadId) {
+        UploadSession session = findSession(uploadId);
+        if (session.getStatus() != UploadSession.UploadStatus.UPLOADING) {
+            throw new IllegalStateException("上传会话不接受分片: " + session.getStatus());
+        }
+        checkNotExpired(session);
+        return session;
+    }
+
+    private void checkNotExpired(UploadSession session) {
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ResourceNotFoundException("上传会话已过期: " + session.getUploadId());
+        }
+    }
+
+    /**
+     * 分片大小限制在配置范围内，文件小于最小分片时整个文件作为一个分片
+     */
+    private int resolveChunkSize(Integer requested) {
+        long size = requested != null ? requested : defaultChunkSize.toBytes();
+        size = Math.max(minChunkSize.toBytes(), Math.min(size, maxChunkSize.toBytes()));
+        return Math.toIntExact(size);
+    }
+
+    private String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private UploadSessionDto convertToDto(UploadSession session, List<Integer> receivedChunks) {
+        UploadSessionDto dto = new UploadSessionDto();
+        dto.setUploadId(session.getUploadId());
+        dto.setOriginalName(session.getOriginalName());
+        dto.setTotalSize(session.getTotalSize());
+        dto.setChunkSize(session.getChunkSize());
+        dto.setTotalChunks(session.getTotalChunks());
+        dto.setReceivedChunks(receivedChunks);
+        dto.setStatus(session.getStatus());
+        dto.setExpiresAt(session.getExpiresAt());
+        dto.setFileId(session.getFileId());
+        return dto;
+    }
+}
@@ -0,0 +1,247 @@
+package com.dlut.blockchain.service;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库连接池监控和自适应调整
+ * 连接池指标（活跃、空闲、等待线程、获取连接耗时、超时）由 Spring Boot 注册到 hikaricp.* 指标；
+ * 开启自适应调整后按周期检查获取连接的平均耗时和等待线程：连接紧张时在上限和数据库剩余连接数内扩容，
+ * 持续空闲时缩容
+ */
+@Slf4j
+@Service
+public class ConnectionPoolService {
+
+    private final HikariDataSource hikariDataSource;
+    /**
+     * 查询数据库剩余连接数专用，不经过连接池：需要扩容时连接池已经紧张，从池中取连接会等到超时
+     */
+    private final JdbcTemplate headroomJdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final boolean adaptiveEnabled;
+    private final int minSize;
+    private final int maxSize;
+    private final int step;
+    private final Duration targetAcquireTime;
+    private final int reservedConnections;
+    private final int shrinkAfter;
+
+    /**
+     * 上一周期的获取连接次数、总耗时和超时次数，用于计算本周期的增量
+     */
+    private long lastAcquireCount;
+    private double lastAcquireTotalNanos;
+    private double lastTimeouts;
+    private int idleIntervals;
+    private volatile Map<String, Object> lastDecision;
+
+    public ConnectionPoolService(DataSource dataSource,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${performance.pool.adaptive.enabled:false}") boolean adaptiveEnabled,
+                                 @Value("${performance.pool.adaptive.min-size:10}") int minSize,
+                                 @Value("${performance.pool.adaptive.max-size:50}") int maxSize,
+                                 @Value("${performance.pool.adaptive.step:5}") int step,
+                                 @Value("${performance.pool.adaptive.target-acquire-time:20ms}") Duration targetAcquireTime,
+                                 @Value("${performance.pool.adaptive.reserved-connections:10}") int reservedConnections,
+                                 @Value("${performance.pool.adaptive.shrink-after:10}") int shrinkAfter,
+                                 @Value("${performance.pool.adaptive.headroom-timeout:5s}") Duration headroomTimeout) {
+        // 数据源可能被链路追踪的代理包装，取出其中的 Hikari 连接池
+        this.hikariDataSource = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+        this.meterRegistry = meterRegistry;
+        this.adaptiveEnabled = adaptiveEnabled && hikariDataSource != null;
+        this.headroomJdbcTemplate = this.adaptiveEnabled ? headroomJdbcTemplate(headroomTimeout) : null;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.step = step;
+        this.targetAcquireTime = targetAcquireTime;
+        this.reservedConnections = reservedConnections;
+        this.shrinkAfter = shrinkAfter;
+    }
+
+    /**
+     * 连接池当前状态和获取连接的耗时（毫秒）
+     */
+    public Map<String, Object> getPoolMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        if (hikariDataSource == null) {
+            metrics.put("available", false);
+            return metrics;
+        }
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        metrics.put("poolName", hikariDataSource.getPoolName());
+        metrics.put("maximumPoolSize", hikariDataSource.getMaximumPoolSize());
+        metrics.put("minimumIdle", hikariDataSource.getMinimumIdle());
+        if (pool != null) {
+            metrics.put("active", pool.getActiveConnections());
+            metrics.put("idle", pool.getIdleConnections());
+            metrics.put("total", pool.getTotalConnections());
+            metrics.put("pending", pool.getThreadsAwaitingConnection());
+        }
+        metrics.put("timeouts", timeouts());
+
+        Timer acquire = acquireTimer();
+        Map<String, Object> acquireTime = new LinkedHashMap<>();
+        if (acquire != null) {
+            HistogramSnapshot snapshot = acquire.takeSnapshot();
+            acquireTime.put("count", snapshot.count());
+            acquireTime.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+            acquireTime.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                acquireTime.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        metrics.put("acquireTime", acquireTime);
+
+        Map<String, Object> adaptive = new LinkedHashMap<>();
+        adaptive.put("enabled", adaptiveEnabled);
+        adaptive.put("minSize", minSize);
+        adaptive.put("maxSize", maxSize);
+        adaptive.put("targetAcquireTime", targetAcquireTime.toMillis());
+        adaptive.put("lastDecision", lastDecision);
+        metrics.put("adaptive", adaptive);
+        return metrics;
+    }
+
+    /**
+     * 按周期调整连接池大小
+     * 扩容：本周期有获取连接超时、平均获取耗时超过目标，或有线程在等待连接；扩容量不超过数据库剩余的连接数
+     * 缩容：连续 shrink-after 个周期没有等待且活跃连接不到一半
+     */
+    @Scheduled(fixedDelayString = "${performance.pool.adaptive.interval:30s}",
+            initialDelayString = "${performance.pool.adaptive.interval:30s}")
+    public synchronized void adjustPoolSize() {
+        if (!adaptiveEnabled || hikariDataSource.getHikariPoolMXBean() == null) {
+            return;
+        }
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        int current = hikariDataSource.getMaximumPoolSize();
+        int active = pool.getActiveConnections();
+        int pending = pool.getThreadsAwaitingConnection();
+
+        Timer acquire = acquireTimer();
+        long acquireCount = acquire != null ? acquire.count() : 0;
+        double acquireTotal = acquire != null ? acquire.totalTime(TimeUnit.NANOSECONDS) : 0;
+        double timeouts = timeouts();
+        long intervalCount = acquireCount - lastAcquireCount;
+        double meanAcquireNanos = intervalCount > 0 ? (acquireTotal - lastAcquireTotalNanos) / intervalCount : 0;
+        boolean timedOut = timeouts > lastTimeouts;
+        lastAcquireCount = acquireCount;
+        lastAcquireTotalNanos = acquireTotal;
+        lastTimeouts = timeouts;
+
+        boolean saturated = timedOut || pending > 0 || meanAcquireNanos > targetAcquireTime.toNanos();
+        String reason;
+        int target = current;
+        if (saturated) {
+            idleIntervals = 0;
+            if (current >= maxSize) {
+                reason = "连接紧张，已达上限";
+            } else {
+                int headroom = databaseHeadroom();
+                target = Math.min(Math.min(current + step, maxSize), current + headroom);
+                reason = target > current ? "连接紧张，扩容" : "连接紧张，数据库剩余连接不足";
+            }
+        } else if (active * 2 < current && pending == 0) {
+            idleIntervals++;
+            if (idleIntervals >= shrinkAfter && current > minSize) {
+                target = Math.max(current - step, minSize);
+                idleIntervals = 0;
+                reason = "持续空闲，缩容";
+            } else {
+                reason = "空闲";
+            }
+        } else {
+            idleIntervals = 0;
+            reason = "正常";
+        }
+
+        if (target != current) {
+            hikariDataSource.setMaximumPoolSize(target);
+            if (hikariDataSource.getMinimumIdle() > target) {
+                hikariDataSource.setMinimumIdle(target);
+            }
+            log.info("调整连接池 {} 大小: {} -> {}（{}，活跃 {}，等待 {}，平均获取耗时 {}ms）",
+                    hikariDataSource.getPoolName(), current, target, reason, active, pending,
+                    TimeUnit.NANOSECONDS.toMillis((long) meanAcquireNanos));
+        }
+
+        Map<String, Object> decision = new LinkedHashMap<>();
+        decision.put("time", LocalDateTime.now());
+        decision.put("reason", reason);
+        decision.put("from", current);
+        decision.put("to", target);
+        decision.put("active", active);
+        decision.put("pending", pending);
+        decision.put("meanAcquireTime", meanAcquireNanos / TimeUnit.MILLISECONDS.toNanos(1));
+        decision.put("timedOut", timedOut);
+        lastDecision = decision;
+    }
+
+    /**
+     * 数据库还能为本实例提供的连接数：max_connections 减去超级用户保留连接、当前客户端连接和预留给其他实例的连接
+     */
+    private int databaseHeadroom() {
+        try {
+            Integer headroom = headroomJdbcTemplate.queryForObject(
+                    "SELECT current_setting('max_connections')::int "
+                            + "- current_setting('superuser_reserved_connections')::int "
+                            + "- (SELECT count(*) FROM pg_stat_activity WHERE backend_type = 'client backend')::int",
+                    Integer.class);
+            return headroom == null ? 0 : Math.max(headroom - reservedConnections, 0);
+        } catch (Exception e) {
+            log.warn("查询数据库剩余连接数失败，本周期不扩容: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 按连接池的地址和账号直接建立连接，每次查询单独建连并关闭，不占用池中的连接
+     */
+    private JdbcTemplate headroomJdbcTemplate(Duration timeout) {
+        DriverManagerDataSource direct = new DriverManagerDataSource(
+                hikariDataSource.getJdbcUrl(), hikariDataSource.getUsername(), hikariDataSource.getPassword());
+        Properties properties = new Properties();
+        properties.setProperty("connectTimeout", String.valueOf(timeout.toSeconds()));
+        properties.setProperty("loginTimeout", String.valueOf(timeout.toSeconds()));
+        direct.setConnectionProperties(properties);
+        JdbcTemplate template = new JdbcTemplate(direct);
+        template.setQueryTimeout((int) timeout.toSeconds());
+        return template;
+    }
+
+    private Timer acquireTimer() {
+        return meterRegistry.find("hikaricp.connections.acquire")
+                .tag("pool", hikariDataSource.getPoolName())
+                .timer();
+    }
+
+    private double timeouts() {
+        Counter counter = meterRegistry.find("hikaricp.connections.timeout")
+                .tag("pool", hikariDataSource.getPoolName())
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,280 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.FileBlob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileBlobRepository;
+import com.dlut.blockchain.storage.BlobStore;
+import com.dlut.blockchain.storage.BlobStoreRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件内容存储服务
+ * 上传内容先流式写入暂存目录并同时计算 SHA-256，再按内容地址（ab/cd/&lt;sha256&gt;.ext）存入当前存储后端；
+ * 相同内容只保存一份，引用计数归零且超过保留期后由定时任务删除，另有定时任务校验磁盘内容的完整性
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileBlobService {
+
+    private final FileBlobRepository fileBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStoreRegistry blobStoreRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 暂存目录，必须位于静态资源目录之外
+     */
+    @Value("${file.staging-dir:uploads-staging}")
+    private String stagingDir;
+
+    @Value("${file.blob.unreferenced-retention:24h}")
+    private Duration unreferencedRetention;
+
+    @Value("${file.blob.reverify-after:30d}")
+    private Duration reverifyAfter;
+
+    @Value("${file.blob.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 已写入暂存目录的上传内容
+     */
+    public record StagedFile(Path path, String sha256, long size) {
+    }
+
+    /**
+     * 将输入流写入暂存目录，同时计算 SHA-256
+     */
+    public StagedFile stage(InputStream inputStream) throws IOException {
+        Path directory = Paths.get(stagingDir);
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "upload-", ".tmp");
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(inputStream, digest)) {
+            long size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return new StagedFile(tempFile, HexFormat.of().formatHex(digest.digest()), size);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 保存暂存内容并增加引用计数，内容已存在时直接丢弃暂存文件
+     * 必须在调用方的事务中执行：内容行锁持有到事务提交，保证不会被清理任务同时删除
+     *
+     * @return 内容的存储位置
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String store(StagedFile staged, String extension) throws IOException {
+        FileBlob blob = reference(staged.sha256(), extension, staged.size());
+        BlobStore store = storeOf(blob);
+        if (blob.getStatus() == FileBlob.BlobStatus.ACTIVE && store.size(blob.getStoragePath()) == staged.size()) {
+            Files.deleteIfExists(staged.path());
+            log.info("文件内容已存在，复用: {}", staged.sha256());
+        } else {
+            // 新内容，或原有内容已损坏/丢失时用本次上传覆盖修复
+            store.put(blob.getStoragePath(), staged.path());
+            if (blob.getStatus() != FileBlob.BlobStatus.ACTIVE) {
+                fileBlobRepository.markActive(staged.sha256());
+                log.warn("文件内容已由新上传修复: {}", staged.sha256());
+            }
+        }
+        return store.location(blob.getStoragePath());
+    }
+
+    /**
+     * 登记客户端通过预签名地址直接上传到存储后端的内容并增加引用计数
+     *
+     * @return 内容的存储位置
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String storeUploaded(String sha256, String extension, long size) {
+        FileBlob blob = reference(sha256, extension, size);
+        BlobStore store = storeOf(blob);
+        if (store.size(blob.getStoragePath()) != size) {
+            throw new IllegalStateException("存储中未找到上传的内容: " + sha256);
+        }
+        if (blob.getStatus() != FileBlob.BlobStatus.ACTIVE) {
+            fileBlobRepository.markActive(sha256);
+        }
+        return store.location(blob.getStoragePath());
+    }
+
+    /**
+     * 根据内容哈希查找
+     */
+    public Optional<FileBlob> find(String sha256) {
+        return fileBlobRepository.findBySha256(sha256);
+    }
+
+    /**
+     * 内容所在的存储后端
+     */
+    public BlobStore storeOf(FileBlob blob) {
+        return blobStoreRegistry.get(blob.getStorageBackend());
+    }
+
+    /**
+     * 打开文件记录对应的内容，去重存储之前上传的文件直接读取本地路径
+     */
+    public InputStream open(FileUpload fileUpload) throws IOException {
+        if (fileUpload.getChecksum() != null) {
+            FileBlob blob = find(fileUpload.getChecksum())
+                    .orElseThrow(() -> new IOException("文件内容不存在: " + fileUpload.getChecksum()));
+            return storeOf(blob).open(blob.getStoragePath());
+        }
+        return Files.newInputStream(Paths.get(fileUpload.getFilePath()));
+    }
+
+    /**
+     * 内容地址：两级目录分散存储，避免单目录文件过多
+     */
+    public String contentKey(String sha256, String extension) {
+        String fileName = extension == null || extension.isEmpty() ? sha256 : sha256 + "." + extension;
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + fileName;
+    }
+
+    /**
+     * 释放一次引用，磁盘文件在引用归零并超过保留期后由清理任务删除
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String sha256) {
+        fileBlobRepository.decrementReference(sha256);
+    }
+
+    /**
+     * 删除未被使用的暂存文件
+     */
+    public void discard(StagedFile staged) {
+        if (staged == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(staged.path());
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败: {}", staged.path(), e);
+        }
+    }
+
+    /**
+     * 定时删除无引用的内容
+     */
+    @Scheduled(cron = "${file.blob.purge-cron:0 0 4 * * ?}")
+    public void purgeUnreferenced() {
+        LocalDateTime before = LocalDateTime.now().minus(unreferencedRetention);
+        int purged = 0;
+        Integer batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<FileBlob> blobs = fileBlobRepository.lockUnreferenced(before, batchSize);
+                for (FileBlob blob : blobs) {
+                    try {
+                        storeOf(blob).delete(blob.getStoragePath());
+                        Counter.builder("file.gc.reclaimed")
+                                .description("Bytes reclaimed by deleting files from disk")
+                                .baseUnit("bytes")
+                                .tag("source", "blob")
+                                .register(meterRegistry)
+                                .increment(blob.getFileSize());
+                    } catch (IOException e) {
+                        log.warn("删除文件内容失败: {}", blob.getStoragePath(), e);
+                    }
+                    fileBlobRepository.delete(blob);
+                }
+                return blobs.size();
+            });
+            purged += batch == null ? 0 : batch;
+        } while (batch != null && batch == batchSize);
+        if (purged > 0) {
+            log.info("清理无引用文件内容: {} 个", purged);
+        }
+    }
+
+    /**
+     * 定时校验文件内容完整性，标记损坏或丢失的内容
+     */
+    @Scheduled(cron = "${file.blob.scrub-cron:0 30 4 * * ?}")
+    public void verifyIntegrity() {
+        LocalDateTime before = LocalDateTime.now().minus(reverifyAfter);
+        List<FileBlob> blobs = fileBlobRepository.findVerificationCandidates(before, PageRequest.of(0, batchSize));
+        int corrupted = 0;
+        for (FileBlob blob : blobs) {
+            FileBlob.BlobStatus status = verify(blob);
+            if (status != FileBlob.BlobStatus.ACTIVE) {
+                corrupted++;
+                log.error("文件内容校验失败: sha256={}, path={}, status={}", blob.getSha256(), blob.getStoragePath(), status);
+            }
+            transactionTemplate.executeWithoutResult(tx ->
+                    fileBlobRepository.updateVerification(blob.getId(), status, LocalDateTime.now()));
+        }
+        log.info("文件内容完整性校验完成: 校验 {} 个，异常 {} 个", blobs.size(), corrupted);
+    }
+
+    private FileBlob.BlobStatus verify(FileBlob blob) {
+        BlobStore store;
+        try {
+            store = storeOf(blob);
+        } catch (IllegalStateException e) {
+            // 所在后端未启用，无法校验
+            return FileBlob.BlobStatus.ACTIVE;
+        }
+        if (!store.exists(blob.getStoragePath())) {
+            return FileBlob.BlobStatus.MISSING;
+        }
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(store.open(blob.getStoragePath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            log.warn("读取文件内容失败: {}", blob.getStoragePath(), e);
+            return FileBlob.BlobStatus.MISSING;
+        }
+        return HexFormat.of().formatHex(digest.digest()).equals(blob.getSha256())
+                ? FileBlob.BlobStatus.ACTIVE
+                : FileBlob.BlobStatus.CORRUPTED;
+    }
+
+    /**
+     * 新增内容记录或增加引用计数，返回加锁后的内容记录
+     */
+    private FileBlob reference(String sha256, String extension, long size) {
+        fileBlobRepository.upsertReference(sha256, contentKey(sha256, extension), blobStoreRegistry.active().name(), size);
+        return fileBlobRepository.findBySha256(sha256)
+                .orElseThrow(() -> new IllegalStateException("文件内容记录不存在: " + sha256));
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.common.BufferedCounter;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.repository.FileUsageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+/**
+ * 文件下载次数计数服务
+ * 下载请求只在内存中累加，定时批量写回数据库，下载热路径上不产生数据库写入；用量汇总的下载次数在同一事务中更新
+ */
+@Slf4j
+@Service
+public class FileDownloadCounter {
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileUsageRepository fileUsageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BufferedCounter buffer = new BufferedCounter();
+
+    private final Timer flushTimer;
+
+    public FileDownloadCounter(FileUploadRepository fileUploadRepository,
+                               FileUsageRepository fileUsageRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileUsageRepository = fileUsageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushTimer = Timer.builder("file.download.flush")
+                .description("Time taken to flush buffered download counts to the database")
+                .register(meterRegistry);
+        Gauge.builder("file.download.pending", buffer, BufferedCounter::pending)
+                .description("Buffered download counts not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次下载
+     */
+    public void recordDownload(Long fileId) {
+        buffer.add(fileId, 1);
+    }
+
+    /**
+     * 定时将缓冲的下载次数批量写回数据库
+     */
+    @Scheduled(fixedDelayString = "${file.download.flush-interval:5s}")
+    public void flush() {
+        Map<Long, Long> deltas = buffer.drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        deltas.forEach((fileId, delta) -> {
+                            fileUploadRepository.incrementDownloadCountBy(fileId, Math.toIntExact(delta));
+                            fileUsageRepository.addDownloads(fileId, delta);
+                        }));
+                log.debug("写回文件下载次数: {} 个文件", deltas.size());
+            } catch (Exception e) {
+                // 写回失败时放回缓冲区，下个周期重试
+                deltas.forEach(buffer::add);
+                log.warn("写回文件下载次数失败，将在下个周期重试: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 应用关闭前写回剩余计数
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,308 @@
+package com.dlut.blockchain.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 文件下载服务
+ * 支持 Range 单段/多段请求（断点续传、拖动预览）、ETag/Last-Modified 条件请求和 If-Range，
+ * 存在预压缩文件时按 Accept-Encoding 返回压缩内容；
+ * 响应体优先交给 Tomcat sendfile 零拷贝发送并立即释放请求线程，不支持时使用 FileChannel.transferTo
+ */
+@Slf4j
+@Service
+public class FileDownloadService {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CRLF = "\r\n";
+
+    /**
+     * 小于该大小的响应直接写出，sendfile 的额外开销不划算
+     */
+    @Value("${file.download.sendfile-threshold:49152}")
+    private long sendfileThreshold;
+
+    /**
+     * 单个请求最多接受的 Range 段数，超出时返回完整文件
+     */
+    @Value("${file.download.max-ranges:16}")
+    private int maxRanges;
+
+    /**
+     * 输出文件内容
+     *
+     * @param file         磁盘文件
+     * @param downloadName 下载时显示的文件名
+     * @param contentType  内容类型
+     * @param etag         强 ETag（如内容校验和），为空时使用基于大小和修改时间的弱 ETag
+     * @return 是否为一次新的下载（完整下载或从头开始的 Range 请求），续传、304、HEAD 不计
+     */
+    public boolean serve(Path file, String downloadName, String contentType, String etag,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 有预压缩文件且不是 Range 请求时直接返回压缩文件，Range 始终针对原始内容
+        String encoding = null;
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            Optional<PrecompressionService.Encoded> encoded =
+                    PrecompressionService.negotiate(file, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (encoded.isPresent()) {
+                file = encoded.get().file();
+                encoding = encoded.get().encoding();
+            }
+        }
+        if (encoding != null || PrecompressionService.hasSidecar(file)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String entityTag = etag != null
+                ? "\"" + etag + (encoding != null ? "-" + encoding : "") + "\""
+                : "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, entityTag);
+        if (encoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // 非 ASCII 文件名（如中文）使用 RFC 5987 编码
+        ContentDisposition disposition = StandardCharsets.US_ASCII.newEncoder().canEncode(downloadName)
+                ? ContentDisposition.attachment().filename(downloadName).build()
+                : ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build();
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+
+        if (isNotModified(request, entityTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isIfRangeSatisfied(request, entityTag, lastModified)) {
+            ranges = parseRanges(rangeHeader, length);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return false;
+            }
+        }
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                sendRange(file, 0, length, request, response);
+            }
+            return !head;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            long rangeLength = range[1] - range[0] + 1;
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/" + length);
+            response.setContentLengthLong(rangeLength);
+            if (!head) {
+                sendRange(file, range[0], rangeLength, request, response);
+            }
+        } else {
+            sendMultipart(file, contentType, length, ranges, head, response);
+        }
+        return !head && ranges.get(0)[0] == 0;
+    }
+
+    /**
+     * 处理 If-None-Match / If-Modified-Since
+     */
+    private boolean isNotModified(HttpServletRequest request, String entityTag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match 使用弱比较
+            String opaqueTag = stripWeak(entityTag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if ("*".equals(tag) || stripWeak(tag).equals(opaqueTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * 处理 If-Range：校验器不匹配时忽略 Range 返回完整文件
+     * ETag 形式必须强匹配，弱 ETag 永不匹配；日期形式必须与最后修改时间完全一致
+     */
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String entityTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !entityTag.startsWith("W/") && ifRange.equals(entityTag);
+        }
+        long date = getDateHeader(request, HttpHeaders.IF_RANGE);
+        return date != -1 && date / 1000 == lastModified / 1000;
+    }
+
+    /**
+     * 解析 Range 头
+     *
+     * @return null 表示格式非法（忽略 Range），空列表表示无法满足（416）
+     */
+    private List<long[]> parseRanges(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > maxRanges) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String spec : specs) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // 后缀形式：最后 N 个字节
+                    long suffix = Long.parseLong(last);
+                    if (suffix <= 0 || length == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+                    if (start > end) {
+                        return null;
+                    }
+                    if (start >= length) {
+                        continue;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+                ranges.add(new long[]{start, end});
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
+
+    /**
+     * 输出 multipart/byteranges 响应
+     */
+    private void sendMultipart(Path file, String contentType, long length, List<long[]> ranges,
+                               boolean head, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + "Content-Type: " + contentType + CRLF
+                    + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + length + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + (range[1] - range[0] + 1);
+        }
+        byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, range[0], range[1] - range[0] + 1, target);
+            }
+            out.write(trailer);
+        } catch (IOException e) {
+            log.debug("客户端中断下载: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 输出一段连续内容，支持时交给容器 sendfile
+     */
+    private void sendRange(Path file, long start, long count, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        if (count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        } catch (IOException e) {
+            log.debug("客户端中断下载: {}", e.getMessage());
+        }
+    }
+
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long written = channel.transferTo(position, remaining, target);
+            if (written <= 0) {
+                break;
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+
+    private long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,461 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileBlobRepository;
+import com.dlut.blockchain.repository.FileJobRepository;
+import com.dlut.blockchain.repository.FileTextRepository;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.storage.LocalBlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 上传文件垃圾回收服务
+ * 1. 永久删除回收站中超过保留期的文件：释放内容引用（内容由无引用内容清理任务删除），旧文件直接删除磁盘文件；
+ * 2. 并行遍历上传目录，分批对照数据库找出没有记录的孤立文件：内容地址文件登记为无引用内容，
+ *    交给无引用内容清理任务在行锁保护下删除，避免与引用同一内容的新上传冲突；根目录下的旧文件直接删除；
+ * 3. 检查磁盘文件已丢失的旧文件记录（内容地址文件由完整性校验任务检查）。
+ * 最近修改过的磁盘文件可能属于尚未提交的上传，不做处理
+ */
+@Slf4j
+@Service
+public class FileGarbageCollector {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final FileTextRepository fileTextRepository;
+    private final FileJobRepository fileJobRepository;
+    private final FileBlobService fileBlobService;
+    private final FileMetadataCache fileMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer collectTimer;
+    private final AtomicLong orphanFiles = new AtomicLong();
+    private final AtomicLong orphanBytes = new AtomicLong();
+    private final AtomicLong missingFiles = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastReport;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    /**
+     * 回收站保留期
+     */
+    @Value("${file.trash.retention:7d}")
+    private Duration trashRetention;
+
+    /**
+     * 磁盘文件修改后超过该时间才可能被当作孤立文件
+     */
+    @Value("${file.gc.orphan-grace:1h}")
+    private Duration orphanGrace;
+
+    @Value("${file.gc.parallelism:4}")
+    private int parallelism;
+
+    @Value("${file.gc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 为 false 时只报告孤立文件，不删除
+     */
+    @Value("${file.gc.delete-orphans:true}")
+    private boolean deleteOrphans;
+
+    public FileGarbageCollector(FileUploadRepository fileUploadRepository,
+                                FileBlobRepository fileBlobRepository,
+                                FileTextRepository fileTextRepository,
+                                FileJobRepository fileJobRepository,
+                                FileBlobService fileBlobService,
+                                FileMetadataCache fileMetadataCache,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.fileTextRepository = fileTextRepository;
+        this.fileJobRepository = fileJobRepository;
+        this.fileBlobService = fileBlobService;
+        this.fileMetadataCache = fileMetadataCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.collectTimer = Timer.builder("file.gc.duration")
+                .description("Time taken by a file garbage collection run")
+                .register(meterRegistry);
+        Gauge.builder("file.gc.orphans", orphanFiles, AtomicLong::get)
+                .description("Files on disk without a database record found by the last run")
+                .register(meterRegistry);
+        Gauge.builder("file.gc.orphan.bytes", orphanBytes, AtomicLong::get)
+                .description("Size of orphaned files found by the last run")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("file.gc.missing", missingFiles, AtomicLong::get)
+                .description("File records whose file is missing on disk found by the last run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 孤立文件的扫描结果
+     */
+    private static final class Sweep {
+        final AtomicLong scanned = new AtomicLong();
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong deleted = new AtomicLong();
+        final List<String> samples = new ArrayList<>();
+
+        synchronized void sample(Path file) {
+            if (samples.size() < 20) {
+                samples.add(file.toString());
+            }
+        }
+    }
+
+    /**
+     * 定时回收
+     */
+    @Scheduled(cron = "${file.gc.cron:0 45 4 * * ?}")
+    public void scheduledCollect() {
+        try {
+            collect();
+        } catch (Exception e) {
+            log.error("文件垃圾回收失败", e);
+        }
+    }
+
+    /**
+     * 执行一次回收
+     *
+     * @return 回收报告
+     */
+    public Map<String, Object> collect() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("文件垃圾回收正在进行中");
+        }
+        try {
+            return collectTimer.record(() -> {
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("startedAt", LocalDateTime.now());
+                report.put("purgedFromTrash", purgeTrash());
+                report.put("orphans", sweepOrphans());
+                report.put("missing", findMissing());
+                report.put("finishedAt", LocalDateTime.now());
+                lastReport = report;
+                log.info("文件垃圾回收完成: {}", report);
+                return report;
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 最近一次回收报告
+     */
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 分批永久删除回收站中超过保留期的文件
+     */
+    private long purgeTrash() {
+        LocalDateTime before = LocalDateTime.now().minus(trashRetention);
+        long purged = 0;
+        Integer batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<FileUpload> files = fileUploadRepository.lockExpiredDeleted(before, batchSize);
+                for (FileUpload fileUpload : files) {
+                    purge(fileUpload);
+                }
+                return files.size();
+            });
+            purged += batch == null ? 0 : batch;
+        } while (batch != null && batch == batchSize);
+        if (purged > 0) {
+            log.info("永久删除回收站文件: {} 个", purged);
+        }
+        return purged;
+    }
+
+    private void purge(FileUpload fileUpload) {
+        if (fileUpload.getChecksum() != null) {
+            // 去重存储的内容可能被其他记录引用，只释放引用，由清理任务删除无引用的内容
+            fileBlobService.release(fileUpload.getChecksum());
+        } else {
+            Path file = Paths.get(fileUpload.getFilePath());
+            try {
+                long size = Files.isRegularFile(file) ? Files.size(file) : 0;
+                if (Files.deleteIfExists(file)) {
+                    reclaimed("trash", size);
+                }
+            } catch (IOException e) {
+                // 磁盘文件之后会作为孤立文件回收
+                log.warn("删除文件失败: {}", file, e);
+            }
+        }
+        fileTextRepository.deleteByFileId(fileUpload.getId());
+        fileJobRepository.deleteByFileId(fileUpload.getId());
+        fileUploadRepository.purgeDeleted(fileUpload.getId());
+        fileMetadataCache.invalidate(fileUpload.getFileName());
+    }
+
+    /**
+     * 并行遍历上传目录：每个一级子目录（内容地址 ab/）由一个线程遍历，根目录下的旧文件在当前线程检查
+     */
+    private Map<String, Object> sweepOrphans() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Path root = Paths.get(uploadDir);
+        Sweep sweep = new Sweep();
+        if (Files.isDirectory(root)) {
+            Instant cutoff = Instant.now().minus(orphanGrace);
+            ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+                Thread thread = new Thread(runnable, "file-gc-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<?>> futures = new ArrayList<>();
+            Map<String, List<Path>> legacyFiles = new HashMap<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry)) {
+                        futures.add(workers.submit(() -> {
+                            sweepContentDirectory(root, entry, cutoff, sweep);
+                            return null;
+                        }));
+                    } else if (isCandidate(entry, cutoff)) {
+                        sweep.scanned.incrementAndGet();
+                        legacyFiles.computeIfAbsent(entry.getFileName().toString(), key -> new ArrayList<>()).add(entry);
+                        if (legacyFiles.size() >= batchSize) {
+                            handleMissing(legacyFiles, fileUploadRepository::findExistingFileNames, this::deleteLegacyOrphan, sweep);
+                        }
+                    }
+                }
+                handleMissing(legacyFiles, fileUploadRepository::findExistingFileNames, this::deleteLegacyOrphan, sweep);
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (IOException | ExecutionException e) {
+                log.warn("扫描上传目录失败: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+        orphanFiles.set(sweep.files.get());
+        orphanBytes.set(sweep.bytes.get());
+        result.put("scanned", sweep.scanned.get());
+        result.put("files", sweep.files.get());
+        result.put("bytes", sweep.bytes.get());
+        result.put("handled", sweep.deleted.get());
+        result.put("samples", sweep.samples);
+        if (sweep.files.get() > 0) {
+            log.warn("上传目录中有 {} 个没有记录的文件，共 {} bytes", sweep.files.get(), sweep.bytes.get());
+        }
+        return result;
+    }
+
+    /**
+     * 遍历一个内容地址子目录，文件名（去掉扩展名和 .gz/.br 旁路后缀）即内容哈希，按批对照 file_blobs
+     */
+    private void sweepContentDirectory(Path root, Path directory, Instant cutoff, Sweep sweep) throws IOException {
+        Map<String, List<Path>> batch = new HashMap<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile() || attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                String sha256 = dot == -1 ? name : name.substring(0, dot);
+                // 临时文件和不符合内容地址格式的文件不处理
+                if (!SHA256.matcher(sha256).matches()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                sweep.scanned.incrementAndGet();
+                batch.computeIfAbsent(sha256, key -> new ArrayList<>()).add(file);
+                if (batch.size() >= batchSize) {
+                    handleMissing(batch, fileBlobRepository::findExistingSha256,
+                            (sha, files) -> registerBlobOrphan(root, sha, files), sweep);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("读取文件失败: {}", file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        handleMissing(batch, fileBlobRepository::findExistingSha256,
+                (sha, files) -> registerBlobOrphan(root, sha, files), sweep);
+    }
+
+    /**
+     * 批量查询一批文件名（或内容哈希）是否有记录，处理没有记录的文件并清空批次
+     */
+    private void handleMissing(Map<String, List<Path>> batch,
+                               Function<Set<String>, List<String>> existing,
+                               OrphanHandler handler,
+                               Sweep sweep) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> found = new HashSet<>(existing.apply(batch.keySet()));
+        batch.forEach((key, files) -> {
+            if (found.contains(key)) {
+                return;
+            }
+            for (Path file : files) {
+                sweep.files.incrementAndGet();
+                sweep.bytes.addAndGet(sizeOf(file));
+                sweep.sample(file);
+            }
+            if (deleteOrphans) {
+                try {
+                    handler.handle(key, files);
+                    sweep.deleted.addAndGet(files.size());
+                } catch (Exception e) {
+                    log.warn("处理孤立文件失败: {}", key, e);
+                }
+            }
+        });
+        batch.clear();
+    }
+
+    @FunctionalInterface
+    private interface OrphanHandler {
+        void handle(String key, List<Path> files) throws IOException;
+    }
+
+    /**
+     * 旧文件以 UUID 命名不会被复用，没有记录时直接删除
+     */
+    private void deleteLegacyOrphan(String fileName, List<Path> files) throws IOException {
+        for (Path file : files) {
+            long size = sizeOf(file);
+            if (Files.deleteIfExists(file)) {
+                reclaimed("orphan", size);
+            }
+        }
+    }
+
+    /**
+     * 把孤立的内容地址文件登记为无引用内容，由无引用内容清理任务在保留期后加锁删除（连同旁路文件）；
+     * 期间有上传引用同一内容时，引用计数增加，内容会被保留
+     */
+    private void registerBlobOrphan(Path root, String sha256, List<Path> files) {
+        Path file = files.get(0);
+        String name = file.getFileName().toString();
+        if (name.endsWith(PrecompressionService.GZIP_SUFFIX) || name.endsWith(PrecompressionService.BROTLI_SUFFIX)) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        String key = root.relativize(file.resolveSibling(name)).toString().replace('\\', '/');
+        long size = sizeOf(file.resolveSibling(name));
+        transactionTemplate.executeWithoutResult(status ->
+                fileBlobRepository.registerOrphan(sha256, key, LocalBlobStore.NAME, size));
+    }
+
+    /**
+     * 分批检查旧文件记录的磁盘文件是否存在
+     */
+    private Map<String, Object> findMissing() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Long> samples = new ArrayList<>();
+        long missing = 0;
+        long lastId = 0;
+        while (true) {
+            List<FileUpload> batch = fileUploadRepository.findByChecksumIsNullAndIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (FileUpload fileUpload : batch) {
+                if (!Files.isRegularFile(Paths.get(fileUpload.getFilePath()))) {
+                    missing++;
+                    if (samples.size() < 20) {
+                        samples.add(fileUpload.getId());
+                    }
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        missingFiles.set(missing);
+        if (missing > 0) {
+            log.warn("有 {} 个文件记录的磁盘文件已丢失: {}", missing, samples);
+        }
+        result.put("files", missing);
+        result.put("samples", samples);
+        return result;
+    }
+
+    private boolean isCandidate(Path file, Instant cutoff) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile()
+                    && !file.getFileName().toString().startsWith(".")
+                    && attributes.lastModifiedTime().toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void reclaimed(String source, long bytes) {
+        Counter.builder("file.gc.reclaimed")
+                .description("Bytes reclaimed by deleting files from disk")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
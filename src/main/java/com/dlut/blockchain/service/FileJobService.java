@@ -0,0 +1,404 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.dto.FileJobDto;
+import com.dlut.blockchain.entity.FileJob;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.job.FileJobHandler;
+import com.dlut.blockchain.repository.FileJobRepository;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 文件后台处理任务服务
+ * 上传事务内写入 file_jobs 表，上传接口不等待处理直接返回（processingStatus = PENDING）；
+ * 轮询线程以 FOR UPDATE SKIP LOCKED 领取到期任务交给工作线程池执行，失败按指数退避重试，
+ * 重试次数用完进入死信状态，可通过接口手动重新执行；全部任务结束后更新文件的处理状态
+ * 执行中的任务由所在实例定期续期锁定时间，实例中断后锁定超时的任务重新放回队列，执行次数用完的进入死信状态
+ */
+@Slf4j
+@Service
+public class FileJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final FileJobRepository fileJobRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final FileMetadataCache fileMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<FileJob.JobType, FileJobHandler> handlers = new EnumMap<>(FileJob.JobType.class);
+    private final int poolSize;
+    private final ExecutorService workers;
+    private final ExecutorService dispatcher;
+    private final AtomicInteger busy = new AtomicInteger();
+    /**
+     * 本实例正在执行的任务ID，用于续期锁定时间
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    @Value("${file.jobs.batch-size:10}")
+    private int batchSize;
+
+    @Value("${file.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${file.jobs.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    @Value("${file.jobs.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    /**
+     * 执行中的任务超过该时间未续期视为中断，放回队列；续期周期为 recover-interval，必须小于该值
+     */
+    @Value("${file.jobs.lock-timeout:10m}")
+    private Duration lockTimeout;
+
+    /**
+     * 已完成任务的保留时间
+     */
+    @Value("${file.jobs.retention:7d}")
+    private Duration retention;
+
+    public FileJobService(FileJobRepository fileJobRepository,
+                          FileUploadRepository fileUploadRepository,
+                          FileMetadataCache fileMetadataCache,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          List<FileJobHandler> handlers,
+                          @Value("${file.jobs.pool-size:2}") int poolSize) {
+        this.fileJobRepository = fileJobRepository;
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileMetadataCache = fileMetadataCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        handlers.forEach(handler -> this.handlers.put(handler.type(), handler));
+        this.poolSize = Math.max(1, poolSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(this.poolSize, this.poolSize, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "file-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        // 上传提交后立即触发一次轮询，队列中已有一次待执行的轮询时丢弃
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), runnable -> {
+                    Thread thread = new Thread(runnable, "file-job-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        Gauge.builder("file.jobs.active", busy, AtomicInteger::get)
+                .description("Number of file jobs being executed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为新上传的文件写入后台处理任务，与文件记录在同一事务中提交；提交后立即唤醒轮询
+     *
+     * @return 写入的任务类型，为空表示文件无需后台处理
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<FileJob.JobType> enqueue(FileUpload fileUpload) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FileJob> jobs = new ArrayList<>();
+        for (FileJobHandler handler : handlers.values()) {
+            if (handler.supports(fileUpload)) {
+                FileJob job = new FileJob();
+                job.setFileId(fileUpload.getId());
+                job.setJobType(handler.type());
+                job.setMaxAttempts(maxAttempts);
+                job.setRunAt(now);
+                jobs.add(job);
+            }
+        }
+        if (jobs.isEmpty()) {
+            return Set.of();
+        }
+        fileJobRepository.saveAll(jobs);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.execute(FileJobService.this::poll);
+            }
+        });
+        return jobs.stream().map(FileJob::getJobType).collect(Collectors.toSet());
+    }
+
+    /**
+     * 领取到期任务交给工作线程，只领取空闲线程数以内的任务，其余留给其他实例
+     */
+    @Scheduled(fixedDelayString = "${file.jobs.poll-interval:2s}", initialDelayString = "${file.jobs.poll-interval:2s}")
+    public void poll() {
+        if (!pollLock.tryLock()) {
+            return;
+        }
+        try {
+            int free;
+            while ((free = poolSize - busy.get()) > 0) {
+                List<FileJob> jobs = claim(Math.min(free, batchSize));
+                if (jobs.isEmpty()) {
+                    return;
+                }
+                for (FileJob job : jobs) {
+                    busy.incrementAndGet();
+                    running.add(job.getId());
+                    workers.execute(() -> {
+                        try {
+                            run(job);
+                        } finally {
+                            running.remove(job.getId());
+                            busy.decrementAndGet();
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            log.error("领取文件处理任务失败", e);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * 续期本实例正在执行的任务，把锁定超时的任务放回队列（执行次数用完的进入死信状态），并删除超过保留期的已完成任务
+     */
+    @Scheduled(fixedDelayString = "${file.jobs.recover-interval:1m}", initialDelayString = "${file.jobs.recover-interval:1m}")
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!running.isEmpty()) {
+            List<Long> ids = List.copyOf(running);
+            transactionTemplate.executeWithoutResult(status -> fileJobRepository.renewLocks(ids, now));
+        }
+        LocalDateTime before = now.minus(lockTimeout);
+        Integer dead = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (FileJob job : fileJobRepository.findStale(before)) {
+                if (job.getAttempts() >= job.getMaxAttempts()) {
+                    fileJobRepository.markFailed(job.getId(), FileJob.JobStatus.DEAD, now,
+                            "执行超时或中断，重试次数已用完", now);
+                    refreshProcessingStatus(job.getFileId());
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (dead != null && dead > 0) {
+            log.error("锁定超时且重试次数用完的文件处理任务进入死信状态: {} 个", dead);
+        }
+        Integer released = transactionTemplate.execute(status ->
+                fileJobRepository.releaseStale(FileJob.JobStatus.PENDING, before));
+        if (released != null && released > 0) {
+            log.warn("放回锁定超时的文件处理任务: {} 个", released);
+        }
+        transactionTemplate.executeWithoutResult(status -> fileJobRepository.deleteDoneBefore(now.minus(retention)));
+    }
+
+    /**
+     * 文件是否还有指定类型的任务未完成（包括死信任务）
+     */
+    public boolean hasUnfinished(Long fileId, FileJob.JobType type) {
+        return fileJobRepository.existsByFileIdAndJobTypeAndStatusNot(fileId, type, FileJob.JobStatus.DONE);
+    }
+
+    /**
+     * 按状态分页查询任务（如查看死信任务）
+     */
+    public Page<FileJobDto> getJobs(FileJob.JobStatus status, Pageable pageable) {
+        return fileJobRepository.findByStatus(status, pageable).map(this::convertToDto);
+    }
+
+    /**
+     * 查询文件的所有任务
+     */
+    public List<FileJobDto> getFileJobs(Long fileId) {
+        return fileJobRepository.findByFileIdOrderByIdAsc(fileId).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 重新执行死信任务
+     */
+    public FileJobDto retry(Long id) {
+        FileJob job = fileJobRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("任务不存在: " + id));
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = fileJobRepository.requeueDead(id, FileJob.JobStatus.PENDING, LocalDateTime.now());
+            if (count > 0) {
+                updateProcessingStatus(job.getFileId(), FileUpload.ProcessingStatus.PROCESSING);
+            }
+            return count;
+        });
+        if (updated == null || updated == 0) {
+            throw new IllegalStateException("只能重新执行死信任务，当前状态: " + job.getStatus());
+        }
+        log.info("重新执行文件处理任务: id={}, 类型: {}", id, job.getJobType());
+        dispatcher.execute(this::poll);
+        return convertToDto(fileJobRepository.findById(id).orElse(job));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 锁定到期任务并标记为执行中，行锁在事务提交时释放
+     */
+    private List<FileJob> claim(int limit) {
+        List<FileJob> jobs = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<FileJob> locked = fileJobRepository.lockDue(now, limit);
+            for (FileJob job : locked) {
+                job.setStatus(FileJob.JobStatus.RUNNING);
+                job.setLockedAt(now);
+                job.setAttempts(job.getAttempts() + 1);
+            }
+            return locked;
+        });
+        return jobs != null ? jobs : List.of();
+    }
+
+    private void run(FileJob job) {
+        FileJob.JobType type = job.getJobType();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome;
+        try {
+            Optional<FileUpload> fileUpload = fileUploadRepository.findById(job.getFileId());
+            // 文件已删除时直接完成
+            if (fileUpload.isPresent()) {
+                FileJobHandler handler = handlers.get(type);
+                if (handler == null) {
+                    throw new IllegalStateException("没有处理该类型任务的实现: " + type);
+                }
+                handler.handle(fileUpload.get());
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                fileJobRepository.markDone(job.getId(), FileJob.JobStatus.DONE, LocalDateTime.now());
+                refreshProcessingStatus(job.getFileId());
+            });
+            outcome = "done";
+        } catch (Exception e) {
+            boolean dead = job.getAttempts() >= job.getMaxAttempts();
+            String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime runAt = dead ? now : now.plus(backoff(job.getAttempts()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    fileJobRepository.markFailed(job.getId(), dead ? FileJob.JobStatus.DEAD : FileJob.JobStatus.PENDING,
+                            runAt, error, now);
+                    refreshProcessingStatus(job.getFileId());
+                });
+            } catch (Exception updateError) {
+                log.error("记录文件处理任务失败状态出错: id={}", job.getId(), updateError);
+            }
+            if (dead) {
+                log.error("文件处理任务重试次数用完: id={}, fileId={}, 类型: {}, {}", job.getId(), job.getFileId(), type, error);
+            } else {
+                log.warn("文件处理任务失败，{} 后重试: id={}, fileId={}, 类型: {}, {}",
+                        backoff(job.getAttempts()), job.getId(), job.getFileId(), type, error);
+            }
+            outcome = dead ? "dead" : "retry";
+        }
+        sample.stop(Timer.builder("file.jobs.duration")
+                .description("Time taken to execute a file job")
+                .tag("type", type.name())
+                .register(meterRegistry));
+        Counter.builder("file.jobs.processed")
+                .description("Number of file jobs executed")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 根据剩余任务更新文件的处理状态
+     */
+    private void refreshProcessingStatus(Long fileId) {
+        FileUpload.ProcessingStatus status;
+        if (fileJobRepository.countByFileIdAndStatusIn(fileId,
+                List.of(FileJob.JobStatus.PENDING, FileJob.JobStatus.RUNNING)) > 0) {
+            status = FileUpload.ProcessingStatus.PROCESSING;
+        } else if (fileJobRepository.countByFileIdAndStatusIn(fileId, List.of(FileJob.JobStatus.DEAD)) > 0) {
+            status = FileUpload.ProcessingStatus.FAILED;
+        } else {
+            status = FileUpload.ProcessingStatus.READY;
+        }
+        updateProcessingStatus(fileId, status);
+    }
+
+    /**
+     * 处理状态决定文件能否下载，更新后使文件元数据缓存失效
+     */
+    private void updateProcessingStatus(Long fileId, FileUpload.ProcessingStatus status) {
+        if (fileUploadRepository.updateProcessingStatus(fileId, status) > 0) {
+            fileUploadRepository.findById(fileId)
+                    .ifPresent(fileUpload -> fileMetadataCache.invalidate(fileUpload.getFileName()));
+        }
+    }
+
+    /**
+     * 第 n 次失败后等待 retryBackoff * 2^(n-1)，不超过 maxBackoff
+     */
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.max(0, Math.min(attempts - 1, 20)));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private FileJobDto convertToDto(FileJob job) {
+        FileJobDto dto = new FileJobDto();
+        dto.setId(job.getId());
+        dto.setFileId(job.getFileId());
+        dto.setJobType(job.getJobType());
+        dto.setStatus(job.getStatus());
+        dto.setAttempts(job.getAttempts());
+        dto.setMaxAttempts(job.getMaxAttempts());
+        dto.setRunAt(job.getRunAt());
+        dto.setLastError(job.getLastError());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        return dto;
+    }
+}
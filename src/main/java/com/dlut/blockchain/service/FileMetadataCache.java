@@ -0,0 +1,127 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.common.ContentTypeDetector;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 文件元数据本地缓存
+ * 下载接口按文件名读取文件记录和内容所在位置，命中缓存时不查询数据库；
+ * 文件记录按文件名缓存（不存在的文件名也缓存），内容位置按内容哈希单独缓存，迁移存储后端时只需失效对应内容。
+ * 多实例部署时其他实例的缓存最多在有效期后更新
+ */
+@Service
+public class FileMetadataCache {
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileBlobService fileBlobService;
+    private final Cache<String, Optional<FileMetadata>> files;
+    private final Cache<String, Optional<BlobLocation>> blobs;
+
+    public FileMetadataCache(FileUploadRepository fileUploadRepository,
+                             FileBlobService fileBlobService,
+                             MeterRegistry meterRegistry,
+                             @Value("${file.metadata-cache.max-size:10000}") long maxSize,
+                             @Value("${file.metadata-cache.ttl:10m}") Duration ttl) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileBlobService = fileBlobService;
+        this.files = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.blobs = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, files, "file.metadata");
+        CaffeineCacheMetrics.monitor(meterRegistry, blobs, "file.blob.location");
+    }
+
+    /**
+     * 下载所需的文件元数据
+     *
+     * @param contentType 响应的 Content-Type：优先使用上传时按文件头识别的类型，旧文件按扩展名推断
+     */
+    public record FileMetadata(Long id, String fileName, String originalName, String filePath, String checksum,
+                               String contentType, Long fileSize, FileUpload.ProcessingStatus processingStatus) {
+    }
+
+    /**
+     * 内容所在的存储后端和 key
+     */
+    public record BlobLocation(String storageBackend, String storagePath) {
+    }
+
+    /**
+     * 根据文件名获取元数据
+     */
+    public Optional<FileMetadata> get(String fileName) {
+        return files.get(fileName, this::loadFile);
+    }
+
+    /**
+     * 根据内容哈希获取内容位置
+     */
+    public Optional<BlobLocation> getLocation(String checksum) {
+        return blobs.get(checksum, this::loadLocation);
+    }
+
+    /**
+     * 使文件元数据失效；在事务中调用时提交后再失效，避免并发请求把提交前的旧数据重新放回缓存
+     */
+    public void invalidate(String fileName) {
+        afterCommit(() -> files.invalidate(fileName));
+    }
+
+    /**
+     * 使内容位置失效（迁移存储后端、删除内容时调用）
+     */
+    public void invalidateLocation(String checksum) {
+        afterCommit(() -> blobs.invalidate(checksum));
+    }
+
+    private Optional<FileMetadata> loadFile(String fileName) {
+        return fileUploadRepository.findByFileName(fileName).map(fileUpload -> new FileMetadata(
+                fileUpload.getId(),
+                fileUpload.getFileName(),
+                fileUpload.getOriginalName(),
+                fileUpload.getFilePath(),
+                fileUpload.getChecksum(),
+                fileUpload.getDetectedType() != null
+                        ? fileUpload.getDetectedType()
+                        : ContentTypeDetector.fromFileName(fileUpload.getFileName()),
+                fileUpload.getFileSize(),
+                fileUpload.getProcessingStatus()));
+    }
+
+    private Optional<BlobLocation> loadLocation(String checksum) {
+        return fileBlobService.find(checksum)
+                .map(blob -> new BlobLocation(blob.getStorageBackend(), blob.getStoragePath()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,32 +1,47 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.ContentTypeDetector;
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
+import com.dlut.blockchain.config.PaginationProperties;
+import com.dlut.blockchain.dto.DirectUploadRequest;
 import com.dlut.blockchain.dto.FileUploadDto;
+import com.dlut.blockchain.entity.FileBlob;
+import com.dlut.blockchain.entity.FileJob;
 import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
 import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.storage.BlobStore;
+import com.dlut.blockchain.storage.BlobStoreRegistry;
 import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -39,10 +54,21 @@ import java.util.stream.Collectors;
 public class FileStorageService {
 
     private final FileUploadRepository fileUploadRepository;
+    private final ApproximateCountService approximateCountService;
+    private final PaginationProperties paginationProperties;
+    private final FileBlobService fileBlobService;
+    private final BlobStoreRegistry blobStoreRegistry;
+    private final ImageVariantService imageVariantService;
+    private final FileJobService fileJobService;
+    private final FileMetadataCache fileMetadataCache;
+    private final FileUsageService fileUsageService;
 
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
+    @Value("${file.storage.presign-ttl:15m}")
+    private Duration presignTtl;
+
     @Value("${file.max-file-size:10485760}") // 10MB
     private long maxFileSize;
 
@@ -58,63 +84,213 @@ public class FileStorageService {
         
         // 验证文件
         validateFile(file);
+        fileUsageService.checkQuota(uploadedBy, file.getSize());
         
-        // 生成唯一文件名
         String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = getFileExtension(originalFilename);
-        String fileName = UUID.randomUUID().toString() + "." + fileExtension;
-        
+        FileBlobService.StagedFile staged = null;
         try {
-            // 创建上传目录
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            
-            // 保存文件
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // 保存文件信息到数据库
-            FileUpload fileUpload = new FileUpload();
-            fileUpload.setFileName(fileName);
-            fileUpload.setFilePath(filePath.toString());
-            fileUpload.setFileType(file.getContentType());
-            fileUpload.setFileSize(file.getSize());
-            fileUpload.setOriginalName(originalFilename);
-            fileUpload.setDescription(description);
-            fileUpload.setCategory(category);
-            fileUpload.setUploadedBy(uploadedBy);
-            fileUpload.setUploadedAt(LocalDateTime.now());
-            fileUpload.setDownloadCount(0);
-            
-            FileUpload savedFile = fileUploadRepository.save(fileUpload);
-            
+            // 边写入暂存文件边计算 SHA-256，相同内容只保存一份
+            staged = fileBlobService.stage(file.getInputStream());
+            FileUploadDto savedFile = registerStagedFile(staged, originalFilename, file.getContentType(),
+                    category, description, uploadedBy);
             log.info("文件上传成功: {}", savedFile.getId());
-            return convertToDto(savedFile);
+            return savedFile;
             
         } catch (IOException e) {
             log.error("文件上传失败", e);
             throw new RuntimeException("文件上传失败: " + e.getMessage());
+        } finally {
+            fileBlobService.discard(staged);
+        }
+    }
+
+    /**
+     * 保存已暂存的文件内容并登记上传记录（普通上传和分片上传合并后共用）
+     */
+    @Transactional
+    public FileUploadDto registerStagedFile(FileBlobService.StagedFile staged, String originalFilename, String contentType,
+                                            String category, String description, String uploadedBy) throws IOException {
+        // 生成唯一文件名
+        String fileExtension = getFileExtension(originalFilename);
+        String fileName = UUID.randomUUID().toString() + "." + fileExtension;
+        String location = fileBlobService.store(staged, fileExtension);
+        // 暂存文件刚写完，读取文件头识别真实类型的开销可以忽略
+        String detectedType;
+        try (InputStream in = Files.newInputStream(staged.path())) {
+            detectedType = ContentTypeDetector.detect(in, fileName);
         }
+        return saveFileRecord(fileName, location, staged.sha256(), staged.size(), originalFilename, contentType,
+                detectedType, category, description, uploadedBy);
     }
 
     /**
-     * 下载文件
+     * 生成直传地址，客户端直接把文件上传到对象存储，不经过应用服务器
+     * 内容已存在时无需上传，直接调用完成接口即可
      */
-    public Resource loadFileAsResource(String fileName) {
+    public Map<String, Object> presignDirectUpload(DirectUploadRequest request, String uploadedBy) {
+        String originalFilename = StringUtils.cleanPath(request.getFileName());
         try {
-            Path filePath = Paths.get(uploadDir).resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new RuntimeException("文件不存在: " + fileName);
+            validateFileName(originalFilename);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        fileUsageService.checkQuota(uploadedBy, request.getTotalSize());
+        String sha256 = request.getSha256().toLowerCase();
+        Map<String, Object> result = new HashMap<>();
+        boolean exists = fileBlobService.find(sha256)
+                .filter(blob -> blob.getStatus() == FileBlob.BlobStatus.ACTIVE)
+                .filter(blob -> fileBlobService.storeOf(blob).size(blob.getStoragePath()) == request.getTotalSize())
+                .isPresent();
+        result.put("exists", exists);
+        if (!exists) {
+            String key = fileBlobService.contentKey(sha256, getFileExtension(originalFilename));
+            URI uploadUrl = blobStoreRegistry.active().presignUpload(key, sha256, request.getTotalSize(), presignTtl)
+                    .orElseThrow(() -> new IllegalStateException("当前存储后端不支持直传: " + blobStoreRegistry.active().name()));
+            result.put("uploadUrl", uploadUrl.toString());
+            result.put("method", "PUT");
+            result.put("headers", Map.of("x-amz-checksum-sha256",
+                    Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256))));
+            result.put("expiresAt", LocalDateTime.now().plus(presignTtl));
+        }
+        return result;
+    }
+
+    /**
+     * 完成直传，登记文件记录
+     */
+    @Transactional
+    public FileUploadDto completeDirectUpload(DirectUploadRequest request, String uploadedBy) {
+        String originalFilename = StringUtils.cleanPath(request.getFileName());
+        try {
+            validateFileName(originalFilename);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        fileUsageService.checkQuota(uploadedBy, request.getTotalSize());
+        String sha256 = request.getSha256().toLowerCase();
+        String fileExtension = getFileExtension(originalFilename);
+        String location = fileBlobService.storeUploaded(sha256, fileExtension, request.getTotalSize());
+        FileUploadDto savedFile = saveFileRecord(UUID.randomUUID() + "." + fileExtension, location, sha256,
+                request.getTotalSize(), originalFilename, request.getFileType(), null, request.getCategory(),
+                request.getDescription(), uploadedBy);
+        log.info("文件直传完成: {}", savedFile.getId());
+        return savedFile;
+    }
+
+    /**
+     * 保存文件记录
+     *
+     * @param detectedType 按文件头识别的类型，直传的内容不经过应用服务器，为空时由后台任务识别
+     */
+    private FileUploadDto saveFileRecord(String fileName, String location, String checksum, long size,
+                                         String originalFilename, String contentType, String detectedType,
+                                         String category, String description, String uploadedBy) {
+        FileUpload fileUpload = new FileUpload();
+        fileUpload.setFileName(fileName);
+        fileUpload.setFilePath(location);
+        fileUpload.setChecksum(checksum);
+        fileUpload.setFileType(contentType);
+        fileUpload.setDetectedType(detectedType);
+        fileUpload.setFileSize(size);
+        fileUpload.setOriginalName(originalFilename);
+        fileUpload.setDescription(description);
+        fileUpload.setCategory(category);
+        fileUpload.setUploadedBy(uploadedBy);
+        fileUpload.setUploadedAt(LocalDateTime.now());
+        fileUpload.setDownloadCount(0);
+        fileUpload.setProcessingStatus(FileUpload.ProcessingStatus.PENDING);
+        
+        FileUpload savedFile = fileUploadRepository.save(fileUpload);
+        fileUsageService.recordUpload(savedFile);
+        approximateCountService.evict("files:");
+        // 缩略图、预压缩等后处理写入任务表，随本事务提交后由后台线程执行，上传接口不等待；
+        // 只有病毒扫描需要在下载前完成，其余任务不影响文件立即可用
+        if (!fileJobService.enqueue(savedFile).contains(FileJob.JobType.VIRUS_SCAN)) {
+            savedFile.setProcessingStatus(FileUpload.ProcessingStatus.READY);
+        }
+        return convertToDto(savedFile);
+    }
+
+    /**
+     * 下载目标：本地文件直接发送，其他存储后端重定向到预签名地址
+     */
+    public record DownloadTarget(Path file, URI redirect) {
+    }
+
+    /**
+     * 解析下载目标，文件记录和内容位置都来自本地缓存
+     *
+     * @param fileInfo 文件元数据，为空时按文件名在上传目录中查找
+     * @throws IllegalStateException 文件还在后台处理中（未完成病毒扫描），稍后可以下载
+     */
+    public DownloadTarget resolveDownload(String fileName, FileMetadataCache.FileMetadata fileInfo, String downloadName,
+                                          String contentType) {
+        if (fileInfo != null) {
+            checkServable(fileInfo.id(), fileInfo.processingStatus(), fileName);
+        }
+        if (fileInfo != null && fileInfo.checksum() != null) {
+            FileMetadataCache.BlobLocation location = fileMetadataCache.getLocation(fileInfo.checksum())
+                    .orElseThrow(() -> new ResourceNotFoundException("文件不存在: " + fileName));
+            BlobStore store = blobStoreRegistry.get(location.storageBackend());
+            Optional<Path> localFile = store.localPath(location.storagePath());
+            if (localFile.isPresent()) {
+                return new DownloadTarget(localFile.get(), null);
             }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("文件加载失败: " + fileName);
+            return store.presignDownload(location.storagePath(), downloadName, contentType, presignTtl)
+                    .map(url -> new DownloadTarget(null, url))
+                    .orElseThrow(() -> new ResourceNotFoundException("文件不存在: " + fileName));
+        }
+
+        // 回收站中的文件查不到元数据，不能再按文件名从上传目录读取
+        if (fileInfo == null && fileUploadRepository.existsDeletedByFileName(fileName)) {
+            throw new ResourceNotFoundException("文件已删除: " + fileName);
         }
+
+        // 去重存储之前上传的文件
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path filePath = (fileInfo != null ? Paths.get(fileInfo.filePath()) : uploadPath.resolve(fileName))
+                .toAbsolutePath().normalize();
+        // 防止路径遍历读取上传目录之外的文件
+        if (!filePath.startsWith(uploadPath) || !Files.isRegularFile(filePath)) {
+            throw new ResourceNotFoundException("文件不存在: " + fileName);
+        }
+        return new DownloadTarget(filePath, null);
+    }
+
+    /**
+     * 只提供已通过病毒扫描的文件：未通过的视为不存在，扫描未完成（包括重试次数用完）的稍后再试；
+     * 缩略图、预压缩等其他任务不影响下载，旧文件没有处理状态
+     */
+    private void checkServable(Long id, FileUpload.ProcessingStatus status, String fileName) {
+        if (status == null || status == FileUpload.ProcessingStatus.READY) {
+            return;
+        }
+        if (status == FileUpload.ProcessingStatus.INFECTED) {
+            throw new ResourceNotFoundException("文件未通过病毒扫描: " + fileName);
+        }
+        if (fileJobService.hasUnfinished(id, FileJob.JobType.VIRUS_SCAN)) {
+            throw new IllegalStateException("文件还在进行病毒扫描: " + fileName);
+        }
+    }
+
+    /**
+     * 获取图片缩略图
+     */
+    public Path getImageVariant(Long id, int width, boolean acceptWebp) throws IOException {
+        FileUpload fileUpload = fileUploadRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("文件不存在: " + id));
+        checkServable(fileUpload.getId(), fileUpload.getProcessingStatus(), fileUpload.getFileName());
+        return imageVariantService.getVariant(fileUpload, width, acceptWebp);
+    }
+
+    /**
+     * 根据文件名获取图片缩略图
+     */
+    public Path getImageVariantByFileName(String fileName, int width, boolean acceptWebp) throws IOException {
+        FileUpload fileUpload = fileUploadRepository.findByFileName(fileName)
+                .orElseThrow(() -> new ResourceNotFoundException("文件不存在: " + fileName));
+        checkServable(fileUpload.getId(), fileUpload.getProcessingStatus(), fileUpload.getFileName());
+        return imageVariantService.getVariant(fileUpload, width, acceptWebp);
     }
 
     /**
@@ -144,6 +320,16 @@ public class FileStorageService {
         return files.map(this::convertToDto);
     }
 
+    /**
+     * 游标分页获取文件
+     */
+    public CursorSlice<FileUploadDto> scrollFiles(String after, int size, Sort sort, boolean withTotal) {
+        Window<FileUpload> window = fileUploadRepository.findAllBy(
+                KeysetCursor.decode(after, FileUpload.class, sort), sort, Limit.of(paginationProperties.clampPageSize(size)));
+        Long total = withTotal ? approximateCountService.count("files:all", fileUploadRepository::count) : null;
+        return CursorSlice.of(window.map(this::convertToDto), total);
+    }
+
     /**
      * 根据分类获取文件
      */
@@ -160,7 +346,7 @@ public class FileStorageService {
      */
     public Page<FileUploadDto> searchFiles(String keyword, Pageable pageable) {
         log.info("搜索文件，关键词: {}", keyword);
-        Page<FileUpload> files = fileUploadRepository.findByOriginalNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword, pageable);
+        Page<FileUpload> files = fileUploadRepository.searchByKeyword(keyword, pageable);
         return files.map(this::convertToDto);
     }
 
@@ -173,16 +359,19 @@ public class FileStorageService {
         FileUpload fileUpload = fileUploadRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("文件不存在"));
         
+        String oldCategory = fileUpload.getCategory();
         fileUpload.setDescription(description);
         fileUpload.setCategory(category);
         fileUpload.setUpdatedAt(LocalDateTime.now());
         
         FileUpload updatedFile = fileUploadRepository.save(fileUpload);
+        fileUsageService.recordCategoryChange(updatedFile, oldCategory);
         return convertToDto(updatedFile);
     }
 
     /**
      * 删除文件
+     * 文件放入回收站，不再出现在列表和下载中；内容保留到回收站保留期结束，由垃圾回收任务永久删除
      */
     @Transactional
     public void deleteFile(Long id) {
@@ -190,56 +379,45 @@ public class FileStorageService {
         FileUpload fileUpload = fileUploadRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("文件不存在"));
         
-        try {
-            // 删除物理文件
-            Path filePath = Paths.get(fileUpload.getFilePath());
-            Files.deleteIfExists(filePath);
-            
-            // 删除数据库记录
-            fileUploadRepository.delete(fileUpload);
-            
-            log.info("文件删除成功: {}", id);
-        } catch (IOException e) {
-            log.error("文件删除失败", e);
-            throw new RuntimeException("文件删除失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 获取总文件数
-     */
-    public long getTotalFileCount() {
-        return fileUploadRepository.count();
-    }
-
-    /**
-     * 获取总文件大小
-     */
-    public long getTotalFileSize() {
-        return fileUploadRepository.sumFileSize();
+        fileUpload.setStatus(FileUpload.FileStatus.DELETED);
+        fileUpload.setDeletedAt(LocalDateTime.now());
+        fileUploadRepository.save(fileUpload);
+        // 回收站中的文件不计入用量和配额
+        fileUsageService.recordDelete(fileUpload);
+        fileMetadataCache.invalidate(fileUpload.getFileName());
+        approximateCountService.evict("files:");
+        
+        log.info("文件已放入回收站: {}", id);
     }
 
     /**
-     * 按分类统计文件数
+     * 从回收站恢复文件
      */
-    @Timed(value = "service.files.countByCategory", description = "Time taken to get file count by category")
-//    @Cacheable(value = "statistics", key = "'fileCountByCategory'")
-    public Map<String, Long> getFileCountByCategory() {
-        List<Object[]> results = fileUploadRepository.countByCategory();
-        Map<String, Long> categoryCount = new HashMap<>();
-        for (Object[] result : results) {
-            String category = (String) result[0];
-            Long count = (Long) result[1];
-            categoryCount.put(category, count);
+    @Transactional
+    public FileUploadDto restoreFile(Long id) {
+        log.info("恢复文件: {}", id);
+        FileUpload fileUpload = fileUploadRepository.findDeletedById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("回收站中不存在该文件: " + id));
+        fileUsageService.checkQuota(fileUpload.getUploadedBy(), fileUpload.getFileSize() != null ? fileUpload.getFileSize() : 0);
+        // 与垃圾回收任务竞争时以行锁为准，已被永久删除则恢复失败
+        if (fileUploadRepository.restore(id) == 0) {
+            throw new ResourceNotFoundException("回收站中不存在该文件: " + id);
         }
-        return categoryCount;
+        fileUpload.setStatus(FileUpload.FileStatus.ACTIVE);
+        fileUpload.setDeletedAt(null);
+        fileUsageService.recordUpload(fileUpload);
+        fileMetadataCache.invalidate(fileUpload.getFileName());
+        approximateCountService.evict("files:");
+        
+        log.info("文件恢复成功: {}", id);
+        return convertToDto(fileUpload);
     }
 
     /**
-     * 获取总下载次数
+     * 分页获取回收站中的文件
      */
-    public long getTotalDownloadCount() {
-        return fileUploadRepository.sumDownloadCount();
+    public Page<FileUploadDto> getDeletedFiles(Pageable pageable) {
+        return fileUploadRepository.findDeleted(pageable).map(this::convertToDto);
     }
 
     /**
@@ -250,18 +428,6 @@ public class FileStorageService {
         return fileUploadRepository.countByUploadedAtAfter(since);
     }
 
-    /**
-     * 增加下载次数
-     */
-    @Transactional
-    public void incrementDownloadCount(Long id) {
-        FileUpload fileUpload = fileUploadRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("文件不存在"));
-        
-        fileUpload.setDownloadCount(fileUpload.getDownloadCount() + 1);
-        fileUploadRepository.save(fileUpload);
-    }
-
     /**
      * 验证文件
      */
@@ -274,7 +440,13 @@ public class FileStorageService {
             throw new RuntimeException("文件大小超过限制: " + (maxFileSize / 1024 / 1024) + "MB");
         }
         
-        String originalFilename = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename());
+    }
+
+    /**
+     * 验证文件名和扩展名
+     */
+    public void validateFileName(String originalFilename) {
         if (originalFilename == null || originalFilename.isEmpty()) {
             throw new RuntimeException("文件名不能为空");
         }
@@ -324,12 +496,17 @@ public class FileStorageService {
         dto.setFilePath(fileUpload.getFilePath());
         dto.setFileType(fileUpload.getFileType());
         dto.setFileSize(fileUpload.getFileSize());
+        dto.setChecksum(fileUpload.getChecksum());
         dto.setOriginalName(fileUpload.getOriginalName());
         dto.setDescription(fileUpload.getDescription());
         dto.setCategory(fileUpload.getCategory());
         dto.setUploadedBy(fileUpload.getUploadedBy());
         dto.setUploadedAt(fileUpload.getUploadedAt());
         dto.setDownloadCount(fileUpload.getDownloadCount());
+        dto.setProcessingStatus(fileUpload.getProcessingStatus());
+        dto.setDetectedType(fileUpload.getDetectedType());
+        dto.setStatus(fileUpload.getStatus());
+        dto.setDeletedAt(fileUpload.getDeletedAt());
         dto.setDownloadUrl("/api/files/download/" + fileUpload.getFileName());
         return dto;
     }
@@ -0,0 +1,336 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.dto.FileUsageDto;
+import com.dlut.blockchain.entity.FileUpload;
+import com.dlut.blockchain.entity.FileUsage;
+import com.dlut.blockchain.exception.QuotaExceededException;
+import com.dlut.blockchain.repository.FileUploadRepository;
+import com.dlut.blockchain.repository.FileUsageRepository;
+import com.dlut.blockchain.repository.UploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 文件存储用量服务
+ * 按总计、分类、上传者维护用量汇总行，上传和删除时在同一事务中增量更新（回收站中的文件不计入）；
+ * 上传前按汇总行检查配额；定时校准任务按 file_uploads 重新聚合修正偏差（孤立文件由 FileGarbageCollector 处理）
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileUsageService {
+
+    private static final String NO_KEY = "";
+
+    private final FileUsageRepository fileUsageRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 每个上传者的存储空间上限，0 表示不限制
+     */
+    @Value("${file.quota.uploader-max-size:0}")
+    private DataSize uploaderMaxSize;
+
+    /**
+     * 每个上传者的文件数上限，0 表示不限制
+     */
+    @Value("${file.quota.uploader-max-files:0}")
+    private long uploaderMaxFiles;
+
+    /**
+     * 全站存储空间上限，0 表示不限制
+     */
+    @Value("${file.quota.total-max-size:0}")
+    private DataSize totalMaxSize;
+
+    /**
+     * 汇总行的维度和取值
+     */
+    private record UsageKey(FileUsage.UsageScope scope, String key) {
+    }
+
+    /**
+     * 文件数、大小和下载次数
+     */
+    private record Usage(long files, long bytes, long downloads) {
+    }
+
+    /**
+     * 记录新上传的文件，与文件记录在同一事务中提交
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpload(FileUpload fileUpload) {
+        apply(fileUpload.getCategory(), fileUpload.getUploadedBy(),
+                new Usage(1, sizeOf(fileUpload), downloadsOf(fileUpload)));
+    }
+
+    /**
+     * 记录删除的文件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(FileUpload fileUpload) {
+        apply(fileUpload.getCategory(), fileUpload.getUploadedBy(),
+                new Usage(-1, -sizeOf(fileUpload), -downloadsOf(fileUpload)));
+    }
+
+    /**
+     * 记录文件分类的变更
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCategoryChange(FileUpload fileUpload, String oldCategory) {
+        if (keyOf(oldCategory).equals(keyOf(fileUpload.getCategory()))) {
+            return;
+        }
+        long size = sizeOf(fileUpload);
+        long downloads = downloadsOf(fileUpload);
+        fileUsageRepository.addUsage(FileUsage.UsageScope.CATEGORY.name(), keyOf(oldCategory), -1, -size, -downloads);
+        fileUsageRepository.addUsage(FileUsage.UsageScope.CATEGORY.name(), keyOf(fileUpload.getCategory()), 1, size, downloads);
+    }
+
+    /**
+     * 上传前检查配额，未完成的分片上传会话也计入已用空间
+     * 并发上传可能同时通过检查，配额是软限制
+     *
+     * @param size 本次上传的大小
+     */
+    public void checkQuota(String uploadedBy, long size) {
+        if (uploaderMaxSize.toBytes() > 0 || uploaderMaxFiles > 0) {
+            Usage usage = get(FileUsage.UsageScope.UPLOADER, uploadedBy);
+            if (uploaderMaxFiles > 0 && usage.files() + 1 > uploaderMaxFiles) {
+                throw new QuotaExceededException("文件数量已达上限: " + uploaderMaxFiles);
+            }
+            if (uploaderMaxSize.toBytes() > 0) {
+                long used = usage.bytes() + uploadSessionRepository.sumPendingSizeByUploadedBy(uploadedBy);
+                if (used + size > uploaderMaxSize.toBytes()) {
+                    throw new QuotaExceededException(String.format("存储空间不足，已用 %d MB，上限 %d MB",
+                            DataSize.ofBytes(used).toMegabytes(), uploaderMaxSize.toMegabytes()));
+                }
+            }
+        }
+        if (totalMaxSize.toBytes() > 0) {
+            long used = get(FileUsage.UsageScope.TOTAL, NO_KEY).bytes() + uploadSessionRepository.sumPendingSize();
+            if (used + size > totalMaxSize.toBytes()) {
+                throw new QuotaExceededException("站点存储空间不足");
+            }
+        }
+    }
+
+    /**
+     * 总用量
+     */
+    public FileUsageDto getTotal() {
+        return fileUsageRepository.findByScopeAndScopeKey(FileUsage.UsageScope.TOTAL, NO_KEY)
+                .map(this::convertToDto)
+                .orElseGet(() -> emptyDto(FileUsage.UsageScope.TOTAL, NO_KEY));
+    }
+
+    /**
+     * 某一维度的所有用量，按占用空间降序
+     */
+    public List<FileUsageDto> getUsage(FileUsage.UsageScope scope) {
+        return fileUsageRepository.findByScopeOrderByTotalSizeDesc(scope).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 上传者的用量和配额
+     */
+    public Map<String, Object> getUploaderUsage(String uploadedBy) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("usage", fileUsageRepository.findByScopeAndScopeKey(FileUsage.UsageScope.UPLOADER, keyOf(uploadedBy))
+                .map(this::convertToDto)
+                .orElseGet(() -> emptyDto(FileUsage.UsageScope.UPLOADER, keyOf(uploadedBy))));
+        result.put("pendingSize", uploadSessionRepository.sumPendingSizeByUploadedBy(uploadedBy));
+        result.put("maxSize", uploaderMaxSize.toBytes() > 0 ? uploaderMaxSize.toBytes() : null);
+        result.put("maxFiles", uploaderMaxFiles > 0 ? uploaderMaxFiles : null);
+        return result;
+    }
+
+    /**
+     * 各分类的文件数（不含未分类）
+     */
+    public Map<String, Long> getFileCountByCategory() {
+        Map<String, Long> categoryCount = new HashMap<>();
+        for (FileUsage usage : fileUsageRepository.findByScopeOrderByTotalSizeDesc(FileUsage.UsageScope.CATEGORY)) {
+            if (!NO_KEY.equals(usage.getScopeKey())) {
+                categoryCount.put(usage.getScopeKey(), usage.getFileCount());
+            }
+        }
+        return categoryCount;
+    }
+
+    /**
+     * 首次启动（汇总表为空）时按现有文件生成汇总行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (!fileUsageRepository.existsByScope(FileUsage.UsageScope.TOTAL)) {
+                log.info("用量汇总为空，按现有文件生成");
+                reconcileUsage();
+            }
+        } catch (Exception e) {
+            log.warn("生成用量汇总失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时校准
+     */
+    @Scheduled(cron = "${file.usage.reconcile-cron:0 15 4 * * ?}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("用量校准失败", e);
+        }
+    }
+
+    /**
+     * 校准用量汇总
+     *
+     * @return 校准报告
+     */
+    public Map<String, Object> reconcile() {
+        long start = System.currentTimeMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now());
+        report.put("drift", reconcileUsage());
+        report.put("duration", System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * 重新聚合 file_uploads 并覆盖有偏差的汇总行
+     * 锁表后进行中的上传事务已提交、新的上传会等待，聚合结果与汇总行对应同一时刻，多实例同时校准时也依次执行
+     *
+     * @return 有偏差的汇总行（维度:取值 -> 偏差）
+     */
+    private Map<String, Map<String, Long>> reconcileUsage() {
+        Map<String, Map<String, Long>> drift = transactionTemplate.execute(status -> {
+            fileUsageRepository.lockForReconcile();
+            Map<UsageKey, Usage> actual = aggregate();
+            Map<UsageKey, Usage> recorded = new HashMap<>();
+            for (FileUsage usage : fileUsageRepository.findAll()) {
+                recorded.put(new UsageKey(usage.getScope(), usage.getScopeKey()),
+                        new Usage(usage.getFileCount(), usage.getTotalSize(), usage.getDownloadCount()));
+            }
+            Set<UsageKey> keys = new HashSet<>(actual.keySet());
+            keys.addAll(recorded.keySet());
+            Map<String, Map<String, Long>> differences = new LinkedHashMap<>();
+            for (UsageKey key : keys) {
+                Usage expected = actual.getOrDefault(key, new Usage(0, 0, 0));
+                Usage current = recorded.getOrDefault(key, new Usage(0, 0, 0));
+                if (!expected.equals(current) || !recorded.containsKey(key)) {
+                    fileUsageRepository.setUsage(key.scope().name(), key.key(),
+                            expected.files(), expected.bytes(), expected.downloads());
+                }
+                if (!expected.equals(current)) {
+                    Map<String, Long> difference = new LinkedHashMap<>();
+                    difference.put("files", expected.files() - current.files());
+                    difference.put("bytes", expected.bytes() - current.bytes());
+                    difference.put("downloads", expected.downloads() - current.downloads());
+                    differences.put(key.scope() + ":" + key.key(), difference);
+                }
+            }
+            fileUsageRepository.deleteEmpty();
+            return differences;
+        });
+        if (drift != null && !drift.isEmpty()) {
+            log.warn("用量汇总存在偏差，已修正: {}", drift);
+        }
+        return drift;
+    }
+
+    private Map<UsageKey, Usage> aggregate() {
+        Map<UsageKey, Usage> usage = new HashMap<>();
+        long files = 0;
+        long bytes = 0;
+        long downloads = 0;
+        for (Object[] row : fileUploadRepository.aggregateUsageByCategory()) {
+            Usage category = toUsage(row);
+            usage.put(new UsageKey(FileUsage.UsageScope.CATEGORY, (String) row[0]), category);
+            files += category.files();
+            bytes += category.bytes();
+            downloads += category.downloads();
+        }
+        for (Object[] row : fileUploadRepository.aggregateUsageByUploader()) {
+            usage.put(new UsageKey(FileUsage.UsageScope.UPLOADER, (String) row[0]), toUsage(row));
+        }
+        usage.put(new UsageKey(FileUsage.UsageScope.TOTAL, NO_KEY), new Usage(files, bytes, downloads));
+        return usage;
+    }
+
+    private void apply(String category, String uploadedBy, Usage delta) {
+        fileUsageRepository.addUsage(FileUsage.UsageScope.TOTAL.name(), NO_KEY,
+                delta.files(), delta.bytes(), delta.downloads());
+        fileUsageRepository.addUsage(FileUsage.UsageScope.CATEGORY.name(), keyOf(category),
+                delta.files(), delta.bytes(), delta.downloads());
+        fileUsageRepository.addUsage(FileUsage.UsageScope.UPLOADER.name(), keyOf(uploadedBy),
+                delta.files(), delta.bytes(), delta.downloads());
+    }
+
+    private Usage get(FileUsage.UsageScope scope, String key) {
+        return fileUsageRepository.findByScopeAndScopeKey(scope, keyOf(key))
+                .map(usage -> new Usage(usage.getFileCount(), usage.getTotalSize(), usage.getDownloadCount()))
+                .orElse(new Usage(0, 0, 0));
+    }
+
+    private Usage toUsage(Object[] row) {
+        return new Usage(((Number) row[1]).longValue(), ((Number) row[2]).longValue(), ((Number) row[3]).longValue());
+    }
+
+    private String keyOf(String value) {
+        return value == null ? NO_KEY : value;
+    }
+
+    private long sizeOf(FileUpload fileUpload) {
+        return fileUpload.getFileSize() != null ? fileUpload.getFileSize() : 0;
+    }
+
+    private long downloadsOf(FileUpload fileUpload) {
+        return fileUpload.getDownloadCount() != null ? fileUpload.getDownloadCount() : 0;
+    }
+
+    private FileUsageDto convertToDto(FileUsage usage) {
+        FileUsageDto dto = new FileUsageDto();
+        dto.setScope(usage.getScope());
+        dto.setKey(usage.getScopeKey());
+        dto.setFileCount(usage.getFileCount());
+        dto.setTotalSize(usage.getTotalSize());
+        dto.setDownloadCount(usage.getDownloadCount());
+        dto.setUpdatedAt(usage.getUpdatedAt());
+        return dto;
+    }
+
+    private FileUsageDto emptyDto(FileUsage.UsageScope scope, String key) {
+        FileUsageDto dto = new FileUsageDto();
+        dto.setScope(scope);
+        dto.setKey(key);
+        dto.setFileCount(0L);
+        dto.setTotalSize(0L);
+        dto.setDownloadCount(0L);
+        return dto;
+    }
+}
@@ -0,0 +1,433 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.FileUpload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 图片缩略图服务
+ * 上传 jpg/png/gif 后由后台任务生成各档宽度的缩略图，请求未生成的尺寸时在有界线程池中生成并缓存；
+ * 缩略图按内容哈希缓存在磁盘上，内容不变则永不失效，缓存总大小超过上限时按最近访问时间淘汰
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif");
+
+    private final FileBlobService fileBlobService;
+    private final ExecutorService executor;
+    private final Timer generateTimer;
+
+    /**
+     * 正在生成的缩略图，同一尺寸的并发请求共用一次生成
+     */
+    private final ConcurrentHashMap<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${image.variant.cache-dir:uploads-variants}")
+    private String cacheDir;
+
+    @Value("${image.variant.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${image.variant.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${image.variant.cache-max-size:2GB}")
+    private DataSize cacheMaxSize;
+
+    @Value("${image.variant.generate-timeout:10s}")
+    private Duration generateTimeout;
+
+    private final int[] widths;
+    private final boolean webpSupported;
+
+    public ImageVariantService(FileBlobService fileBlobService,
+                               MeterRegistry meterRegistry,
+                               @Value("${image.variant.widths:160,320,640,1280}") int[] widths,
+                               @Value("${image.variant.pool-size:2}") int poolSize,
+                               @Value("${image.variant.queue-capacity:200}") int queueCapacity) {
+        this.fileBlobService = fileBlobService;
+        this.widths = Arrays.stream(widths).sorted().distinct().toArray();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variant-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "image.variant");
+        this.generateTimer = Timer.builder("image.variant.generate")
+                .description("Time taken to generate an image variant")
+                .register(meterRegistry);
+        // JDK 自带的 ImageIO 没有 WebP 编码器，引入插件（如 webp-imageio）后自动启用
+        this.webpSupported = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        log.info("图片缩略图宽度: {}, WebP 编码: {}", Arrays.toString(this.widths), webpSupported ? "可用" : "不可用");
+    }
+
+    /**
+     * 是否为支持生成缩略图的图片
+     */
+    public boolean isSupported(String fileName) {
+        return SUPPORTED_EXTENSIONS.contains(extensionOf(fileName));
+    }
+
+    /**
+     * 生成所有宽度的缩略图（在调用线程中执行，由上传后的后台任务调用），已存在的尺寸跳过
+     */
+    public void generateAll(FileUpload fileUpload) throws IOException {
+        if (!isSupported(fileUpload.getFileName())) {
+            return;
+        }
+        String format = defaultFormat(fileUpload.getFileName());
+        for (int width : widths) {
+            generateIfAbsent(fileUpload, width, format);
+            if (webpSupported) {
+                generateIfAbsent(fileUpload, width, "webp");
+            }
+        }
+    }
+
+    /**
+     * 获取缩略图，未生成时提交到生成线程池并等待结果
+     *
+     * @param requestedWidth 期望宽度，取不小于它的最小档位
+     * @param acceptWebp     客户端是否接受 WebP
+     * @return 缩略图文件（原图不大于目标宽度时不放大，只转换格式）
+     * @throws IllegalStateException 线程池队列已满、生成超时或失败，稍后可以重试
+     */
+    public Path getVariant(FileUpload fileUpload, int requestedWidth, boolean acceptWebp) throws IOException {
+        if (!isSupported(fileUpload.getFileName())) {
+            throw new IllegalArgumentException("不支持的图片类型: " + fileUpload.getFileName());
+        }
+        int width = bucket(requestedWidth);
+        String format = acceptWebp && webpSupported ? "webp" : defaultFormat(fileUpload.getFileName());
+        Path variant = variantPath(fileUpload, width, format);
+        if (Files.isRegularFile(variant)) {
+            touch(variant);
+            return variant;
+        }
+        try {
+            return submit(fileUpload, width, format).get(generateTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 队列已满时不在请求线程中解码图片，避免并发解码耗尽内存
+            throw new IllegalStateException("缩略图生成队列已满");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("生成缩略图失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("生成缩略图超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("生成缩略图被中断");
+        }
+    }
+
+    /**
+     * 缩略图的 Content-Type
+     */
+    public String contentType(Path variant) {
+        String extension = extensionOf(variant.getFileName().toString());
+        return switch (extension) {
+            case "webp" -> "image/webp";
+            case "png" -> "image/png";
+            default -> "image/jpeg";
+        };
+    }
+
+    /**
+     * 定时淘汰缓存：总大小超过上限时删除最久未访问的缩略图
+     */
+    @Scheduled(fixedDelayString = "${image.variant.cache-cleanup-interval:1h}", initialDelayString = "${image.variant.cache-cleanup-interval:1h}")
+    public void evictCache() {
+        Path root = Paths.get(cacheDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(Files::isRegularFile).forEach(files::add);
+        } catch (IOException e) {
+            log.warn("扫描缩略图缓存失败: {}", e.getMessage());
+            return;
+        }
+        long total = files.stream().mapToLong(this::sizeOf).sum();
+        if (total <= cacheMaxSize.toBytes()) {
+            return;
+        }
+        files.sort(Comparator.comparingLong(this::lastModifiedOf));
+        int evicted = 0;
+        for (Path file : files) {
+            if (total <= cacheMaxSize.toBytes() * 9 / 10) {
+                break;
+            }
+            long size = sizeOf(file);
+            try {
+                Files.deleteIfExists(file);
+                total -= size;
+                evicted++;
+            } catch (IOException e) {
+                log.warn("删除缩略图失败: {}", file, e);
+            }
+        }
+        log.info("淘汰缩略图缓存: {} 个文件", evicted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generateIfAbsent(FileUpload fileUpload, int width, String format) throws IOException {
+        if (!Files.isRegularFile(variantPath(fileUpload, width, format))) {
+            generate(fileUpload, width, format);
+        }
+    }
+
+    private CompletableFuture<Path> submit(FileUpload fileUpload, int width, String format) {
+        Path variant = variantPath(fileUpload, width, format);
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(variant, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(Files.isRegularFile(variant) ? variant : generate(fileUpload, width, format));
+                } catch (Throwable e) {
+                    log.warn("生成缩略图失败: fileId={}, width={}, {}", fileUpload.getId(), width, e.getMessage());
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(variant, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(variant, future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * 生成缩略图：按目标宽度子采样解码以减少内存占用，再高质量缩放，写入临时文件后原子改名
+     */
+    private Path generate(FileUpload fileUpload, int width, String format) throws IOException {
+        Timer.Sample sample = Timer.start();
+        Path variant = variantPath(fileUpload, width, format);
+        BufferedImage source = read(fileUpload, width);
+        BufferedImage scaled = source.getWidth() > width ? scale(source, width, "png".equals(format)) : source;
+
+        Files.createDirectories(variant.getParent());
+        Path tempFile = Files.createTempFile(variant.getParent(), ".variant-", ".tmp");
+        try {
+            write(scaled, format, tempFile);
+            try {
+                Files.move(tempFile, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, variant, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        sample.stop(generateTimer);
+        return variant;
+    }
+
+    private BufferedImage read(FileUpload fileUpload, int targetWidth) throws IOException {
+        try (InputStream in = fileBlobService.open(fileUpload);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("无法识别的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxPixels) {
+                    throw new IOException("图片像素过大: " + sourceWidth + "x" + sourceHeight);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // 子采样到不小于目标宽度两倍，后续缩放仍有足够的像素保证质量
+                int subsampling = Math.max(1, sourceWidth / (targetWidth * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int width, boolean keepAlpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        boolean alpha = keepAlpha && source.getColorModel().hasAlpha();
+        BufferedImage current = source;
+        // 逐级减半缩放，避免一次大比例缩放产生锯齿
+        while (current.getWidth() / 2 >= width) {
+            current = resize(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2), alpha);
+        }
+        return resize(current, width, height, alpha);
+    }
+
+    private BufferedImage resize(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                // 透明背景转为白色，避免 JPEG 中出现黑底
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的输出格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed() && !"png".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionTypes() != null && param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(jpegQuality);
+            }
+            // JPEG 不支持透明通道
+            BufferedImage content = "jpg".equals(format) && image.getColorModel().hasAlpha()
+                    ? resize(image, image.getWidth(), image.getHeight(), false)
+                    : image;
+            writer.write(null, new IIOImage(content, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 缩略图缓存路径：按内容哈希组织，相同内容的多次上传共用缩略图
+     */
+    private Path variantPath(FileUpload fileUpload, int width, String format) {
+        String contentKey = fileUpload.getChecksum() != null ? fileUpload.getChecksum() : "legacy-" + fileUpload.getId();
+        return Paths.get(cacheDir, contentKey.substring(0, 2), contentKey, "w" + width + "." + format);
+    }
+
+    /**
+     * 取不小于请求宽度的最小档位，超过最大档位时取最大档位
+     */
+    private int bucket(int requestedWidth) {
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * PNG/GIF 保留透明通道输出 PNG，其余输出 JPEG（GIF 只取第一帧）
+     */
+    private String defaultFormat(String fileName) {
+        String extension = extensionOf(fileName);
+        return "png".equals(extension) || "gif".equals(extension) ? "png" : "jpg";
+    }
+
+    /**
+     * 以修改时间近似记录访问时间，一小时内只更新一次
+     */
+    private void touch(Path file) {
+        long now = System.currentTimeMillis();
+        if (now - lastModifiedOf(file) < TimeUnit.HOURS.toMillis(1)) {
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            log.debug("更新缩略图访问时间失败: {}", file);
+        }
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long lastModifiedOf(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private String extensionOf(String fileName) {
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex == -1 ? "" : fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+}
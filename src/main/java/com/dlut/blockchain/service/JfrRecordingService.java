@@ -0,0 +1,320 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.jfr.MethodExecutionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 持续 JFR 记录服务
+ * 启动后按低开销配置持续记录（数据保存在 JFR 磁盘仓库中，按最长保留时间和大小滚动）；
+ * 定期把最近一段记录导出到 jfr.dump-dir，目录中只保留最近的若干个文件；
+ * 另开一个 RecordingStream 把分配、GC 暂停、锁竞争、Socket 读取和安全点耗时实时转换为指标
+ */
+@Slf4j
+@Service
+public class JfrRecordingService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Duration methodThreshold;
+    private final Duration rotateInterval;
+    private final Path dumpDir;
+    private final int keep;
+
+    private volatile Recording recording;
+    private volatile RecordingStream stream;
+
+    /**
+     * JFR 事件转换的指标
+     */
+    private final Counter allocatedBytes;
+    private final Timer lockWait;
+    private final Timer socketRead;
+    private final Map<String, Timer> gcPauses = new ConcurrentHashMap<>();
+    private final Timer safepointSync;
+    private final Timer safepointOperation;
+
+    public JfrRecordingService(MeterRegistry meterRegistry,
+                               @Value("${jfr.enabled:true}") boolean enabled,
+                               @Value("${jfr.max-age:6h}") Duration maxAge,
+                               @Value("${jfr.max-size:256MB}") DataSize maxSize,
+                               @Value("${jfr.method-threshold:20ms}") Duration methodThreshold,
+                               @Value("${jfr.rotate-interval:1h}") Duration rotateInterval,
+                               @Value("${jfr.dump-dir:jfr-recordings}") String dumpDir,
+                               @Value("${jfr.keep:24}") int keep) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.methodThreshold = methodThreshold;
+        this.rotateInterval = rotateInterval;
+        this.dumpDir = Paths.get(dumpDir).toAbsolutePath().normalize();
+        this.keep = keep;
+        this.allocatedBytes = Counter.builder("jfr.allocation")
+                .description("Sampled object allocation weight from jdk.ObjectAllocationSample")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.lockWait = Timer.builder("jfr.lock.wait")
+                .description("Monitor enter wait time from jdk.JavaMonitorEnter")
+                .register(meterRegistry);
+        this.socketRead = Timer.builder("jfr.socket.read")
+                .description("Socket read time from jdk.SocketRead")
+                .register(meterRegistry);
+        this.safepointSync = Timer.builder("jfr.safepoint")
+                .description("Time to reach safepoint from jdk.SafepointBegin")
+                .tag("phase", "sync")
+                .register(meterRegistry);
+        this.safepointOperation = Timer.builder("jfr.safepoint")
+                .description("VM operations executed at safepoint from jdk.ExecuteVMOperation")
+                .tag("phase", "operation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动持续记录和实时事件流
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !FlightRecorder.isAvailable()) {
+            log.info("JFR 持续记录未开启");
+            return;
+        }
+        try {
+            Recording continuous = new Recording(profileSettings());
+            continuous.setName("blockchain-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(maxAge);
+            continuous.setMaxSize(maxSize.toBytes());
+            continuous.start();
+            recording = continuous;
+            stream = startStream();
+            log.info("JFR 持续记录已启动: 保留 {}，最大 {}，方法事件阈值 {}ms", maxAge, maxSize, methodThreshold.toMillis());
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("启动 JFR 持续记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 低开销配置：在 JDK 自带的 default 配置上调整
+     * 方法事件只记录超过阈值的调用且不采集栈；分配采样限流；锁竞争和 Socket 读取只记录超过 20ms 的事件；
+     * 环境变量、系统属性、启动参数和主机进程命令行中可能有密钥和数据库密码，不写入记录
+     */
+    private Map<String, String> profileSettings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        settings.put(MethodExecutionEvent.NAME + "#enabled", "true");
+        settings.put(MethodExecutionEvent.NAME + "#threshold", methodThreshold.toMillis() + " ms");
+        settings.put("jdk.ObjectAllocationSample#throttle", "100/s");
+        settings.put("jdk.JavaMonitorEnter#threshold", "20 ms");
+        settings.put("jdk.SocketRead#threshold", "20 ms");
+        settings.put("jdk.SocketWrite#threshold", "20 ms");
+        settings.put("jdk.InitialEnvironmentVariable#enabled", "false");
+        settings.put("jdk.InitialSystemProperty#enabled", "false");
+        settings.put("jdk.JVMInformation#enabled", "false");
+        settings.put("jdk.SystemProcess#enabled", "false");
+        return settings;
+    }
+
+    /**
+     * 实时事件流：只订阅转换为指标所需的事件
+     */
+    private RecordingStream startStream() {
+        RecordingStream events = new RecordingStream();
+        events.setMaxAge(Duration.ofSeconds(10));
+        events.enable("jdk.ObjectAllocationSample").with("throttle", "100/s");
+        events.enable("jdk.GarbageCollection");
+        events.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        events.enable("jdk.SocketRead").withThreshold(Duration.ofMillis(10));
+        events.enable("jdk.SafepointBegin");
+        events.enable("jdk.ExecuteVMOperation");
+        events.onEvent("jdk.ObjectAllocationSample", event -> allocatedBytes.increment(event.getLong("weight")));
+        events.onEvent("jdk.GarbageCollection", event -> gcPauses.computeIfAbsent(event.getString("name"),
+                        name -> Timer.builder("jfr.gc.pause")
+                                .description("Longest pause of each garbage collection from jdk.GarbageCollection")
+                                .tag("gc", name)
+                                .register(meterRegistry))
+                .record(event.getDuration("longestPause")));
+        events.onEvent("jdk.JavaMonitorEnter", event -> lockWait.record(event.getDuration()));
+        events.onEvent("jdk.SocketRead", event -> socketRead.record(event.getDuration()));
+        events.onEvent("jdk.SafepointBegin", event -> safepointSync.record(event.getDuration()));
+        events.onEvent("jdk.ExecuteVMOperation", event -> {
+            if (event.getBoolean("safepoint")) {
+                safepointOperation.record(event.getDuration());
+            }
+        });
+        events.startAsync();
+        return events;
+    }
+
+    /**
+     * 导出最近一段时间的记录（按 JFR 数据块导出，实际范围可能略大）
+     *
+     * @param last 导出的时长
+     * @return 导出的文件
+     */
+    public Path dump(Duration last) throws IOException {
+        return dump(last, "dump");
+    }
+
+    private Path dump(Duration last, String prefix) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("JFR 持续记录未开启");
+        }
+        Files.createDirectories(dumpDir);
+        // 文件名带随机后缀，同一秒内多次导出不会冲突
+        Path file = Files.createTempFile(dumpDir, prefix + "-" + LocalDateTime.now().format(FILE_TIME) + "-", ".jfr");
+        Instant end = Instant.now();
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot();
+             InputStream in = snapshot.getStream(end.minus(last), end)) {
+            if (in == null) {
+                throw new IllegalStateException("该时间段内没有记录数据");
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        pruneDumps();
+        return file;
+    }
+
+    /**
+     * 定期导出上一周期的记录，形成磁盘上滚动的记录文件
+     */
+    @Scheduled(fixedDelayString = "${jfr.rotate-interval:1h}", initialDelayString = "${jfr.rotate-interval:1h}")
+    public void rotate() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            Path file = dump(rotateInterval, "recording");
+            log.debug("导出 JFR 记录: {}", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("导出 JFR 记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 只保留最近的 keep 个记录文件
+     */
+    private void pruneDumps() throws IOException {
+        List<Path> files = listDumps();
+        for (int i = keep; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * 导出目录中的记录文件，最新的在前
+     */
+    private List<Path> listDumps() throws IOException {
+        if (!Files.isDirectory(dumpDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dumpDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing((Path file) -> file.toFile().lastModified()).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * 持续记录的状态和磁盘上的记录文件
+     */
+    public Map<String, Object> getStatus() throws IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Recording current = recording;
+        status.put("enabled", current != null);
+        if (current != null) {
+            status.put("state", current.getState());
+            status.put("startTime", current.getStartTime());
+            status.put("maxAge", maxAge.toString());
+            status.put("maxSize", maxSize.toBytes());
+            status.put("size", current.getSize());
+            status.put("methodThreshold", methodThreshold.toMillis());
+        }
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (Path file : listDumps()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("name", file.getFileName().toString());
+            info.put("size", Files.size(file));
+            files.add(info);
+        }
+        status.put("files", files);
+        return status;
+    }
+
+    /**
+     * 实时事件流转换的指标（毫秒）；计时器的最大值为最近一个统计窗口内的值
+     */
+    public Map<String, Object> getLiveMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("streaming", stream != null);
+        metrics.put("allocatedBytes", allocatedBytes.count());
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gcPauses.forEach((name, timer) -> gc.put(name, summarize(timer)));
+        metrics.put("gcPause", gc);
+        metrics.put("lockWait", summarize(lockWait));
+        metrics.put("socketRead", summarize(socketRead));
+        Map<String, Object> safepoint = new LinkedHashMap<>();
+        safepoint.put("sync", summarize(safepointSync));
+        safepoint.put("operation", summarize(safepointOperation));
+        metrics.put("safepoint", safepoint);
+        return metrics;
+    }
+
+    private static Map<String, Object> summarize(Timer timer) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", timer.count());
+        summary.put("total", timer.totalTime(TimeUnit.MILLISECONDS));
+        summary.put("max", timer.max(TimeUnit.MILLISECONDS));
+        return summary;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.dlut.blockchain.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM 运行时指标
+ * GC 暂停、CPU、缓冲池和线程状态的持续指标由 Spring Boot 注册（jvm.gc.pause、process.cpu.usage、
+ * jvm.buffer.*、jvm.threads.states），安全点耗时由 JFR 事件流注册（jfr.safepoint）；
+ * 本服务定期采样 CPU 时间、各收集器的次数和耗时、每个线程的累计分配字节数，按配置的时间窗口计算增量
+ */
+@Service
+public class JvmMetricsService {
+
+    private final MeterRegistry meterRegistry;
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final com.sun.management.OperatingSystemMXBean osMXBean;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+
+    private final List<Duration> windows;
+    private final Duration retention;
+
+    /**
+     * 采样历史，最早的在前；只保留最长窗口加一个采样周期
+     */
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    public JvmMetricsService(MeterRegistry meterRegistry,
+                             @Value("${performance.jvm.windows:1m,5m,15m}") List<Duration> windows,
+                             @Value("${performance.jvm.sample-interval:10s}") Duration sampleInterval) {
+        this.meterRegistry = meterRegistry;
+        this.windows = windows;
+        this.retention = windows.stream().max(Comparator.naturalOrder()).orElse(Duration.ofMinutes(15))
+                .plus(sampleInterval);
+        this.allocationMXBean = threadMXBean instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() ? bean : null;
+        this.osMXBean = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean bean
+                ? bean : null;
+        if (allocationMXBean != null && !allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * 一次采样：单调时间、进程 CPU 时间、各收集器的累计次数和耗时、各线程的累计分配字节数、安全点累计次数和耗时
+     */
+    private record Sample(long nanoTime, long processCpuNanos, Map<String, long[]> gc,
+                          Map<Long, Long> allocatedBytes, Map<String, double[]> safepoint) {
+    }
+
+    /**
+     * 定期采样
+     */
+    @Scheduled(fixedDelayString = "${performance.jvm.sample-interval:10s}")
+    public void sample() {
+        Sample sample = takeSample(null);
+        synchronized (samples) {
+            samples.addLast(sample);
+            long cutoff = sample.nanoTime() - retention.toNanos();
+            while (samples.size() > 1 && samples.peekFirst().nanoTime() < cutoff) {
+                samples.removeFirst();
+            }
+        }
+    }
+
+    private Sample takeSample(ThreadInfo[] threads) {
+        Map<String, long[]> gc = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : collectors) {
+            gc.put(collector.getName(), new long[]{collector.getCollectionCount(), collector.getCollectionTime()});
+        }
+        Map<Long, Long> allocated = new HashMap<>();
+        if (allocationMXBean != null) {
+            long[] ids = threads != null
+                    ? Arrays.stream(threads).filter(thread -> thread != null).mapToLong(ThreadInfo::getThreadId).toArray()
+                    : threadMXBean.getAllThreadIds();
+            long[] bytes = allocationMXBean.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    allocated.put(ids[i], bytes[i]);
+                }
+            }
+        }
+        Map<String, double[]> safepoint = new LinkedHashMap<>();
+        for (Timer timer : meterRegistry.find("jfr.safepoint").timers()) {
+            safepoint.put(timer.getId().getTag("phase"),
+                    new double[]{timer.count(), timer.totalTime(TimeUnit.MILLISECONDS)});
+        }
+        long cpu = osMXBean != null ? osMXBean.getProcessCpuTime() : -1;
+        return new Sample(System.nanoTime(), cpu, gc, allocated, safepoint);
+    }
+
+    /**
+     * 当前的 JVM 指标和各时间窗口内的增量
+     *
+     * @param window 只计算该窗口；为 null 时计算所有配置的窗口
+     * @param top    每个窗口返回分配最多的线程数
+     */
+    public Map<String, Object> getJvmMetrics(Duration window, int top) {
+        ThreadInfo[] threads = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0);
+        Sample now = takeSample(threads);
+        Map<Long, String> threadNames = new HashMap<>();
+        Map<Thread.State, Integer> states = new EnumMap<>(Thread.State.class);
+        for (ThreadInfo thread : threads) {
+            if (thread != null) {
+                threadNames.put(thread.getThreadId(), thread.getThreadName());
+                states.merge(thread.getThreadState(), 1, Integer::sum);
+            }
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("timestamp", LocalDateTime.now());
+        metrics.put("memory", memory());
+        metrics.put("threads", threads(states));
+        metrics.put("cpu", cpu());
+        metrics.put("gcPause", gcPause());
+
+        Map<String, Object> deltas = new LinkedHashMap<>();
+        for (Duration each : window != null ? List.of(window) : windows) {
+            deltas.put(each.toString(), delta(baseline(now, each), now, threadNames, top));
+        }
+        metrics.put("windows", deltas);
+        return metrics;
+    }
+
+    /**
+     * 窗口起点的采样：不晚于 now - window 的最近一次采样，历史不足时取最早的采样
+     */
+    private Sample baseline(Sample now, Duration window) {
+        long start = now.nanoTime() - window.toNanos();
+        synchronized (samples) {
+            Sample baseline = null;
+            for (Sample sample : samples) {
+                if (baseline == null || sample.nanoTime() <= start) {
+                    baseline = sample;
+                } else {
+                    break;
+                }
+            }
+            return baseline;
+        }
+    }
+
+    /**
+     * 两次采样之间的增量：CPU 使用率、各收集器的次数和耗时、GC 耗时占比、分配速率、安全点次数和耗时
+     * 分配速率只统计两次采样时都存活的线程
+     */
+    private Map<String, Object> delta(Sample from, Sample to, Map<Long, String> threadNames, int top) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        if (from == null || from == to || to.nanoTime() <= from.nanoTime()) {
+            delta.put("available", false);
+            return delta;
+        }
+        double seconds = (to.nanoTime() - from.nanoTime()) / 1e9;
+        delta.put("seconds", seconds);
+
+        if (from.processCpuNanos() >= 0 && to.processCpuNanos() >= 0) {
+            double cpuSeconds = (to.processCpuNanos() - from.processCpuNanos()) / 1e9;
+            delta.put("processCpuUsage", cpuSeconds / seconds / Runtime.getRuntime().availableProcessors());
+        }
+
+        Map<String, Object> gc = new LinkedHashMap<>();
+        long gcMillis = 0;
+        for (Map.Entry<String, long[]> entry : to.gc().entrySet()) {
+            long[] before = from.gc().getOrDefault(entry.getKey(), new long[2]);
+            long count = entry.getValue()[0] - before[0];
+            long time = entry.getValue()[1] - before[1];
+            gcMillis += time;
+            Map<String, Object> collector = new LinkedHashMap<>();
+            collector.put("count", count);
+            collector.put("time", time);
+            gc.put(entry.getKey(), collector);
+        }
+        delta.put("gc", gc);
+        delta.put("gcTimeRatio", gcMillis / (seconds * 1000));
+
+        long allocated = 0;
+        List<Map<String, Object>> threads = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : to.allocatedBytes().entrySet()) {
+            Long before = from.allocatedBytes().get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            long bytes = entry.getValue() - before;
+            allocated += bytes;
+            if (bytes > 0) {
+                Map<String, Object> thread = new LinkedHashMap<>();
+                thread.put("id", entry.getKey());
+                thread.put("name", threadNames.get(entry.getKey()));
+                thread.put("bytesPerSecond", bytes / seconds);
+                threads.add(thread);
+            }
+        }
+        threads.sort(Comparator.comparingDouble((Map<String, Object> thread) ->
+                (Double) thread.get("bytesPerSecond")).reversed());
+        delta.put("allocationBytesPerSecond", allocated / seconds);
+        delta.put("topAllocatingThreads", threads.subList(0, Math.min(Math.max(top, 0), threads.size())));
+
+        Map<String, Object> safepoint = new LinkedHashMap<>();
+        to.safepoint().forEach((phase, value) -> {
+            double[] before = from.safepoint().getOrDefault(phase, new double[2]);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", value[0] - before[0]);
+            summary.put("time", value[1] - before[1]);
+            safepoint.put(phase, summary);
+        });
+        delta.put("safepoint", safepoint);
+        return delta;
+    }
+
+    /**
+     * 堆、非堆和直接/映射缓冲池分别统计（字节）
+     */
+    private Map<String, Object> memory() {
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("heap", usage(memoryMXBean.getHeapMemoryUsage()));
+        memory.put("nonHeap", usage(memoryMXBean.getNonHeapMemoryUsage()));
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (BufferPoolMXBean pool : bufferPools) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", pool.getCount());
+            summary.put("used", pool.getMemoryUsed());
+            summary.put("capacity", pool.getTotalCapacity());
+            pools.put(pool.getName(), summary);
+        }
+        memory.put("bufferPools", pools);
+        return memory;
+    }
+
+    private static Map<String, Object> usage(MemoryUsage usage) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("used", usage.getUsed());
+        summary.put("committed", usage.getCommitted());
+        summary.put("max", usage.getMax());
+        return summary;
+    }
+
+    private Map<String, Object> threads(Map<Thread.State, Integer> states) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", threadMXBean.getThreadCount());
+        summary.put("daemon", threadMXBean.getDaemonThreadCount());
+        summary.put("peak", threadMXBean.getPeakThreadCount());
+        summary.put("states", states);
+        return summary;
+    }
+
+    private Map<String, Object> cpu() {
+        Map<String, Object> cpu = new LinkedHashMap<>();
+        cpu.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        if (osMXBean != null) {
+            cpu.put("processCpuLoad", osMXBean.getProcessCpuLoad());
+            cpu.put("systemCpuLoad", osMXBean.getCpuLoad());
+        }
+        cpu.put("systemLoadAverage", ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+        return cpu;
+    }
+
+    /**
+     * jvm.gc.pause 按收集器和原因区分的暂停分布（毫秒）
+     */
+    private List<Map<String, Object>> gcPause() {
+        List<Map<String, Object>> pauses = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("jvm.gc.pause").timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("gc", timer.getId().getTag("gc"));
+            summary.put("action", timer.getId().getTag("action"));
+            summary.put("cause", timer.getId().getTag("cause"));
+            summary.put("count", snapshot.count());
+            summary.put("total", snapshot.total(TimeUnit.MILLISECONDS));
+            summary.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                summary.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+            }
+            pauses.add(summary);
+        }
+        return pauses;
+    }
+}
@@ -1,5 +1,9 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.JsonStreamWriter;
+import com.dlut.blockchain.common.KeysetCursor;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.MeetingDto;
 import com.dlut.blockchain.entity.Meeting;
 import com.dlut.blockchain.exception.ResourceNotFoundException;
@@ -9,12 +13,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,6 +38,9 @@ import java.util.stream.Collectors;
 public class MeetingService {
 
     private final MeetingRepository meetingRepository;
+    private final ApproximateCountService approximateCountService;
+    private final PaginationProperties paginationProperties;
+    private final JsonStreamWriter jsonStreamWriter;
 
     /**
      * 获取所有例会（分页）
@@ -92,13 +105,35 @@ public class MeetingService {
         return meetings.subList(start, end);
     }
 
+    /**
+     * 游标分页获取例会
+     */
+    @Timed(value = "service.meetings.scroll", description = "Time taken to scroll meetings")
+    public CursorSlice<MeetingDto> scrollMeetings(String after, int size, Sort sort, boolean withTotal) {
+        Window<Meeting> window = meetingRepository.findAllBy(
+                KeysetCursor.decode(after, Meeting.class, sort), sort, Limit.of(paginationProperties.clampPageSize(size)));
+        Long total = withTotal ? approximateCountService.count("meetings:all", meetingRepository::count) : null;
+        return CursorSlice.of(window.map(this::convertToDto), total);
+    }
+
     /**
      * 获取所有已完成的例会
      */
-    public List<MeetingDto> getCompletedMeetings() {
-        log.info("获取所有已完成的例会");
-        Page<Meeting> meetings = meetingRepository.findCompletedMeetings(Pageable.unpaged());
-        return meetings.getContent().stream().map(this::convertToDto).collect(Collectors.toList());
+    public Slice<MeetingDto> getCompletedMeetings(int page, Integer size) {
+        log.info("获取已完成的例会: page={}", page);
+        // 查询已按会议日期排序，这里只做分页
+        Slice<Meeting> meetings = meetingRepository.findCompletedMeetings(paginationProperties.listRequest(page, size, Sort.unsorted()));
+        return meetings.map(this::convertToDto);
+    }
+
+    /**
+     * 流式写出所有已完成的例会，不受列表条数上限限制
+     *
+     * @return 写出的条数
+     */
+    @Transactional(readOnly = true)
+    public long streamCompletedMeetings(OutputStream out) throws IOException {
+        return jsonStreamWriter.writeArray(meetingRepository.streamCompletedMeetings(), this::convertToDto, out);
     }
 
     /**
@@ -136,10 +171,11 @@ public class MeetingService {
      */
     @Timed(value = "service.meetings.byType", description = "Time taken to get meetings by type")
 //    @Cacheable(value = "meetings", key = "'type:' + #type.name()")
-    public List<MeetingDto> getMeetingsByType(Meeting.MeetingType type) {
+    public Slice<MeetingDto> getMeetingsByType(Meeting.MeetingType type, int page, Integer size) {
         log.info("根据类型获取例会: {}", type);
-        Page<Meeting> meetings = meetingRepository.findByType(type, Pageable.unpaged());
-        return meetings.getContent().stream().map(this::convertToDto).collect(Collectors.toList());
+        Slice<Meeting> meetings = meetingRepository.findByType(type,
+                paginationProperties.listRequest(page, size, Sort.by(Sort.Direction.DESC, "meetingDate", "id")));
+        return meetings.map(this::convertToDto);
     }
 
     /**
@@ -172,6 +208,7 @@ public class MeetingService {
         log.info("创建例会: {}", meetingDto.getTitle());
         Meeting meeting = convertToEntity(meetingDto);
         Meeting savedMeeting = meetingRepository.save(meeting);
+        approximateCountService.evict("meetings:");
         return convertToDto(savedMeeting);
     }
 
@@ -219,6 +256,7 @@ public class MeetingService {
             throw new ResourceNotFoundException("例会不存在");
         }
         meetingRepository.deleteById(id);
+        approximateCountService.evict("meetings:");
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.JsonStreamWriter;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.MemberDto;
 import com.dlut.blockchain.entity.Member;
 import com.dlut.blockchain.repository.MemberRepository;
@@ -10,9 +12,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -26,6 +32,8 @@ import java.util.stream.Collectors;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final PaginationProperties paginationProperties;
+    private final JsonStreamWriter jsonStreamWriter;
 
     /**
      * 获取所有成员（分页）
@@ -48,11 +56,19 @@ public class MemberService {
     /**
      * 获取特色成员
      */
-    public List<MemberDto> getFeaturedMembers() {
-        return memberRepository.findByFeaturedTrue(Pageable.unpaged())
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public Slice<MemberDto> getFeaturedMembers(int page, Integer size) {
+        return memberRepository.findByFeaturedTrue(listRequest(page, size))
+                .map(this::convertToDto);
+    }
+
+    /**
+     * 流式写出指定状态的成员，不受列表条数上限限制
+     *
+     * @return 写出的条数
+     */
+    @Transactional(readOnly = true)
+    public long streamMembers(Member.MemberStatus status, OutputStream out) throws IOException {
+        return jsonStreamWriter.writeArray(memberRepository.streamByStatus(status), this::convertToDto, out);
     }
 
     /**
@@ -76,35 +92,29 @@ public class MemberService {
     /**
      * 根据角色获取成员
      */
-    public List<MemberDto> getMembersByRole(Member.MemberRole role) {
-        return memberRepository.findByRole(role, Pageable.unpaged())
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public Slice<MemberDto> getMembersByRole(Member.MemberRole role, int page, Integer size) {
+        return memberRepository.findByRole(role, listRequest(page, size))
+                .map(this::convertToDto);
     }
 
     /**
      * 根据年级获取成员
      */
     @Timed(value = "service.members.byGrade", description = "Time taken to get members by grade")
-    @Cacheable(value = "members", key = "'grade:' + #grade")
-    public List<MemberDto> getMembersByGrade(String grade) {
-        return memberRepository.findByGrade(grade, Pageable.unpaged())
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+//    @Cacheable(value = "members", key = "'grade:' + #grade")
+    public Slice<MemberDto> getMembersByGrade(String grade, int page, Integer size) {
+        return memberRepository.findByGrade(grade, listRequest(page, size))
+                .map(this::convertToDto);
     }
 
     /**
      * 搜索成员
      */
     @Timed(value = "service.members.search", description = "Time taken to search members")
-    @Cacheable(value = "members", key = "'search:' + #keyword")
-    public List<MemberDto> searchMembers(String keyword) {
-        return memberRepository.searchMembers(keyword, Pageable.unpaged())
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+//    @Cacheable(value = "members", key = "'search:' + #keyword")
+    public Slice<MemberDto> searchMembers(String keyword, int page, Integer size) {
+        return memberRepository.searchMembers(keyword, listRequest(page, size))
+                .map(this::convertToDto);
     }
 
     /**
@@ -182,6 +192,13 @@ public class MemberService {
         log.info("更新成员显示顺序: {} - {} -> {}", member.getStudentId(), member.getName(), displayOrder);
     }
 
+    /**
+     * 列表查询统一按显示顺序取前 maxListSize 条
+     */
+    private Pageable listRequest(int page, Integer size) {
+        return paginationProperties.listRequest(page, size, Sort.by("displayOrder", "id"));
+    }
+
     /**
      * 实体转换为DTO
      */
@@ -1,22 +1,36 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.RouteTemplateResolver;
+import com.dlut.blockchain.config.TagCardinalityFilter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -30,18 +44,48 @@ import java.util.concurrent.atomic.AtomicLong;
 public class PerformanceMonitorService {
 
     private static final Logger logger = LoggerFactory.getLogger(PerformanceMonitorService.class);
+
+    /**
+     * 响应时间分位数
+     */
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
     
     private final MeterRegistry meterRegistry;
     private final MemoryMXBean memoryMXBean;
     private final ThreadMXBean threadMXBean;
+
+    /**
+     * 分位数和最大值的滑动窗口长度及分段数
+     */
+    private final Duration percentileWindow;
+    private final int windowBuffers;
+
+    /**
+     * 每层缓存的最大条目数，与指标标签的取值上限一致，超出的端点、表名记入 OTHER
+     */
+    private final int maxTagValues;
     
     // 性能统计缓存
     private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
     private final Map<String, AtomicLong> errorCounts = new ConcurrentHashMap<>();
     private final Map<String, Long> slowQueries = new ConcurrentHashMap<>();
+
+    /**
+     * 已注册的指标，按 端点 -> HTTP方法（查询类型 -> 表名）缓存，记录时不再构造标签和查询注册表；
+     * requestCounts、errorCounts 的条目随之创建，数量受同一上限约束
+     */
+    private final Map<String, Map<String, ApiMeters>> apiMeters = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, DatabaseMeters>> databaseMeters = new ConcurrentHashMap<>();
     
-    public PerformanceMonitorService(MeterRegistry meterRegistry) {
+    public PerformanceMonitorService(MeterRegistry meterRegistry,
+                                     @Value("${performance.metrics.percentile-window:1m}") Duration percentileWindow,
+                                     @Value("${performance.metrics.window-buffers:3}") int windowBuffers,
+                                     @Value("${performance.metrics.max-tag-values:200}") int maxTagValues) {
         this.meterRegistry = meterRegistry;
+        this.percentileWindow = percentileWindow;
+        this.windowBuffers = windowBuffers;
+        this.maxTagValues = maxTagValues;
         this.memoryMXBean = ManagementFactory.getMemoryMXBean();
         this.threadMXBean = ManagementFactory.getThreadMXBean();
         
@@ -49,14 +93,32 @@ public class PerformanceMonitorService {
         registerSystemMetrics();
     }
     
+    /**
+     * 一个API端点的指标
+     */
+    private record ApiMeters(Counter successCount, Counter errorCount, Timer duration,
+                             Counter slow, AtomicLong requests, AtomicLong errors) {
+    }
+
+    /**
+     * 一类数据库查询的指标
+     */
+    private record DatabaseMeters(Counter count, Timer duration, Counter rows, Counter slow) {
+    }
+
     /**
      * 注册系统性能指标
      * 包括内存使用、线程数等基础监控指标
      */
     private void registerSystemMetrics() {
-        // 内存使用量
-        Gauge.builder("system.memory.usage", this, PerformanceMonitorService::getMemoryUsage)
-            .description("System memory usage in bytes")
+        // 堆内存使用量
+        Gauge.builder("system.memory.heap.used", this, PerformanceMonitorService::getHeapMemoryUsed)
+            .description("Heap memory used in bytes")
+            .register(meterRegistry);
+
+        // 非堆内存使用量
+        Gauge.builder("system.memory.nonheap.used", this, PerformanceMonitorService::getNonHeapMemoryUsed)
+            .description("Non-heap memory used in bytes")
             .register(meterRegistry);
             
         // 堆内存使用率
@@ -69,55 +131,47 @@ public class PerformanceMonitorService {
             .description("Current thread count")
             .register(meterRegistry);
             
-        // 活跃线程数
+        // 活跃（RUNNABLE）线程数
         Gauge.builder("system.thread.active.count", this, PerformanceMonitorService::getActiveThreadCount)
-            .description("Active thread count")
+            .description("Runnable thread count")
+            .register(meterRegistry);
+
+        // 守护线程数
+        Gauge.builder("system.thread.daemon.count", this, PerformanceMonitorService::getDaemonThreadCount)
+            .description("Daemon thread count")
             .register(meterRegistry);
     }
     
     /**
      * 记录API请求性能指标
      * 
-     * @param endpoint API端点
+     * @param endpoint API端点（路由模板；传入实际路径时把其中的ID替换为 {id}）
      * @param method HTTP方法
-     * @param duration 执行时间（毫秒）
+     * @param durationNanos 执行时间（纳秒）
      * @param success 是否成功
      */
-    public void recordApiMetrics(String endpoint, String method, long duration, boolean success) {
-        String metricName = "api.request";
+    public void recordApiMetrics(String endpoint, String method, long durationNanos, boolean success) {
+        ApiMeters meters = apiMeters(endpoint, method);
         
-        // 记录请求计数
-        Counter.builder(metricName + ".count")
-            .tag("endpoint", endpoint)
-            .tag("method", method)
-            .tag("status", success ? "success" : "error")
-            .register(meterRegistry)
-            .increment();
-            
-        // 记录响应时间
-        Timer.builder(metricName + ".duration")
-            .tag("endpoint", endpoint)
-            .tag("method", method)
-            .tag("status", success ? "success" : "error")
-            .register(meterRegistry)
-            .record(java.time.Duration.ofMillis(duration));
+        // 记录请求计数和响应时间（每个端点一个计时器，成功和失败的请求在同一直方图中计算分位数）
+        if (success) {
+            meters.successCount().increment();
+        } else {
+            meters.errorCount().increment();
+        }
+        meters.duration().record(durationNanos, TimeUnit.NANOSECONDS);
             
         // 记录慢查询
+        long duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
         if (duration > 1000) {
-            Counter.builder(metricName + ".slow")
-                .tag("endpoint", endpoint)
-                .tag("method", method)
-                .register(meterRegistry)
-                .increment();
-                
+            meters.slow().increment();
             logger.warn("Slow API request detected: {} {} took {}ms", method, endpoint, duration);
         }
         
         // 更新统计缓存
-        String key = method + " " + endpoint;
-        requestCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        meters.requests().incrementAndGet();
         if (!success) {
-            errorCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+            meters.errors().incrementAndGet();
         }
     }
     
@@ -126,55 +180,262 @@ public class PerformanceMonitorService {
      * 
      * @param queryType 查询类型
      * @param tableName 表名
-     * @param duration 执行时间（毫秒）
+     * @param durationNanos 执行时间（纳秒）
      * @param rowsAffected 影响的行数
      */
-    public void recordDatabaseMetrics(String queryType, String tableName, long duration, long rowsAffected) {
-        String metricName = "database.query";
+    public void recordDatabaseMetrics(String queryType, String tableName, long durationNanos, long rowsAffected) {
+        DatabaseMeters meters = databaseMeters(queryType, tableName);
         
-        // 记录查询计数
-        Counter.builder(metricName + ".count")
-            .tag("type", queryType)
-            .tag("table", tableName)
-            .register(meterRegistry)
-            .increment();
-            
-        // 记录查询时间
-        Timer.builder(metricName + ".duration")
-            .tag("type", queryType)
-            .tag("table", tableName)
-            .register(meterRegistry)
-            .record(java.time.Duration.ofMillis(duration));
-            
-        // 记录影响的行数
-        Counter.builder(metricName + ".rows")
-            .tag("type", queryType)
-            .tag("table", tableName)
-            .register(meterRegistry)
-            .increment(rowsAffected);
+        // 记录查询计数、查询时间和影响的行数
+        meters.count().increment();
+        meters.duration().record(durationNanos, TimeUnit.NANOSECONDS);
+        if (rowsAffected > 0) {
+            meters.rows().increment(rowsAffected);
+        }
             
         // 记录慢查询
+        long duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
         if (duration > 500) {
-            Counter.builder(metricName + ".slow")
-                .tag("type", queryType)
-                .tag("table", tableName)
-                .register(meterRegistry)
-                .increment();
-                
+            meters.slow().increment();
             logger.warn("Slow database query detected: {} on {} took {}ms, affected {} rows", 
                 queryType, tableName, duration, rowsAffected);
         }
     }
     
     /**
-     * 获取内存使用量
+     * 获取API端点的指标，首次调用时注册
+     */
+    private ApiMeters apiMeters(String endpoint, String method) {
+        Map<String, ApiMeters> methods = apiMeters.get(endpoint);
+        if (methods == null) {
+            endpoint = boundedKey(apiMeters, RouteTemplateResolver.normalize(endpoint));
+            methods = apiMeters.computeIfAbsent(endpoint, key -> new ConcurrentHashMap<>());
+        }
+        ApiMeters meters = methods.get(method);
+        if (meters == null) {
+            String template = endpoint;
+            meters = methods.computeIfAbsent(boundedKey(methods, method), key -> {
+                String statsKey = key + " " + template;
+                return new ApiMeters(
+                        Counter.builder("api.request.count")
+                                .tags("endpoint", template, "method", key, "status", "success")
+                                .register(meterRegistry),
+                        Counter.builder("api.request.count")
+                                .tags("endpoint", template, "method", key, "status", "error")
+                                .register(meterRegistry),
+                        latencyTimer("api.request.duration")
+                                .tags("endpoint", template, "method", key)
+                                .register(meterRegistry),
+                        Counter.builder("api.request.slow")
+                                .tags("endpoint", template, "method", key)
+                                .register(meterRegistry),
+                        requestCounts.computeIfAbsent(statsKey, k -> new AtomicLong(0)),
+                        errorCounts.computeIfAbsent(statsKey, k -> new AtomicLong(0)));
+            });
+        }
+        return meters;
+    }
+
+    /**
+     * 缓存未满或已包含该键时返回原键，否则返回 OTHER（并发时可能略超上限）
+     */
+    private String boundedKey(Map<String, ?> cache, String key) {
+        return cache.containsKey(key) || cache.size() < maxTagValues ? key : TagCardinalityFilter.OVERFLOW;
+    }
+
+    /**
+     * 获取数据库查询的指标，首次调用时注册
+     */
+    private DatabaseMeters databaseMeters(String queryType, String tableName) {
+        Map<String, DatabaseMeters> tables = databaseMeters.get(queryType);
+        if (tables == null) {
+            queryType = boundedKey(databaseMeters, queryType);
+            tables = databaseMeters.computeIfAbsent(queryType, key -> new ConcurrentHashMap<>());
+        }
+        DatabaseMeters meters = tables.get(tableName);
+        if (meters == null) {
+            String type = queryType;
+            meters = tables.computeIfAbsent(boundedKey(tables, tableName), table -> new DatabaseMeters(
+                    Counter.builder("database.query.count")
+                            .tags("type", type, "table", table)
+                            .register(meterRegistry),
+                    latencyTimer("database.query.duration")
+                            .tags("type", type, "table", table)
+                            .register(meterRegistry),
+                    Counter.builder("database.query.rows")
+                            .tags("type", type, "table", table)
+                            .register(meterRegistry),
+                    Counter.builder("database.query.slow")
+                            .tags("type", type, "table", table)
+                            .register(meterRegistry)));
+        }
+        return meters;
+    }
+
+    /**
+     * 带分位数的计时器：分位数和最大值基于 HdrHistogram 按滑动窗口计算；同时发布固定边界的直方图桶，
+     * 同名计时器的桶可以逐个相加，用于跨端点汇总分位数
+     */
+    private Timer.Builder latencyTimer(String name) {
+        return Timer.builder(name)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .distributionStatisticExpiry(percentileWindow)
+                .distributionStatisticBufferLength(windowBuffers);
+    }
+
+    /**
+     * 汇总API请求指标
      * 
-     * @return 内存使用量（字节）
+     * @return 请求数、错误数、慢请求数和所有端点合并后的响应时间分布
      */
-    private double getMemoryUsage() {
-        MemoryUsage heapUsage = memoryMXBean.getHeapMemoryUsage();
-        MemoryUsage nonHeapUsage = memoryMXBean.getNonHeapMemoryUsage();
-        return heapUsage.getUsed() + nonHeapUsage.getUsed();
+    public Map<String, Object> getApiMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("requestCount", sumCounters("api.request.count", null));
+        metrics.put("errorCount", sumCounters("api.request.count", "error"));
+        metrics.put("slowRequestCount", sumCounters("api.request.slow", null));
+        metrics.put("latency", summarize(meterRegistry.find("api.request.duration").timers()));
+        metrics.put("window", percentileWindow.toString());
+        return metrics;
+    }
+
+    /**
+     * 按分位数（p50、p90、p99、p999、max、mean）排序的最慢端点
+     * 
+     * @param top 返回的端点数
+     * @param sortBy 排序依据
+     */
+    public List<Map<String, Object>> getSlowestEndpoints(int top, String sortBy) {
+        if (!List.of("mean", "max", "count").contains(sortBy) && !List.of(PERCENTILE_NAMES).contains(sortBy)) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+        }
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("api.request.duration").timers()) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("endpoint", timer.getId().getTag("endpoint"));
+            summary.put("method", timer.getId().getTag("method"));
+            summary.putAll(summarize(List.of(timer)));
+            endpoints.add(summary);
+        }
+        endpoints.sort(Comparator.comparingDouble((Map<String, Object> summary) ->
+                summary.get(sortBy) instanceof Number value ? value.doubleValue() : 0).reversed());
+        return endpoints.subList(0, Math.min(Math.max(top, 0), endpoints.size()));
+    }
+
+    /**
+     * 汇总数据库查询指标
+     */
+    public Map<String, Object> getDatabaseMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queryCount", sumCounters("database.query.count", null));
+        metrics.put("slowQueryCount", sumCounters("database.query.slow", null));
+        metrics.put("rowsAffected", sumCounters("database.query.rows", null));
+        metrics.put("latency", summarize(meterRegistry.find("database.query.duration").timers()));
+        return metrics;
+    }
+
+    /**
+     * 合并多个计时器：请求数、总时间直接相加，最大值取最大；单个计时器直接使用其分位数，
+     * 多个计时器的分位数无法相加，改为合并直方图桶后线性插值估算
+     * 
+     * @return 毫秒为单位的 count、mean、max、p50、p90、p99、p999
+     */
+    private Map<String, Object> summarize(Collection<Timer> timers) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long count = 0;
+        double total = 0;
+        double max = 0;
+        List<HistogramSnapshot> snapshots = new ArrayList<>(timers.size());
+        for (Timer timer : timers) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            snapshots.add(snapshot);
+            count += snapshot.count();
+            total += snapshot.total(TimeUnit.MILLISECONDS);
+            max = Math.max(max, snapshot.max(TimeUnit.MILLISECONDS));
+        }
+        summary.put("count", count);
+        summary.put("mean", count > 0 ? total / count : 0);
+        summary.put("max", max);
+        if (snapshots.size() == 1) {
+            ValueAtPercentile[] values = snapshots.get(0).percentileValues();
+            for (int i = 0; i < Math.min(values.length, PERCENTILE_NAMES.length); i++) {
+                summary.put(PERCENTILE_NAMES[i], values[i].value(TimeUnit.MILLISECONDS));
+            }
+        } else {
+            double[] merged = mergedPercentiles(snapshots);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                summary.put(PERCENTILE_NAMES[i], merged[i]);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * 合并直方图桶（所有计时器的桶边界相同）并估算分位数，超出最大桶的请求按最大值计
+     */
+    private double[] mergedPercentiles(List<HistogramSnapshot> snapshots) {
+        double[] result = new double[PERCENTILES.length];
+        double[] bounds = null;
+        double[] cumulative = null;
+        for (HistogramSnapshot snapshot : snapshots) {
+            CountAtBucket[] buckets = snapshot.histogramCounts();
+            if (bounds == null) {
+                bounds = new double[buckets.length];
+                cumulative = new double[buckets.length];
+                for (int i = 0; i < buckets.length; i++) {
+                    bounds[i] = buckets[i].bucket(TimeUnit.MILLISECONDS);
+                }
+            }
+            for (int i = 0; i < Math.min(buckets.length, cumulative.length); i++) {
+                cumulative[i] += buckets[i].count();
+            }
+        }
+        if (bounds == null || bounds.length == 0 || cumulative[cumulative.length - 1] == 0) {
+            return result;
+        }
+        double total = cumulative[cumulative.length - 1];
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            double rank = PERCENTILES[p] * total;
+            int i = 0;
+            while (i < cumulative.length - 1 && cumulative[i] < rank) {
+                i++;
+            }
+            double lowerBound = i == 0 ? 0 : bounds[i - 1];
+            double lowerCount = i == 0 ? 0 : cumulative[i - 1];
+            double inBucket = cumulative[i] - lowerCount;
+            result[p] = inBucket > 0
+                    ? lowerBound + (bounds[i] - lowerBound) * (rank - lowerCount) / inBucket
+                    : bounds[i];
+        }
+        return result;
+    }
+
+    private double sumCounters(String name, String status) {
+        var search = meterRegistry.find(name);
+        if (status != null) {
+            search = search.tag("status", status);
+        }
+        return search.counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    /**
+     * 获取堆内存使用量
+     * 
+     * @return 堆内存使用量（字节）
+     */
+    private double getHeapMemoryUsed() {
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 获取非堆内存使用量（元空间、代码缓存等）
+     * 
+     * @return 非堆内存使用量（字节）
+     */
+    private double getNonHeapMemoryUsed() {
+        return memoryMXBean.getNonHeapMemoryUsage().getUsed();
     }
     
     /**
@@ -201,9 +462,24 @@ public class PerformanceMonitorService {
     /**
      * 获取活跃线程数
      * 
-     * @return 活跃线程数
+     * @return 处于 RUNNABLE 状态的线程数
      */
     private double getActiveThreadCount() {
+        int runnable = 0;
+        for (ThreadInfo thread : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            if (thread != null && thread.getThreadState() == Thread.State.RUNNABLE) {
+                runnable++;
+            }
+        }
+        return runnable;
+    }
+
+    /**
+     * 获取守护线程数
+     * 
+     * @return 守护线程数
+     */
+    private double getDaemonThreadCount() {
         return threadMXBean.getDaemonThreadCount();
     }
     
@@ -217,14 +493,22 @@ public class PerformanceMonitorService {
         
         // 系统信息
         stats.put("timestamp", LocalDateTime.now());
-        stats.put("memoryUsage", getMemoryUsage());
+        stats.put("heapMemoryUsed", getHeapMemoryUsed());
+        stats.put("nonHeapMemoryUsed", getNonHeapMemoryUsed());
         stats.put("heapUsagePercentage", getHeapUsagePercentage());
         stats.put("threadCount", getThreadCount());
         stats.put("activeThreadCount", getActiveThreadCount());
+        stats.put("daemonThreadCount", getDaemonThreadCount());
         
         // API统计
         stats.put("requestCounts", new HashMap<>(requestCounts));
-        stats.put("errorCounts", new HashMap<>(errorCounts));
+        Map<String, AtomicLong> failedRequests = new HashMap<>();
+        errorCounts.forEach((key, count) -> {
+            if (count.get() > 0) {
+                failedRequests.put(key, count);
+            }
+        });
+        stats.put("errorCounts", failedRequests);
         
         return stats;
     }
@@ -1,8 +1,13 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.JsonStreamWriter;
+import com.dlut.blockchain.common.KeysetCursor;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.PostDto;
 import com.dlut.blockchain.entity.Post;
 import com.dlut.blockchain.entity.User;
+import com.dlut.blockchain.repository.PostLikeRepository;
 import com.dlut.blockchain.repository.PostRepository;
 import com.dlut.blockchain.repository.UserRepository;
 import io.micrometer.core.annotation.Timed;
@@ -11,19 +16,32 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 博客文章服务
@@ -35,6 +53,12 @@ public class PostService {
 
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final PostLikeRepository postLikeRepository;
+    private final ApproximateCountService approximateCountService;
+    private final PaginationProperties paginationProperties;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final TrendingPostService trendingPostService;
+    private final PostViewCounter postViewCounter;
 
     /**
      * 获取所有已发布的文章（分页）
@@ -55,17 +79,29 @@ public class PostService {
         return new PageImpl<>(dtoList, pageable, postPage.getTotalElements());
     }
 
+    /**
+     * 游标分页获取已发布的文章
+     *
+     * @param after     上一批返回的游标，为空时从第一条开始
+     * @param withTotal 是否附带近似总数
+     */
+    @Timed(value = "service.posts.scrollPublished", description = "Time taken to scroll published posts")
+    public CursorSlice<PostDto> scrollPublishedPosts(String after, int size, Sort sort, boolean withTotal) {
+        Window<Post> window = postRepository.findByStatusAndIsPublicTrue(Post.PostStatus.PUBLISHED,
+                KeysetCursor.decode(after, Post.class, sort), sort, Limit.of(paginationProperties.clampPageSize(size)));
+        Long total = withTotal ? approximateCountService.count("posts:published", postRepository::countPublicPosts) : null;
+        return CursorSlice.of(window.map(this::convertToDto), total);
+    }
+
     /**
      * 获取特色文章
      */
     @Timed(value = "service.posts.featured", description = "Time taken to get featured posts")
 //    @Cacheable(value = "posts", key = "'featured'")
-    public List<PostDto> getFeaturedPosts() {
-        return postRepository.findByFeaturedTrue(Pageable.unpaged())
-                .stream()
-                .filter(post -> post.getStatus() == Post.PostStatus.PUBLISHED)
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public Slice<PostDto> getFeaturedPosts(int page, Integer size) {
+        Pageable pageable = paginationProperties.listRequest(page, size, Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        return postRepository.findByFeaturedTrue(pageable)
+                .map(this::convertToDto);
     }
 
     /**
@@ -74,13 +110,38 @@ public class PostService {
     @Timed(value = "service.posts.latest", description = "Time taken to get latest posts")
 //    @Cacheable(value = "posts", key = "'latest:' + #limit")
     public List<PostDto> getLatestPosts(int limit) {
-        Pageable pageable = Pageable.ofSize(limit);
+        Pageable pageable = Pageable.ofSize(Math.max(1, Math.min(limit, paginationProperties.getMaxListSize())));
         return postRepository.findLatestPosts(pageable)
                 .stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 获取热门文章（按时间衰减后的热度排序）
+     * 排行为空或 Redis 不可用时回退到按浏览量排序
+     */
+    @Timed(value = "service.posts.trending", description = "Time taken to get trending posts")
+    public List<PostDto> getTrendingPosts(TrendingPostService.TrendingWindow window, int limit) {
+        int size = Math.max(1, Math.min(limit, paginationProperties.getMaxListSize()));
+        List<Long> ids = trendingPostService.getTopPostIds(window, size);
+        if (ids.isEmpty()) {
+            return postRepository.findPopularPosts(Pageable.ofSize(size))
+                    .stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
+        }
+        Map<Long, Post> postMap = postRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        // 按排行顺序输出，跳过已删除或未公开的文章
+        return ids.stream()
+                .map(postMap::get)
+                .filter(post -> post != null && post.getStatus() == Post.PostStatus.PUBLISHED && Boolean.TRUE.equals(post.getIsPublic()))
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 根据ID获取文章详情
      */
@@ -129,12 +190,23 @@ public class PostService {
      */
     @Timed(value = "service.posts.byTag", description = "Time taken to get posts by tag")
 //    @Cacheable(value = "posts", key = "'tag:' + #tag")
-    public List<PostDto> getPostsByTag(String tag) {
-        return postRepository.findByStatus(Post.PostStatus.PUBLISHED, Pageable.unpaged())
-                .stream()
-                .filter(post -> post.getTags() != null && post.getTags().contains(tag))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public Slice<PostDto> getPostsByTag(String tag, int page, Integer size) {
+        Pageable pageable = paginationProperties.listRequest(page, size, Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        return postRepository.findPublishedByTag(tag, pageable)
+                .map(this::convertToDto);
+    }
+
+    /**
+     * 流式写出所有已发布的文章（可按标签过滤），不受列表条数上限限制
+     *
+     * @return 写出的条数
+     */
+    @Transactional(readOnly = true)
+    public long streamPublishedPosts(String tag, OutputStream out) throws IOException {
+        Stream<Post> posts = StringUtils.hasText(tag)
+                ? postRepository.streamPublishedByTag(tag)
+                : postRepository.streamPublicPosts();
+        return jsonStreamWriter.writeArray(posts, this::convertToDto, out);
     }
 
     /**
@@ -157,6 +229,10 @@ public class PostService {
         }
         
         Post savedPost = postRepository.save(post);
+        approximateCountService.evict("posts:");
+        if (savedPost.getStatus() == Post.PostStatus.PUBLISHED) {
+            trendingPostService.recordPublish(savedPost.getId());
+        }
         log.info("创建文章成功: {} - {}", savedPost.getId(), savedPost.getTitle());
         return convertToDto(savedPost);
     }
@@ -185,6 +261,7 @@ public class PostService {
         }
         
         Post updatedPost = postRepository.save(post);
+        approximateCountService.evict("posts:");
         log.info("更新文章成功: {} - {}", updatedPost.getId(), updatedPost.getTitle());
         return convertToDto(updatedPost);
     }
@@ -206,6 +283,10 @@ public class PostService {
         }
         
         postRepository.delete(post);
+        postLikeRepository.deleteByPostId(post.getId());
+        trendingPostService.remove(post.getId());
+        postViewCounter.forget(post.getId());
+        approximateCountService.evict("posts:");
         log.info("删除文章成功: {} - {}", post.getId(), post.getTitle());
     }
 
@@ -223,39 +304,73 @@ public class PostService {
         
         if (status == Post.PostStatus.PUBLISHED && post.getPublishedAt() == null) {
             post.setPublishedAt(LocalDateTime.now());
+            trendingPostService.recordPublish(post.getId());
+        } else if (status != Post.PostStatus.PUBLISHED) {
+            trendingPostService.remove(post.getId());
         }
         
         Post updatedPost = postRepository.save(post);
+        approximateCountService.evict("posts:");
         log.info("更新文章状态成功: {} - {} -> {}", updatedPost.getId(), updatedPost.getTitle(), status);
         return convertToDto(updatedPost);
     }
 
     /**
-     * 点赞文章
+     * 点赞文章（幂等，同一访客重复点赞不重复计数）
      */
     @Transactional
-    public void likePost(Long id) {
-        Post post = postRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("文章不存在"));
-        
-        post.setLikeCount(post.getLikeCount() + 1);
-        postRepository.save(post);
-        log.info("文章点赞: {} - {}", post.getId(), post.getTitle());
+    public Map<String, Object> likePost(Long id, String visitorId) {
+        if (!postRepository.existsById(id)) {
+            throw new RuntimeException("文章不存在");
+        }
+        // 插入成功才计数，唯一约束保证并发点赞也只生效一次
+        if (postLikeRepository.insertIgnore(id, visitorId) > 0) {
+            postRepository.incrementLikeCount(id);
+            trendingPostService.recordLike(id, 1);
+            log.info("文章点赞: {} - {}", id, visitorId);
+        }
+        return buildLikeResult(id, true);
     }
 
     /**
-     * 取消点赞文章
+     * 取消点赞文章（幂等，未点赞时不做任何操作）
      */
     @Transactional
-    public void unlikePost(Long id) {
-        Post post = postRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("文章不存在"));
-        
-        if (post.getLikeCount() > 0) {
-            post.setLikeCount(post.getLikeCount() - 1);
-            postRepository.save(post);
-            log.info("文章取消点赞: {} - {}", post.getId(), post.getTitle());
+    public Map<String, Object> unlikePost(Long id, String visitorId) {
+        if (!postRepository.existsById(id)) {
+            throw new RuntimeException("文章不存在");
+        }
+        if (postLikeRepository.deleteByPostIdAndVisitorId(id, visitorId) > 0) {
+            postRepository.decrementLikeCount(id);
+            trendingPostService.recordLike(id, -1);
+            log.info("文章取消点赞: {} - {}", id, visitorId);
         }
+        return buildLikeResult(id, false);
+    }
+
+    /**
+     * 批量查询访客对文章的点赞状态（用于列表渲染）
+     */
+    public Map<Long, Boolean> getLikedStatus(List<Long> postIds, String visitorId) {
+        List<Long> ids = postIds.stream()
+                .distinct()
+                .limit(paginationProperties.getMaxListSize())
+                .collect(Collectors.toList());
+        Set<Long> liked = new HashSet<>(postLikeRepository.findLikedPostIds(visitorId, ids));
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        ids.forEach(postId -> result.put(postId, liked.contains(postId)));
+        return result;
+    }
+
+    /**
+     * 按点赞记录校准文章点赞数
+     * 默认关闭（历史点赞数没有对应记录，校准会将其清零），通过 post.like.reconcile-cron 开启
+     */
+    @Scheduled(cron = "${post.like.reconcile-cron:-}")
+    @Transactional
+    public void reconcileLikeCounts() {
+        int fixed = postRepository.reconcileLikeCounts();
+        log.info("文章点赞数校准完成，修正 {} 篇文章", fixed);
     }
 
     /**
@@ -272,12 +387,13 @@ public class PostService {
     }
 
     /**
-     * 增加浏览量
+     * 记录访客浏览，同一访客在去重窗口内只计一次
+     *
+     * @return 是否计入浏览量
      */
-    @Timed(value = "service.posts.incrementView", description = "Time taken to increment view count")
-    @Transactional
-    public void incrementViewCount(Long id) {
-        postRepository.incrementViewCount(id);
+    @Timed(value = "service.posts.recordView", description = "Time taken to record a post view")
+    public boolean recordView(Long id, String visitorId) {
+        return postViewCounter.recordView(id, visitorId);
     }
 
     /**
@@ -353,6 +469,17 @@ public class PostService {
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
     }
 
+    /**
+     * 构造点赞结果
+     */
+    private Map<String, Object> buildLikeResult(Long id, boolean liked) {
+        Integer likeCount = postRepository.findLikeCountById(id);
+        Map<String, Object> result = new HashMap<>();
+        result.put("liked", liked);
+        result.put("likeCount", likeCount == null ? 0 : likeCount);
+        return result;
+    }
+
     /**
      * 实体转换为DTO
      */
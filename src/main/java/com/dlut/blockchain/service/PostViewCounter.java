@@ -0,0 +1,156 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.common.BufferedCounter;
+import com.dlut.blockchain.exception.ResourceNotFoundException;
+import com.dlut.blockchain.repository.PostRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 文章浏览量计数服务
+ * 同一访客在去重窗口内重复浏览同一篇文章只计一次（Redis SET NX EX），
+ * 有效浏览先在内存中聚合，定时批量写回数据库，避免热门文章的行锁竞争；
+ * 只对存在的文章计数，文章是否存在的查询结果短时间缓存
+ */
+@Slf4j
+@Service
+public class PostViewCounter {
+
+    private static final String DEDUP_KEY_PREFIX = "post:view:";
+
+    private final PostRepository postRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendingPostService trendingPostService;
+
+    private final BufferedCounter buffer = new BufferedCounter();
+
+    /**
+     * 文章ID是否存在，避免任意ID产生计数、去重键和热度排行项
+     */
+    private final Cache<Long, Boolean> knownPosts;
+
+    private final Counter acceptedCounter;
+    private final Counter duplicateCounter;
+    private final Timer flushTimer;
+
+    @Value("${post.view.dedup-window:30m}")
+    private Duration dedupWindow;
+
+    public PostViewCounter(PostRepository postRepository,
+                           StringRedisTemplate stringRedisTemplate,
+                           TransactionTemplate transactionTemplate,
+                           TrendingPostService trendingPostService,
+                           MeterRegistry meterRegistry,
+                           @Value("${post.view.known-posts.max-size:10000}") long knownPostsMaxSize,
+                           @Value("${post.view.known-posts.ttl:5m}") Duration knownPostsTtl) {
+        this.postRepository = postRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.trendingPostService = trendingPostService;
+        this.knownPosts = Caffeine.newBuilder()
+                .maximumSize(knownPostsMaxSize)
+                .expireAfterWrite(knownPostsTtl)
+                .build();
+        this.acceptedCounter = Counter.builder("post.view.accepted")
+                .description("Post views counted after deduplication")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("post.view.duplicate")
+                .description("Post views dropped as duplicates within the dedup window")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("post.view.flush")
+                .description("Time taken to flush buffered view counts to the database")
+                .register(meterRegistry);
+        Gauge.builder("post.view.pending", buffer, BufferedCounter::pending)
+                .description("Buffered view counts not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次浏览
+     *
+     * @param visitorId 访客标识，见 VisitorIdService
+     * @return 是否计入浏览量
+     * @throws ResourceNotFoundException 文章不存在
+     */
+    public boolean recordView(Long postId, String visitorId) {
+        if (!knownPosts.get(postId, postRepository::existsById)) {
+            throw new ResourceNotFoundException("文章不存在: " + postId);
+        }
+        if (isDuplicate(postId, visitorId)) {
+            duplicateCounter.increment();
+            return false;
+        }
+        buffer.add(postId, 1);
+        acceptedCounter.increment();
+        trendingPostService.recordView(postId);
+        return true;
+    }
+
+    /**
+     * 定时将缓冲的浏览量批量写回数据库
+     */
+    @Scheduled(fixedDelayString = "${post.view.flush-interval:5s}")
+    public void flush() {
+        Map<Long, Long> deltas = buffer.drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        deltas.forEach((postId, delta) ->
+                                postRepository.incrementViewCountBy(postId, Math.toIntExact(delta))));
+                log.debug("写回文章浏览量: {} 篇文章", deltas.size());
+            } catch (Exception e) {
+                // 写回失败时放回缓冲区，下个周期重试
+                deltas.forEach(buffer::add);
+                log.warn("写回文章浏览量失败，将在下个周期重试: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 应用关闭前写回剩余计数
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 文章删除后不再接受浏览计数
+     */
+    public void forget(Long postId) {
+        knownPosts.invalidate(postId);
+    }
+
+    /**
+     * 去重窗口内是否已经浏览过
+     * Redis 不可用时按非重复处理，宁可多计也不丢计数
+     */
+    private boolean isDuplicate(Long postId, String visitorId) {
+        try {
+            Boolean firstView = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(DEDUP_KEY_PREFIX + postId + ":" + visitorId, "1", dedupWindow);
+            return Boolean.FALSE.equals(firstView);
+        } catch (Exception e) {
+            log.warn("浏览去重检查失败: postId={}, {}", postId, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.FileBlob;
+import com.dlut.blockchain.entity.FileUpload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 上传文件预压缩服务
+ * 可压缩类型的文件上传后，由后台任务以最高压缩级别生成一次 .gz 旁路文件，
+ * 之后下载接口按 Accept-Encoding 直接返回压缩文件，不再每次请求实时压缩
+ */
+@Slf4j
+@Service
+public class PrecompressionService {
+
+    /**
+     * 旁路文件扩展名，按优先级排列；.br 只在已存在时使用（JDK 没有 Brotli 编码器）
+     */
+    public static final String BROTLI_SUFFIX = ".br";
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private final FileBlobService fileBlobService;
+    private final Set<String> extensions;
+
+    @Value("${file.precompress.min-size:1024}")
+    private long minSize;
+
+    /**
+     * 压缩后大小与原文件之比超过该值时不保留压缩文件
+     */
+    @Value("${file.precompress.max-ratio:0.9}")
+    private double maxRatio;
+
+    public PrecompressionService(FileBlobService fileBlobService,
+                                 @Value("${file.precompress.extensions:txt,pdf,doc,svg,json,csv,xml,md,xls,ppt}") String[] extensions) {
+        this.fileBlobService = fileBlobService;
+        this.extensions = Arrays.stream(extensions)
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * 是否为需要预压缩的文件（只处理去重存储中的可压缩类型）
+     */
+    public boolean supports(FileUpload fileUpload) {
+        return fileUpload.getChecksum() != null && extensions.contains(extensionOf(fileUpload.getFileName()));
+    }
+
+    /**
+     * 生成压缩旁路文件（在调用线程中执行，由上传后的后台任务调用），内容不在本地存储时跳过
+     */
+    public void precompress(FileUpload fileUpload) throws IOException {
+        if (supports(fileUpload)) {
+            compress(fileUpload.getChecksum());
+        }
+    }
+
+    /**
+     * 选择客户端可接受的预压缩文件
+     * 按 Accept-Encoding 的 q 值选择，q=0 表示不接受；q 值相同时优先 br
+     *
+     * @return 压缩文件及其 Content-Encoding，没有可用的压缩文件时返回空
+     */
+    public static Optional<Encoded> negotiate(Path file, String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return Optional.empty();
+        }
+        double brotliQuality = quality(acceptEncoding, "br");
+        double gzipQuality = quality(acceptEncoding, "gzip");
+        Path brotli = sidecar(file, BROTLI_SUFFIX);
+        Path gzip = sidecar(file, GZIP_SUFFIX);
+        boolean brotliAvailable = brotliQuality > 0 && Files.isRegularFile(brotli);
+        boolean gzipAvailable = gzipQuality > 0 && Files.isRegularFile(gzip);
+        if (brotliAvailable && (!gzipAvailable || brotliQuality >= gzipQuality)) {
+            return Optional.of(new Encoded(brotli, "br"));
+        }
+        if (gzipAvailable) {
+            return Optional.of(new Encoded(gzip, "gzip"));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Accept-Encoding 中某个编码的 q 值；未列出时使用 "*" 的 q 值，都没有时为 0
+     */
+    private static double quality(String acceptEncoding, String coding) {
+        double wildcard = 0;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String name = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                return quality;
+            }
+            if ("*".equals(name)) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * 是否存在任一预压缩文件（存在时响应需要 Vary: Accept-Encoding）
+     */
+    public static boolean hasSidecar(Path file) {
+        return Files.isRegularFile(sidecar(file, GZIP_SUFFIX)) || Files.isRegularFile(sidecar(file, BROTLI_SUFFIX));
+    }
+
+    public static Path sidecar(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    /**
+     * 预压缩文件及其编码
+     */
+    public record Encoded(Path file, String encoding) {
+    }
+
+    private void compress(String checksum) throws IOException {
+        Optional<FileBlob> blob = fileBlobService.find(checksum);
+        if (blob.isEmpty()) {
+            return;
+        }
+        Optional<Path> localFile = fileBlobService.storeOf(blob.get()).localPath(blob.get().getStoragePath());
+        if (localFile.isEmpty()) {
+            return;
+        }
+        Path file = localFile.get();
+        Path gzip = sidecar(file, GZIP_SUFFIX);
+        long size = Files.size(file);
+        if (size < minSize || Files.exists(gzip)) {
+            return;
+        }
+
+        Path tempFile = Files.createTempFile(file.getParent(), ".gzip-", ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile), 64 * 1024) {
+                     {
+                         def.setLevel(Deflater.BEST_COMPRESSION);
+                     }
+                 }) {
+                in.transferTo(out);
+            }
+            long compressedSize = Files.size(tempFile);
+            if (compressedSize > size * maxRatio) {
+                log.debug("压缩率不足，不保留压缩文件: sha256={}, {} -> {}", checksum, size, compressedSize);
+                return;
+            }
+            try {
+                Files.move(tempFile, gzip, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, gzip, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.debug("生成压缩文件: sha256={}, {} -> {} bytes", checksum, size, compressedSize);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private String extensionOf(String fileName) {
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex == -1 ? "" : fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+}
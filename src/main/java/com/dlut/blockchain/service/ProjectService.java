@@ -1,5 +1,8 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.CursorSlice;
+import com.dlut.blockchain.common.KeysetCursor;
+import com.dlut.blockchain.config.PaginationProperties;
 import com.dlut.blockchain.dto.ProjectDto;
 import com.dlut.blockchain.entity.Project;
 import com.dlut.blockchain.repository.ProjectRepository;
@@ -8,9 +11,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +35,8 @@ import java.util.stream.Collectors;
 public class ProjectService {
 
     private final ProjectRepository projectRepository;
+    private final ApproximateCountService approximateCountService;
+    private final PaginationProperties paginationProperties;
 
     /**
      * 获取所有项目（分页）
@@ -47,6 +57,46 @@ public class ProjectService {
         return new PageImpl<>(dtoList, pageable, projectPage.getTotalElements());
     }
     
+    /**
+     * 游标分页获取项目
+     */
+    @Timed(value = "service.projects.scroll", description = "Time taken to scroll projects")
+    public CursorSlice<ProjectDto> scrollProjects(String after, int size, Sort sort, boolean withTotal,
+                                                  String keyword, Project.ProjectStatus status, Project.ProjectCategory category) {
+        ScrollPosition position = KeysetCursor.decode(after, Project.class, sort);
+        Limit limit = Limit.of(paginationProperties.clampPageSize(size));
+        Window<Project> window;
+        Long total = null;
+        // 筛选条件与 getAllProjects 的分支保持一致
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            String trimmed = keyword.trim();
+            // 关键字取值不可枚举，总数不缓存
+            if (status != null) {
+                window = projectRepository.findByNameContainingIgnoreCaseAndStatus(trimmed, status, position, sort, limit);
+                total = withTotal ? projectRepository.countByNameContainingIgnoreCaseAndStatus(trimmed, status) : null;
+            } else {
+                window = projectRepository.findByNameContainingIgnoreCase(trimmed, position, sort, limit);
+                total = withTotal ? projectRepository.countByNameContainingIgnoreCase(trimmed) : null;
+            }
+        } else if (status != null) {
+            window = projectRepository.findByStatusAndIsPublicTrue(status, position, sort, limit);
+            if (withTotal) {
+                total = approximateCountService.count("projects:status:" + status,
+                        () -> projectRepository.countByStatusAndIsPublicTrue(status));
+            }
+        } else if (category != null) {
+            window = projectRepository.findByCategoryAndIsPublicTrue(category, position, sort, limit);
+            if (withTotal) {
+                total = approximateCountService.count("projects:category:" + category,
+                        () -> projectRepository.countByCategoryAndIsPublicTrue(category));
+            }
+        } else {
+            window = projectRepository.findAllBy(position, sort, limit);
+            total = withTotal ? approximateCountService.count("projects:all", projectRepository::count) : null;
+        }
+        return CursorSlice.of(window.map(this::convertToDto), total);
+    }
+
     /**
      * 获取所有项目（分页）- 支持关键字、状态和分类筛选
      */
@@ -170,11 +220,9 @@ public class ProjectService {
     /**
      * 搜索项目
      */
-    public List<ProjectDto> searchProjects(String keyword) {
-        return projectRepository.searchProjects(keyword, Pageable.unpaged())
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public Slice<ProjectDto> searchProjects(String keyword, int page, Integer size) {
+        return projectRepository.searchProjects(keyword, paginationProperties.listRequest(page, size, Sort.by(Sort.Direction.DESC, "updatedAt", "id")))
+                .map(this::convertToDto);
     }
 
     /**
@@ -185,6 +233,7 @@ public class ProjectService {
     public ProjectDto createProject(ProjectDto projectDto) {
         Project project = convertToEntity(projectDto);
         Project savedProject = projectRepository.save(project);
+        approximateCountService.evict("projects:");
         log.info("创建项目成功: {} - {}", savedProject.getId(), savedProject.getName());
         return convertToDto(savedProject);
     }
@@ -213,6 +262,7 @@ public class ProjectService {
         Project project = projectRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("项目不存在"));
         projectRepository.delete(project);
+        approximateCountService.evict("projects:");
         log.info("删除项目成功: {} - {}", project.getId(), project.getName());
     }
 
@@ -1,5 +1,6 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.dto.FileUsageDto;
 import com.dlut.blockchain.entity.Post;
 import com.dlut.blockchain.repository.*;
 import io.micrometer.core.annotation.Timed;
@@ -30,6 +31,7 @@ public class StatsService {
     private final MemberRepository memberRepository;
     private final MeetingRepository meetingRepository;
     private final FileUploadRepository fileUploadRepository;
+    private final FileUsageService fileUsageService;
 
     /**
      * 获取系统概览统计
@@ -55,7 +57,7 @@ public class StatsService {
         overview.put("totalContent", totalContent);
         
         // 总文件数
-        long totalFiles = fileUploadRepository.count();
+        long totalFiles = fileUsageService.getTotal().getFileCount();
         overview.put("totalFiles", totalFiles);
         
         // 今日新增统计
@@ -256,14 +258,7 @@ public class StatsService {
         
         // 文件分类统计
         try {
-            List<Object[]> fileCategories = fileUploadRepository.countByCategory();
-            Map<String, Long> fileCategoryCount = new HashMap<>();
-            for (Object[] result : fileCategories) {
-                String category = (String) result[0];
-                Long count = (Long) result[1];
-                fileCategoryCount.put(category, count);
-            }
-            categoryStats.put("fileCategories", fileCategoryCount);
+            categoryStats.put("fileCategories", fileUsageService.getFileCountByCategory());
         } catch (Exception e) {
             log.warn("文件分类统计失败", e);
         }
@@ -276,18 +271,19 @@ public class StatsService {
      */
     public Map<String, Object> getFileStats() {
         Map<String, Object> fileStats = new HashMap<>();
+        FileUsageDto usage = fileUsageService.getTotal();
         
         // 总文件数
-        long totalFiles = fileUploadRepository.count();
+        long totalFiles = usage.getFileCount();
         fileStats.put("totalFiles", totalFiles);
         
         // 总文件大小
-        long totalSize = fileUploadRepository.sumFileSize();
+        long totalSize = usage.getTotalSize();
         fileStats.put("totalSize", totalSize);
         fileStats.put("totalSizeFormatted", formatFileSize(totalSize));
         
         // 总下载次数
-        long totalDownloads = fileUploadRepository.sumDownloadCount();
+        long totalDownloads = usage.getDownloadCount();
         fileStats.put("totalDownloads", totalDownloads);
         
         // 平均文件大小
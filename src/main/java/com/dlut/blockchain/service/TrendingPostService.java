@@ -0,0 +1,179 @@
+package com.dlut.blockchain.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热门文章排行服务
+ * 每个时间窗口对应一个 Redis 有序集合，浏览/点赞/发布事件以 ZINCRBY 增量累加分数（O(log n)），
+ * 定时按半衰期整体衰减分数，读取前 k 名为 O(log n + k)
+ * Redis 不可用时只记录日志，不影响主流程
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrendingPostService {
+
+    private static final String KEY_PREFIX = "trending:posts:";
+    private static final String DECAY_LOCK_KEY = KEY_PREFIX + "decay-lock";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${trending.view-weight:1}")
+    private double viewWeight;
+
+    @Value("${trending.like-weight:5}")
+    private double likeWeight;
+
+    @Value("${trending.publish-weight:10}")
+    private double publishWeight;
+
+    @Value("${trending.decay-interval:10m}")
+    private Duration decayInterval;
+
+    @Value("${trending.min-score:0.01}")
+    private double minScore;
+
+    @Value("${trending.max-size:5000}")
+    private long maxSize;
+
+    /**
+     * 排行时间窗口，半衰期越短越偏向近期热度
+     */
+    @Getter
+    public enum TrendingWindow {
+        DAY("24h", Duration.ofHours(6)),
+        WEEK("7d", Duration.ofDays(2));
+
+        private final String code;
+        private final Duration halfLife;
+
+        TrendingWindow(String code, Duration halfLife) {
+            this.code = code;
+            this.halfLife = halfLife;
+        }
+
+        public static TrendingWindow fromCode(String code) {
+            for (TrendingWindow window : values()) {
+                if (window.code.equalsIgnoreCase(code)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("不支持的时间窗口: " + code);
+        }
+
+        String key() {
+            return KEY_PREFIX + code;
+        }
+    }
+
+    /**
+     * 记录浏览事件
+     */
+    public void recordView(Long postId) {
+        increment(postId, viewWeight);
+    }
+
+    /**
+     * 记录点赞事件（取消点赞传负数）
+     */
+    public void recordLike(Long postId, int delta) {
+        increment(postId, likeWeight * delta);
+    }
+
+    /**
+     * 记录发布事件，新文章获得初始热度
+     */
+    public void recordPublish(Long postId) {
+        increment(postId, publishWeight);
+    }
+
+    /**
+     * 从排行中移除文章（删除或下线时调用）
+     */
+    public void remove(Long postId) {
+        try {
+            for (TrendingWindow window : TrendingWindow.values()) {
+                stringRedisTemplate.opsForZSet().remove(window.key(), postId.toString());
+            }
+        } catch (Exception e) {
+            log.warn("移除热门文章失败: postId={}, {}", postId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取排行前 limit 篇文章的ID（按分数降序）
+     * Redis 不可用时返回空列表，由调用方回退到数据库排序
+     */
+    public List<Long> getTopPostIds(TrendingWindow window, int limit) {
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                    stringRedisTemplate.opsForZSet().reverseRangeWithScores(window.key(), 0, limit - 1L);
+            if (tuples == null || tuples.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Long> ids = new ArrayList<>(tuples.size());
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                ids.add(Long.valueOf(tuple.getValue()));
+            }
+            return ids;
+        } catch (Exception e) {
+            log.warn("读取热门文章排行失败: window={}, {}", window.getCode(), e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 定时衰减所有窗口的分数，并清理低分和超出容量的条目
+     * 通过 SETNX 锁保证多实例部署时每个周期只衰减一次
+     */
+    @Scheduled(fixedDelayString = "${trending.decay-interval:10m}", initialDelayString = "${trending.decay-interval:10m}")
+    public void decayScores() {
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(DECAY_LOCK_KEY, "1", decayInterval.minusSeconds(1));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+            ZSetOperations<String, String> zSet = stringRedisTemplate.opsForZSet();
+            for (TrendingWindow window : TrendingWindow.values()) {
+                double factor = Math.pow(0.5, (double) decayInterval.toMillis() / window.getHalfLife().toMillis());
+                String key = window.key();
+                // 对单个集合做带权重的并集，即所有分数乘以衰减系数
+                zSet.unionAndStore(key, Collections.emptyList(), key, Aggregate.SUM, Weights.of(factor));
+                zSet.removeRangeByScore(key, Double.NEGATIVE_INFINITY, minScore);
+                zSet.removeRange(key, 0, -maxSize - 1);
+            }
+            log.debug("热门文章分数衰减完成");
+        } catch (Exception e) {
+            log.warn("热门文章分数衰减失败: {}", e.getMessage());
+        }
+    }
+
+    private void increment(Long postId, double score) {
+        if (postId == null || score == 0) {
+            return;
+        }
+        try {
+            for (TrendingWindow window : TrendingWindow.values()) {
+                stringRedisTemplate.opsForZSet().incrementScore(window.key(), postId.toString(), score);
+            }
+        } catch (Exception e) {
+            log.warn("更新热门文章分数失败: postId={}, {}", postId, e.getMessage());
+        }
+    }
+}
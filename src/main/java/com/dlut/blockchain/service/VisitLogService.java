@@ -1,5 +1,6 @@
 package com.dlut.blockchain.service;
 
+import com.dlut.blockchain.common.RequestUtils;
 import com.dlut.blockchain.entity.VisitLog;
 import com.dlut.blockchain.repository.VisitLogRepository;
 import com.dlut.blockchain.repository.VisitLogRepositoryCustom;
@@ -34,7 +35,7 @@ public class VisitLogService {
             VisitLog visitLog = new VisitLog();
             
             // 基础信息
-            visitLog.setIpAddress(getClientIpAddress(request));
+            visitLog.setIpAddress(RequestUtils.getClientIpAddress(request));
             visitLog.setUrl(url);
             visitLog.setHttpMethod(request.getMethod());
             visitLog.setUserAgent(request.getHeader("User-Agent"));
@@ -289,23 +290,6 @@ public class VisitLogService {
         return performanceStats;
     }
     
-    /**
-     * 获取客户端IP地址
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
-    
     /**
      * 生成会话ID
      */
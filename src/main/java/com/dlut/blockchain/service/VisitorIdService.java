@@ -0,0 +1,149 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.controller.AuthController;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 访客标识服务
+ * 访客标识由服务端签发并写入 HttpOnly Cookie，客户端无法通过改请求头伪造新访客；
+ * 管理员登录后使用会话中的用户名。用于点赞和浏览去重
+ */
+@Slf4j
+@Service
+public class VisitorIdService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    @Value("${visitor.cookie-name:vid}")
+    private String cookieName;
+
+    @Value("${visitor.cookie-max-age:365d}")
+    private Duration cookieMaxAge;
+
+    /**
+     * 签名密钥，未配置时启动时随机生成（重启后旧 Cookie 失效，重新签发）
+     */
+    @Value("${visitor.cookie-secret:}")
+    private String cookieSecret;
+
+    /**
+     * 同一客户端IP每分钟最多签发的新访客标识数，超出后该IP下无 Cookie 的请求共用一个标识
+     */
+    @Value("${visitor.max-new-per-minute:30}")
+    private int maxNewPerMinute;
+
+    private SecretKeySpec signingKey;
+
+    private Cache<String, AtomicInteger> issuedPerClient;
+
+    @PostConstruct
+    public void init() {
+        byte[] key;
+        if (cookieSecret == null || cookieSecret.isEmpty()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            log.warn("未配置 visitor.cookie-secret，使用随机密钥，重启后访客标识将重新签发");
+        } else {
+            key = cookieSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        signingKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        issuedPerClient = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * 获取当前请求的访客标识，首次访问时签发新的 Cookie
+     */
+    public String resolve(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        if (session != null && Boolean.TRUE.equals(session.getAttribute(AuthController.ADMIN_SESSION_KEY))) {
+            Object username = session.getAttribute("admin_username");
+            if (username != null) {
+                return "admin:" + username;
+            }
+        }
+
+        String visitorId = readCookie(request);
+        if (visitorId != null) {
+            return "v:" + visitorId;
+        }
+
+        // 丢弃 Cookie 可以换取新标识，按客户端IP限制签发速度
+        String clientIp = request.getRemoteAddr();
+        AtomicInteger issued = issuedPerClient.get(clientIp, ip -> new AtomicInteger());
+        if (issued.incrementAndGet() > maxNewPerMinute) {
+            return "ip:" + clientIp;
+        }
+
+        visitorId = UUID.randomUUID().toString().replace("-", "");
+        ResponseCookie cookie = ResponseCookie.from(cookieName, visitorId + "." + sign(visitorId))
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(cookieMaxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        return "v:" + visitorId;
+    }
+
+    /**
+     * 读取并校验 Cookie 中的访客标识，签名不符时返回 null
+     */
+    private String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (!cookieName.equals(cookie.getName()) || cookie.getValue() == null) {
+                continue;
+            }
+            String value = cookie.getValue();
+            int dot = value.indexOf('.');
+            if (dot <= 0) {
+                return null;
+            }
+            String visitorId = value.substring(0, dot);
+            byte[] expected = sign(visitorId).getBytes(StandardCharsets.US_ASCII);
+            byte[] actual = value.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(expected, actual) ? visitorId : null;
+        }
+        return null;
+    }
+
+    private String sign(String visitorId) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] digest = mac.doFinal(visitorId.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("访客标识签名失败", e);
+        }
+    }
+}
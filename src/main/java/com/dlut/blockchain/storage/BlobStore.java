@@ -0,0 +1,76 @@
+package com.dlut.blockchain.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 文件内容存储后端
+ * key 为内容地址（如 ab/cd/&lt;sha256&gt;.pdf），同一 key 的内容不会改变
+ */
+public interface BlobStore {
+
+    /**
+     * 后端名称，记录在 file_blobs.storage_backend 中
+     */
+    String name();
+
+    /**
+     * 保存本地文件，调用后源文件不再可用（本地后端直接移动，其他后端上传后删除）
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * 保存输入流内容
+     */
+    void put(String key, InputStream in, long size) throws IOException;
+
+    /**
+     * 读取内容
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 内容是否存在
+     */
+    boolean exists(String key);
+
+    /**
+     * 内容大小，不存在时返回 -1
+     */
+    long size(String key);
+
+    /**
+     * 删除内容，不存在时忽略
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 内容位置描述（用于 file_uploads.file_path）
+     */
+    String location(String key);
+
+    /**
+     * 本地磁盘路径，可直接用 sendfile 发送；非本地后端返回空
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * 预签名下载地址，客户端直接从存储下载；不支持时返回空
+     */
+    default Optional<URI> presignDownload(String key, String downloadName, String contentType, Duration ttl) {
+        return Optional.empty();
+    }
+
+    /**
+     * 预签名上传地址，客户端直接上传到存储，存储端校验 SHA-256；不支持时返回空
+     */
+    default Optional<URI> presignUpload(String key, String sha256, long size, Duration ttl) {
+        return Optional.empty();
+    }
+}
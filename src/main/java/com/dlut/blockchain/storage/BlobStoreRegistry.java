@@ -0,0 +1,56 @@
+package com.dlut.blockchain.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 存储后端注册表
+ * 新内容写入当前启用的后端，已有内容按 file_blobs.storage_backend 找到所在后端
+ */
+@Component
+public class BlobStoreRegistry {
+
+    private final Map<String, BlobStore> stores = new LinkedHashMap<>();
+    private final String activeBackend;
+
+    public BlobStoreRegistry(List<BlobStore> blobStores,
+                             @Value("${file.storage.backend:local}") String activeBackend) {
+        for (BlobStore store : blobStores) {
+            stores.put(store.name(), store);
+        }
+        if (!stores.containsKey(activeBackend)) {
+            throw new IllegalStateException("未配置的存储后端: " + activeBackend + "，可用后端: " + stores.keySet());
+        }
+        this.activeBackend = activeBackend;
+    }
+
+    /**
+     * 当前用于写入新内容的后端
+     */
+    public BlobStore active() {
+        return stores.get(activeBackend);
+    }
+
+    /**
+     * 根据名称获取后端
+     */
+    public BlobStore get(String name) {
+        BlobStore store = stores.get(name == null ? LocalBlobStore.NAME : name);
+        if (store == null) {
+            throw new IllegalStateException("未配置的存储后端: " + name);
+        }
+        return store;
+    }
+
+    /**
+     * 所有可用后端名称
+     */
+    public Set<String> names() {
+        return stores.keySet();
+    }
+}
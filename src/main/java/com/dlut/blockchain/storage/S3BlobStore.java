@@ -0,0 +1,218 @@
+package com.dlut.blockchain.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * S3 兼容对象存储后端（AWS S3、MinIO 等）
+ * file.storage.s3.enabled=true 时启用（同时必须配置 bucket）；支持预签名地址，文件内容可以不经过应用服务器直接上传下载
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "file.storage.s3", name = "enabled", havingValue = "true")
+public class S3BlobStore implements BlobStore {
+
+    public static final String NAME = "s3";
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+
+    public S3BlobStore(@Value("${file.storage.s3.bucket:}") String bucket,
+                       @Value("${file.storage.s3.prefix:}") String prefix,
+                       @Value("${file.storage.s3.endpoint:}") String endpoint,
+                       @Value("${file.storage.s3.region:us-east-1}") String region,
+                       @Value("${file.storage.s3.access-key:}") String accessKey,
+                       @Value("${file.storage.s3.secret-key:}") String secretKey,
+                       @Value("${file.storage.s3.path-style-access:true}") boolean pathStyleAccess) {
+        if (!StringUtils.hasText(bucket)) {
+            throw new IllegalStateException("已启用 S3 存储但未配置 file.storage.s3.bucket");
+        }
+        this.bucket = bucket;
+        this.prefix = StringUtils.hasText(prefix) && !prefix.endsWith("/") ? prefix + "/" : prefix;
+        AwsCredentialsProvider credentials = StringUtils.hasText(accessKey)
+                ? StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
+                : DefaultCredentialsProvider.create();
+        // MinIO 等自建存储一般只支持路径风格访问
+        S3Configuration s3Configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        if (StringUtils.hasText(endpoint)) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        log.info("S3 存储后端已启用: bucket={}, endpoint={}", bucket, StringUtils.hasText(endpoint) ? endpoint : "AWS");
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        try {
+            client.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(objectKey(key))
+                            .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                            .build(),
+                    RequestBody.fromFile(source));
+        } catch (S3Exception e) {
+            throw new IOException("上传到对象存储失败: " + key, e);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public void put(String key, InputStream in, long size) throws IOException {
+        try {
+            client.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(objectKey(key))
+                            .contentLength(size)
+                            .build(),
+                    RequestBody.fromInputStream(in, size));
+        } catch (S3Exception e) {
+            throw new IOException("上传到对象存储失败: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            throw new IOException("读取对象存储失败: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return size(key) >= 0;
+    }
+
+    @Override
+    public long size(String key) {
+        try {
+            HeadObjectResponse head = client.headObject(builder -> builder.bucket(bucket).key(objectKey(key)));
+            return head.contentLength();
+        } catch (NoSuchKeyException e) {
+            return -1;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return -1;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(builder -> builder.bucket(bucket).key(objectKey(key)));
+        } catch (S3Exception e) {
+            throw new IOException("删除对象存储内容失败: " + key, e);
+        }
+    }
+
+    @Override
+    public String location(String key) {
+        return "s3://" + bucket + "/" + objectKey(key);
+    }
+
+    @Override
+    public Optional<URI> presignDownload(String key, String downloadName, String contentType, Duration ttl) {
+        ContentDisposition disposition = StandardCharsets.US_ASCII.newEncoder().canEncode(downloadName)
+                ? ContentDisposition.attachment().filename(downloadName).build()
+                : ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build();
+        var presigned = presigner.presignGetObject(request -> request
+                .signatureDuration(ttl)
+                .getObjectRequest(get -> get
+                        .bucket(bucket)
+                        .key(objectKey(key))
+                        .responseContentType(contentType)
+                        .responseContentDisposition(disposition.toString())));
+        return Optional.of(toUri(presigned.url()));
+    }
+
+    @Override
+    public Optional<URI> presignUpload(String key, String sha256, long size, Duration ttl) {
+        // 签名中包含 SHA-256 校验和，内容与声明的哈希不一致时存储端拒绝写入
+        String checksum = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256));
+        var presigned = presigner.presignPutObject(request -> request
+                .signatureDuration(ttl)
+                .putObjectRequest(put -> put
+                        .bucket(bucket)
+                        .key(objectKey(key))
+                        .contentLength(size)
+                        .checksumSHA256(checksum)));
+        return Optional.of(toUri(presigned.url()));
+    }
+
+    @PreDestroy
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+
+    private URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("预签名地址无效", e);
+        }
+    }
+}
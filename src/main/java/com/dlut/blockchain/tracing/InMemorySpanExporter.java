@@ -0,0 +1,74 @@
+package com.dlut.blockchain.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存中的 span 导出器，保留最近导出的 span（超过容量时丢弃最早的）
+ * 没有部署 Collector 时用于在本机查看采样到的链路，也可以在测试中直接断言导出的 span
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final Deque<SpanData> spans;
+
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            if (spans.size() >= capacity) {
+                spans.pollFirst();
+            }
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * 已导出的 span，按导出顺序
+     */
+    public synchronized List<SpanData> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * 按链路分组的已导出 span，最近的链路在前
+     */
+    public Map<String, List<SpanData>> getTraces() {
+        List<SpanData> snapshot = getSpans();
+        Map<String, List<SpanData>> traces = new LinkedHashMap<>();
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            SpanData span = snapshot.get(i);
+            traces.computeIfAbsent(span.getTraceId(), key -> new ArrayList<>()).add(span);
+        }
+        return traces;
+    }
+
+    public synchronized void reset() {
+        spans.clear();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        reset();
+        return CompletableResultCode.ofSuccess();
+    }
+}
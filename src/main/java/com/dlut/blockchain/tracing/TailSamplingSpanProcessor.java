@@ -0,0 +1,181 @@
+package com.dlut.blockchain.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 尾部采样：所有请求都记录链路，在本服务的根 span 结束后再决定是否导出整条链路
+ * 慢请求（根 span 超过阈值）和出错的链路全部保留，其余按比例随机保留；
+ * 未结束的链路在内存中缓冲，数量和等待时间都有上限，超出时直接丢弃
+ */
+@Slf4j
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final SpanProcessor delegate;
+    private final long slowThresholdNanos;
+    private final double probability;
+    private final int maxTraces;
+    private final long traceTimeoutNanos;
+
+    /**
+     * traceId -> 已结束但尚未决定的 span
+     */
+    private final Map<String, PendingTrace> pending = new ConcurrentHashMap<>();
+    private final AtomicLong endedSpans = new AtomicLong();
+
+    private final Counter keptSlow;
+    private final Counter keptError;
+    private final Counter keptRandom;
+    private final Counter dropped;
+    private final Counter overflow;
+
+    public TailSamplingSpanProcessor(SpanProcessor delegate, Duration slowThreshold, double probability,
+                                     int maxTraces, Duration traceTimeout, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.probability = probability;
+        this.maxTraces = maxTraces;
+        this.traceTimeoutNanos = traceTimeout.toNanos();
+        this.keptSlow = decisionCounter(meterRegistry, "slow");
+        this.keptError = decisionCounter(meterRegistry, "error");
+        this.keptRandom = decisionCounter(meterRegistry, "random");
+        this.dropped = decisionCounter(meterRegistry, "dropped");
+        this.overflow = decisionCounter(meterRegistry, "overflow");
+        Gauge.builder("tracing.tail.pending", pending, Map::size)
+                .description("Traces buffered for a tail sampling decision")
+                .register(meterRegistry);
+    }
+
+    private static Counter decisionCounter(MeterRegistry meterRegistry, String decision) {
+        return Counter.builder("tracing.tail.traces")
+                .description("Tail sampling decisions")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一条等待决定的链路
+     */
+    private static final class PendingTrace {
+        final long createdAt = System.nanoTime();
+        final List<ReadableSpan> spans = new ArrayList<>();
+        boolean error;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+        if (endedSpans.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            evictExpired();
+        }
+        String traceId = span.getSpanContext().getTraceId();
+        boolean error = span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+
+        if (!isLocalRoot(span)) {
+            PendingTrace trace = pending.get(traceId);
+            if (trace == null) {
+                if (pending.size() >= maxTraces) {
+                    overflow.increment();
+                    return;
+                }
+                trace = pending.computeIfAbsent(traceId, key -> new PendingTrace());
+            }
+            synchronized (trace) {
+                trace.spans.add(span);
+                trace.error |= error;
+            }
+            return;
+        }
+
+        // 本服务的根 span 结束，决定整条链路
+        PendingTrace trace = pending.remove(traceId);
+        List<ReadableSpan> spans;
+        if (trace == null) {
+            spans = List.of(span);
+        } else {
+            synchronized (trace) {
+                spans = new ArrayList<>(trace.spans);
+                error |= trace.error;
+            }
+            spans.add(span);
+        }
+        if (span.getLatencyNanos() >= slowThresholdNanos) {
+            keptSlow.increment();
+        } else if (error) {
+            keptError.increment();
+        } else if (ThreadLocalRandom.current().nextDouble() < probability) {
+            keptRandom.increment();
+        } else {
+            dropped.increment();
+            return;
+        }
+        spans.forEach(delegate::onEnd);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.clear();
+        return delegate.shutdown();
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    /**
+     * 没有父 span 或父 span 来自上游服务
+     */
+    private static boolean isLocalRoot(ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    /**
+     * 丢弃等待超时的链路（根 span 不在本服务结束，或根 span 结束后才结束的异步 span）
+     */
+    private void evictExpired() {
+        long now = System.nanoTime();
+        int before = pending.size();
+        pending.values().removeIf(trace -> now - trace.createdAt > traceTimeoutNanos);
+        int evicted = before - pending.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} incomplete traces from tail sampling buffer", evicted);
+        }
+    }
+}
@@ -65,6 +65,22 @@ CREATE INDEX IF NOT EXISTS idx_category_id ON posts (category_id);
 CREATE INDEX IF NOT EXISTS idx_author_id ON posts (author_id);
 CREATE INDEX IF NOT EXISTS idx_featured_status ON posts (featured, status);
 CREATE INDEX IF NOT EXISTS idx_status_public ON posts (status, is_public);
+-- 游标分页：(排序字段, id)
+CREATE INDEX IF NOT EXISTS idx_posts_keyset ON posts (status, is_public, created_at, id);
+
+CREATE TABLE IF NOT EXISTS post_likes (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    post_id BIGINT NOT NULL,
+    visitor_id VARCHAR(100) NOT NULL,
+    CONSTRAINT uk_post_likes_post_visitor UNIQUE (post_id, visitor_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_post_likes_visitor_post ON post_likes (visitor_id, post_id);
 
 CREATE TABLE IF NOT EXISTS projects (
     id BIGSERIAL PRIMARY KEY,
@@ -99,6 +115,7 @@ CREATE INDEX IF NOT EXISTS idx_project_name ON projects (name);
 CREATE INDEX IF NOT EXISTS idx_status_projects ON projects (status);
 CREATE INDEX IF NOT EXISTS idx_start_date ON projects (start_date);
 CREATE INDEX IF NOT EXISTS idx_end_date ON projects (end_date);
+CREATE INDEX IF NOT EXISTS idx_projects_keyset ON projects (updated_at, id);
 
 CREATE TABLE IF NOT EXISTS members (
     id BIGSERIAL PRIMARY KEY,
@@ -167,6 +184,7 @@ CREATE TABLE IF NOT EXISTS meetings (
 CREATE INDEX IF NOT EXISTS idx_title_meetings ON meetings (title);
 CREATE INDEX IF NOT EXISTS idx_meeting_date ON meetings (meeting_date);
 CREATE INDEX IF NOT EXISTS idx_status_meetings ON meetings (status);
+CREATE INDEX IF NOT EXISTS idx_meetings_keyset ON meetings (meeting_date, id);
 
 CREATE TABLE IF NOT EXISTS file_uploads (
     id BIGSERIAL PRIMARY KEY,
@@ -178,6 +196,7 @@ CREATE TABLE IF NOT EXISTS file_uploads (
     file_name VARCHAR(255) NOT NULL UNIQUE,
     original_name VARCHAR(255) NOT NULL,
     file_path VARCHAR(255) NOT NULL,
+    checksum VARCHAR(64),
     file_type VARCHAR(255),
     file_size BIGINT,
     category VARCHAR(255),
@@ -188,6 +207,135 @@ CREATE TABLE IF NOT EXISTS file_uploads (
     status VARCHAR(20) DEFAULT 'ACTIVE'
 );
 
+CREATE INDEX IF NOT EXISTS idx_file_uploads_keyset ON file_uploads (uploaded_at, id);
+
+-- 已有库升级：上传时间作为游标分页的排序字段，不能为空
+UPDATE file_uploads SET uploaded_at = created_at WHERE uploaded_at IS NULL;
+ALTER TABLE file_uploads ALTER COLUMN uploaded_at SET NOT NULL;
+
+-- 已有库升级：内容校验和（去重存储之前上传的文件为空）
+ALTER TABLE file_uploads ADD COLUMN IF NOT EXISTS checksum VARCHAR(64);
+CREATE INDEX IF NOT EXISTS idx_file_uploads_checksum ON file_uploads (checksum);
+
+-- 已有库升级：后台处理状态和按文件头识别的内容类型（已有文件视为处理完成）
+ALTER TABLE file_uploads ADD COLUMN IF NOT EXISTS processing_status VARCHAR(20) DEFAULT 'READY';
+ALTER TABLE file_uploads ADD COLUMN IF NOT EXISTS detected_type VARCHAR(100);
+
+-- 已有库升级：回收站（查询按 status <> 'DELETED' 过滤，状态为空的旧数据视为正常文件）
+ALTER TABLE file_uploads ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+UPDATE file_uploads SET status = 'ACTIVE' WHERE status IS NULL;
+CREATE INDEX IF NOT EXISTS idx_file_uploads_deleted_at ON file_uploads (deleted_at) WHERE status = 'DELETED';
+
+CREATE TABLE IF NOT EXISTS file_blobs (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    sha256 VARCHAR(64) NOT NULL UNIQUE,
+    storage_path VARCHAR(255) NOT NULL,
+    storage_backend VARCHAR(20) NOT NULL DEFAULT 'local',
+    file_size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    verified_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_blobs_unreferenced ON file_blobs (updated_at) WHERE ref_count = 0;
+
+-- 已有库升级：内容所在的存储后端
+ALTER TABLE file_blobs ADD COLUMN IF NOT EXISTS storage_backend VARCHAR(20) NOT NULL DEFAULT 'local';
+CREATE INDEX IF NOT EXISTS idx_file_blobs_backend ON file_blobs (storage_backend, id);
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    upload_id VARCHAR(36) NOT NULL UNIQUE,
+    original_name VARCHAR(255) NOT NULL,
+    file_type VARCHAR(255),
+    category VARCHAR(255),
+    description VARCHAR(255),
+    uploaded_by VARCHAR(255),
+    total_size BIGINT NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    total_chunks INTEGER NOT NULL,
+    staging_path VARCHAR(500) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'UPLOADING',
+    expires_at TIMESTAMP NOT NULL,
+    file_id BIGINT,
+    active_writes INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires_at ON upload_sessions (expires_at);
+
+-- 已有库升级：分片写入与合并互斥
+ALTER TABLE upload_sessions ADD COLUMN IF NOT EXISTS active_writes INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS upload_chunks (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    session_id BIGINT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    CONSTRAINT uk_upload_chunks_session_index UNIQUE (session_id, chunk_index)
+);
+
+CREATE TABLE IF NOT EXISTS file_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    file_id BIGINT NOT NULL,
+    job_type VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL,
+    run_at TIMESTAMP NOT NULL,
+    locked_at TIMESTAMP,
+    last_error VARCHAR(1000),
+    CONSTRAINT uk_file_jobs_file_type UNIQUE (file_id, job_type)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_jobs_status_run_at ON file_jobs (status, run_at);
+
+CREATE TABLE IF NOT EXISTS file_texts (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    file_id BIGINT NOT NULL UNIQUE,
+    content TEXT
+);
+
+CREATE TABLE IF NOT EXISTS file_usage (
+    id BIGSERIAL PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by BIGINT,
+    updated_by BIGINT,
+    version BIGINT,
+    scope VARCHAR(20) NOT NULL,
+    scope_key VARCHAR(255) NOT NULL,
+    file_count BIGINT NOT NULL DEFAULT 0,
+    total_size BIGINT NOT NULL DEFAULT 0,
+    download_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_file_usage_scope_key UNIQUE (scope, scope_key)
+);
+
 CREATE TABLE IF NOT EXISTS visit_logs (
     id BIGSERIAL PRIMARY KEY,
     created_at TIMESTAMP NOT NULL,
@@ -0,0 +1,117 @@
+package com.dlut.blockchain.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 日志限流过滤器测试：每秒窗口的计数、超出后的采样和窗口滚动
+ */
+class RateLimitingTurboFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private RateLimitingTurboFilter filter;
+    private Logger hotLogger;
+    private Logger otherLogger;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        hotLogger = context.getLogger("com.dlut.blockchain.service.PostService");
+        hotLogger.setLevel(Level.DEBUG);
+        otherLogger = context.getLogger("org.hibernate.SQL");
+        otherLogger.setLevel(Level.DEBUG);
+
+        filter = new RateLimitingTurboFilter();
+        filter.setLoggers("com.dlut.blockchain, ,com.example");
+        filter.setMaxPerSecond(3);
+        filter.setSampleEvery(2);
+        filter.setMaxLevel("WARN");
+        filter.setClock(now::get);
+    }
+
+    @Test
+    void passesUpToLimitThenKeepsEverySampleEveryth() {
+        assertThat(decide(Level.INFO, 3)).containsOnly(FilterReply.NEUTRAL);
+
+        // 超出部分第 2、4、6 条保留
+        assertThat(decide(Level.INFO, 6)).containsExactly(
+                FilterReply.DENY, FilterReply.NEUTRAL,
+                FilterReply.DENY, FilterReply.NEUTRAL,
+                FilterReply.DENY, FilterReply.NEUTRAL);
+        assertThat(filter.getSuppressed()).isEqualTo(3);
+    }
+
+    @Test
+    void dropsEverythingOverLimitWhenSamplingDisabled() {
+        filter.setSampleEvery(0);
+
+        assertThat(decide(Level.INFO, 3)).containsOnly(FilterReply.NEUTRAL);
+        assertThat(decide(Level.INFO, 5)).containsOnly(FilterReply.DENY);
+        assertThat(filter.getSuppressed()).isEqualTo(5);
+    }
+
+    @Test
+    void newSecondResetsTheCount() {
+        decide(Level.INFO, 4);
+        assertThat(decide(Level.INFO, 1)).containsExactly(FilterReply.NEUTRAL);
+
+        // 同一秒内不滚动
+        now.addAndGet(999 - now.get() % 1000);
+        assertThat(decide(Level.INFO, 1)).containsExactly(FilterReply.DENY);
+
+        now.incrementAndGet();
+        assertThat(decide(Level.INFO, 3)).containsOnly(FilterReply.NEUTRAL);
+        assertThat(decide(Level.INFO, 1)).containsExactly(FilterReply.DENY);
+    }
+
+    @Test
+    void errorsAndLevelsAboveMaxLevelAreNeverLimited() {
+        decide(Level.INFO, 10);
+
+        assertThat(decide(Level.ERROR, 20)).containsOnly(FilterReply.NEUTRAL);
+        filter.setMaxLevel("INFO");
+        assertThat(decide(Level.WARN, 20)).containsOnly(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void windowsArePerLoggerAndOnlyForConfiguredPrefixes() {
+        decide(Level.INFO, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(filter.decide(null, otherLogger, Level.INFO, "sql", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        }
+        Logger sibling = hotLogger.getLoggerContext().getLogger("com.dlut.blockchain.service.ProjectService");
+        assertThat(filter.decide(null, sibling, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void levelChecksAndDisabledLevelsDoNotConsumeTheBudget() {
+        hotLogger.setLevel(Level.INFO);
+        for (int i = 0; i < 10; i++) {
+            // isInfoEnabled() 之类的检查没有 format
+            assertThat(filter.decide(null, hotLogger, Level.INFO, null, null, null)).isEqualTo(FilterReply.NEUTRAL);
+            // 低于 Logger 级别的日志本来就不会输出
+            assertThat(filter.decide(null, hotLogger, Level.DEBUG, "debug", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        }
+
+        assertThat(decide(Level.INFO, 3)).containsOnly(FilterReply.NEUTRAL);
+        assertThat(filter.getSuppressed()).isZero();
+    }
+
+    private FilterReply[] decide(Level level, int times) {
+        FilterReply[] replies = new FilterReply[times];
+        for (int i = 0; i < times; i++) {
+            replies[i] = filter.decide(null, hotLogger, level, "message {}", new Object[]{i}, null);
+        }
+        return replies;
+    }
+}
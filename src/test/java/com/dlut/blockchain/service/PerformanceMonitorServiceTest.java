@@ -0,0 +1,81 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.config.TagCardinalityFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 指标标签基数上限测试：大量不同的端点取值不会让时间序列和缓存无限增长
+ */
+class PerformanceMonitorServiceTest {
+
+    private static final int MAX_TAG_VALUES = 200;
+    private static final int DISTINCT_IDS = 100_000;
+
+    private MeterRegistry meterRegistry;
+    private PerformanceMonitorService performanceMonitorService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new TagCardinalityFilter(MAX_TAG_VALUES));
+        performanceMonitorService = new PerformanceMonitorService(meterRegistry, Duration.ofMinutes(1), 3, MAX_TAG_VALUES);
+    }
+
+    @Test
+    void numericIdsCollapseIntoOneRouteTemplate() {
+        for (int i = 0; i < DISTINCT_IDS; i++) {
+            performanceMonitorService.recordApiMetrics("/api/posts/" + i, "GET", TimeUnit.MILLISECONDS.toNanos(5), true);
+        }
+
+        assertThat(meterRegistry.find("api.request.duration").timers()).hasSize(1);
+        assertThat(meterRegistry.get("api.request.duration").tag("endpoint", "/api/posts/{id}").timer().count())
+                .isEqualTo(DISTINCT_IDS);
+        assertThat(apiMeterCache()).hasSize(1);
+    }
+
+    @Test
+    void distinctEndpointsAreCappedWithOverflowBucket() {
+        for (int i = 0; i < DISTINCT_IDS; i++) {
+            performanceMonitorService.recordApiMetrics("/api/posts/slug-" + i, "GET", TimeUnit.MILLISECONDS.toNanos(5), i % 2 == 0);
+        }
+
+        assertThat(meterRegistry.find("api.request.duration").timers()).hasSizeLessThanOrEqualTo(MAX_TAG_VALUES + 1);
+        assertThat(meterRegistry.find("api.request.count").counters()).hasSizeLessThanOrEqualTo(2 * (MAX_TAG_VALUES + 1));
+        assertThat(meterRegistry.getMeters()).hasSizeLessThan(10 * (MAX_TAG_VALUES + 1));
+        assertThat(apiMeterCache()).hasSizeLessThanOrEqualTo(MAX_TAG_VALUES + 1);
+
+        // 超出上限的请求都记入溢出桶，总数不丢
+        long total = meterRegistry.find("api.request.duration").timers().stream().mapToLong(Timer::count).sum();
+        assertThat(total).isEqualTo(DISTINCT_IDS);
+        assertThat(meterRegistry.get("api.request.duration").tag("endpoint", TagCardinalityFilter.OVERFLOW).timer().count())
+                .isEqualTo(DISTINCT_IDS - MAX_TAG_VALUES);
+    }
+
+    @Test
+    void filterCapsTagValuesRegisteredOutsideTheService() {
+        for (int i = 0; i < DISTINCT_IDS; i++) {
+            Counter.builder("cardinality.test").tag("user", "user-" + i).register(meterRegistry).increment();
+        }
+
+        assertThat(meterRegistry.find("cardinality.test").counters()).hasSize(MAX_TAG_VALUES + 1);
+        assertThat(meterRegistry.get("cardinality.test").tag("user", TagCardinalityFilter.OVERFLOW).counter().count())
+                .isEqualTo(DISTINCT_IDS - MAX_TAG_VALUES);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> apiMeterCache() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(performanceMonitorService, "apiMeters");
+    }
+}
@@ -0,0 +1,125 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.entity.Post;
+import com.dlut.blockchain.repository.PostLikeRepository;
+import com.dlut.blockchain.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 并发点赞测试：同一访客并发点赞只计一次，不同访客并发点赞全部计入
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:post_like_test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "file.upload-dir=${java.io.tmpdir}/post-like-test/uploads",
+        "jfr.dump-dir=${java.io.tmpdir}/post-like-test/jfr"
+})
+class PostLikeConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostLikeRepository postLikeRepository;
+
+    @MockitoBean
+    private TrendingPostService trendingPostService;
+
+    private Long postId;
+
+    @BeforeEach
+    void createPost() {
+        Post post = new Post();
+        post.setTitle("concurrency");
+        post.setContent("content");
+        post.setAuthor("tester");
+        post.setStatus(Post.PostStatus.PUBLISHED);
+        postId = postRepository.save(post).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        postLikeRepository.deleteAll();
+        postRepository.deleteAll();
+    }
+
+    @Test
+    void sameVisitorLikingInParallelCountsOnce() throws Exception {
+        likeInParallel(i -> "v:same-visitor");
+
+        assertThat(likeCount()).isEqualTo(1);
+        assertThat(postLikeRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void distinctVisitorsLikingInParallelAreAllCounted() throws Exception {
+        likeInParallel(i -> "v:visitor-" + i);
+
+        assertThat(likeCount()).isEqualTo(THREADS);
+        assertThat(postLikeRepository.count()).isEqualTo(THREADS);
+    }
+
+    @Test
+    void likeThenUnlikeInParallelLeavesNoLikes() throws Exception {
+        likeInParallel(i -> "v:visitor-" + (i % 4));
+        assertThat(likeCount()).isEqualTo(4);
+
+        runInParallel(i -> postService.unlikePost(postId, "v:visitor-" + (i % 4)));
+
+        assertThat(likeCount()).isZero();
+        assertThat(postLikeRepository.count()).isZero();
+    }
+
+    private void likeInParallel(IntFunction<String> visitorIds) throws Exception {
+        runInParallel(i -> postService.likePost(postId, visitorIds.apply(i)));
+    }
+
+    private void runInParallel(IntFunction<Object> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return action.apply(index);
+                }));
+            }
+            start.countDown();
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int likeCount() {
+        return postRepository.findById(postId).orElseThrow().getLikeCount();
+    }
+}
@@ -0,0 +1,83 @@
+package com.dlut.blockchain.service;
+
+import com.dlut.blockchain.controller.AuthController;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 访客标识签发与校验测试
+ */
+class VisitorIdServiceTest {
+
+    private VisitorIdService visitorIdService;
+
+    @BeforeEach
+    void setUp() {
+        visitorIdService = new VisitorIdService();
+        ReflectionTestUtils.setField(visitorIdService, "cookieName", "vid");
+        ReflectionTestUtils.setField(visitorIdService, "cookieMaxAge", Duration.ofDays(365));
+        ReflectionTestUtils.setField(visitorIdService, "cookieSecret", "test-secret");
+        ReflectionTestUtils.setField(visitorIdService, "maxNewPerMinute", 2);
+        visitorIdService.init();
+    }
+
+    @Test
+    void issuesHttpOnlyCookieAndRecognisesItOnNextRequest() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String first = visitorIdService.resolve(new MockHttpServletRequest(), response);
+
+        String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertThat(setCookie).contains("HttpOnly").contains("SameSite=Lax");
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(new Cookie("vid", setCookie.substring("vid=".length(), setCookie.indexOf(';'))));
+        MockHttpServletResponse nextResponse = new MockHttpServletResponse();
+
+        assertThat(visitorIdService.resolve(next, nextResponse)).isEqualTo(first);
+        assertThat(nextResponse.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    @Test
+    void forgedCookieAndForwardedHeadersDoNotSelectVisitor() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("vid", "attacker.forged"));
+        request.addHeader("X-Forwarded-For", "203.0.113.7");
+
+        String visitorId = visitorIdService.resolve(request, new MockHttpServletResponse());
+
+        assertThat(visitorId).isNotEqualTo("v:attacker").doesNotContain("203.0.113.7");
+    }
+
+    @Test
+    void limitsNewVisitorIdsPerClient() {
+        visitorIdService.resolve(new MockHttpServletRequest(), new MockHttpServletResponse());
+        visitorIdService.resolve(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String visitorId = visitorIdService.resolve(new MockHttpServletRequest(), response);
+
+        assertThat(visitorId).isEqualTo("ip:127.0.0.1");
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    @Test
+    void adminSessionUsesUsername() {
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(AuthController.ADMIN_SESSION_KEY, true);
+        session.setAttribute("admin_username", "admin");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+
+        assertThat(visitorIdService.resolve(request, new MockHttpServletResponse())).isEqualTo("admin:admin");
+    }
+}